@@ -41,7 +41,9 @@ import grondag.canvas.shader.GlShader;
 import grondag.canvas.shader.GlShaderManager;
 import grondag.canvas.shader.PreReleaseShaderCompat;
 import grondag.canvas.shader.data.ShaderDataManager;
+import grondag.canvas.terrain.region.RegionMeshDiskCache;
 import grondag.canvas.terrain.region.input.PackedInputRegion;
+import grondag.canvas.terrain.util.BlockQuadCache;
 import grondag.canvas.terrain.util.ChunkColorCache;
 
 public class CanvasState {
@@ -68,6 +70,8 @@ public class CanvasState {
 		CanvasItemRenderContext.reload();
 		ChunkRebuildCounters.reset();
 		ChunkColorCache.invalidate();
+		BlockQuadCache.invalidate();
+		RegionMeshDiskCache.checkRegistry();
 		AoFace.clampExteriorVertices(Configurator.clampExteriorVertices);
 
 		recompile();
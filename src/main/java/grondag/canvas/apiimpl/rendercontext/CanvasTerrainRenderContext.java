@@ -20,6 +20,13 @@
 
 package grondag.canvas.apiimpl.rendercontext;
 
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.MESH_VERTEX_STRIDE;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_COLOR;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_X;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_Y;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_Z;
+
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.jetbrains.annotations.Nullable;
 
@@ -30,10 +37,15 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.BlockPos.MutableBlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.world.level.BlockAndTintGetter;
+import net.minecraft.world.level.ColorResolver;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.lighting.LevelLightEngine;
+import net.minecraft.world.level.material.FluidState;
 
 import io.vram.frex.api.math.MatrixStack;
 import io.vram.frex.api.math.PackedSectionPos;
@@ -45,10 +57,15 @@ import io.vram.frex.base.renderer.context.input.BaseBlockInputContext;
 import io.vram.frex.base.renderer.context.render.BlockRenderContext;
 
 import grondag.canvas.apiimpl.rendercontext.encoder.TerrainQuadEncoder;
+import grondag.canvas.buffer.format.TerrainEncoder;
 import grondag.canvas.config.Configurator;
 import grondag.canvas.light.LightSmoother;
+import grondag.canvas.terrain.region.SubRegionMeshCache;
 import grondag.canvas.terrain.region.input.InputRegion;
 import grondag.canvas.terrain.region.input.PackedInputRegion;
+import grondag.canvas.terrain.util.BlockQuadCache;
+import grondag.canvas.terrain.util.RegionBiomeColors;
+import grondag.canvas.terrain.util.RegionLodSampler;
 import grondag.canvas.terrain.util.RenderRegionStateIndexer;
 
 /**
@@ -66,10 +83,28 @@ public class CanvasTerrainRenderContext extends BlockRenderContext<BlockAndTintG
 
 	public final TerrainQuadEncoder encoder;
 
+	/** True while fluid quads are being emitted. Recorded with quads so they can be relit. */
+	private boolean isFluid;
+
+	private final BlockQuadCache quadCache = new BlockQuadCache();
+	/** True while quads of a static model are being captured into {@link #quadCache}. */
+	private boolean isCapturing;
+
+	public final RegionLodSampler lodSampler = new RegionLodSampler();
+	/** Faces culled by {@link #renderLodBlock}, one bit per {@link Direction} ordinal. */
+	private int lodCullMask;
+	private final MutableBlockPos lodPos = new MutableBlockPos();
+	private final LodBlockView lodView = new LodBlockView();
+
+	/** Vertex colors of the current quad before block tint, for {@link #colorizePerVertex()}. */
+	private final int[] untintedColors = new int[4];
+	private final RegionBiomeColors biomeColors;
+
 	@SuppressWarnings("unchecked")
 	public CanvasTerrainRenderContext() {
 		super();
 		region = new InputRegion(this);
+		biomeColors = region.biomeColors;
 		inputContext.prepareForWorld(region, true, matrixStack);
 		encoder = new TerrainQuadEncoder(emitter, inputContext);
 		bakedListenerContext = (RenderRegionContext<BlockAndTintGetter>) inputContext;
@@ -140,6 +175,7 @@ public class CanvasTerrainRenderContext extends BlockRenderContext<BlockAndTintG
 		removedBlockEntities.clear();
 		region.prepare(protoRegion);
 		encoder.animationBits.clear();
+		quadCache.checkVersion();
 
 		if (Configurator.lightSmoothing) {
 			//            final long start = counter.startRun();
@@ -168,13 +204,66 @@ public class CanvasTerrainRenderContext extends BlockRenderContext<BlockAndTintG
 	public void renderFluid(BlockState blockState, BlockPos blockPos, boolean defaultAo, final BlockModel model) {
 		aoCalc.prepare(PackedSectionPos.packWithSectionMask(blockPos));
 		prepareForFluid(blockState, blockPos, defaultAo);
+		isFluid = true;
 		renderInner(model);
+		isFluid = false;
 	}
 
 	public void renderBlock(BlockState blockState, BlockPos blockPos, final BakedModel model) {
+		renderBlock(blockState, blockPos, model, true);
+	}
+
+	private void renderBlock(BlockState blockState, BlockPos blockPos, final BakedModel model, boolean allowCache) {
 		aoCalc.prepare(PackedSectionPos.packWithSectionMask(blockPos));
 		prepareForBlock(model, blockState, blockPos);
+
+		if (allowCache && Configurator.cacheStaticBlockQuads && BlockQuadCache.isStatic(blockState, model)) {
+			renderStatic(blockState, blockPos, model);
+		} else {
+			renderInner((BlockModel) model);
+		}
+	}
+
+	/**
+	 * Renders a block model scaled by the current model matrix to stand for a cell of
+	 * distant terrain. Culling against real neighbors doesn't apply to a scaled model,
+	 * so neighbors read as air and faces are culled by the given mask instead.
+	 */
+	public void renderLodBlock(BlockState blockState, BlockPos blockPos, final BakedModel model, int cullMask) {
+		aoCalc.prepare(PackedSectionPos.packWithSectionMask(blockPos));
+		lodPos.set(blockPos);
+		inputContext.setWorld(lodView);
+		prepareForBlock(model, blockState, blockPos);
+		lodCullMask = cullMask;
 		renderInner((BlockModel) model);
+		lodCullMask = 0;
+		inputContext.setWorld(region);
+	}
+
+	/**
+	 * Replays cached quads for a static model if the same faces were culled before,
+	 * otherwise renders normally and captures the quads that reach lighting.
+	 */
+	private void renderStatic(BlockState blockState, BlockPos blockPos, final BakedModel model) {
+		final int cullMask = region.cullMask(RenderRegionStateIndexer.interiorIndex(blockPos), blockPos);
+		final int[] quads = quadCache.get(blockState, cullMask);
+
+		if (quads == null) {
+			quadCache.beginCapture();
+			isCapturing = true;
+			renderInner((BlockModel) model);
+			isCapturing = false;
+			quadCache.endCapture(blockState, cullMask);
+		} else {
+			final int[] data = emitter.data();
+
+			for (int i = 0; i < quads.length; i += TOTAL_MESH_QUAD_STRIDE) {
+				System.arraycopy(quads, i, data, 0, TOTAL_MESH_QUAD_STRIDE);
+				emitter.load();
+				shadeQuad();
+				encodeQuad();
+			}
+		}
 	}
 
 	// PERF: don't pass in matrixStack each time, just change model matrix directly
@@ -189,8 +278,33 @@ public class CanvasTerrainRenderContext extends BlockRenderContext<BlockAndTintG
 		}
 	}
 
-	@Override
-	protected void shadeQuad() {
+	/**
+	 * Restores a quad captured before lighting in a prior build, recomputes its lighting
+	 * from current light values and rewrites AO and lightmaps in the encoded quad.
+	 * The block must not have changed since the quad was captured.
+	 *
+	 * @param blockIndex Region-relative interior index of the block that emitted the quad
+	 * @param preShadeData Lighting inputs captured by {@link SubRegionMeshCache.Segment#capturePreShade(int[], int, boolean)}
+	 * @param encoded Encoded quad to be updated in place
+	 */
+	public void relightQuad(int blockIndex, boolean isFluid, int[] preShadeData, int preShadeIndex, int[] encoded, int encodedIndex) {
+		final BlockState blockState = region.getLocalBlockState(blockIndex);
+		final BlockPos blockPos = searchPos.set(region.originX() + (blockIndex & 0xF), region.originY() + ((blockIndex >> 4) & 0xF), region.originZ() + ((blockIndex >> 8) & 0xF));
+		aoCalc.prepare(PackedSectionPos.packWithSectionMask(blockPos));
+
+		if (isFluid) {
+			prepareForFluid(blockState, blockPos, false);
+		} else {
+			prepareForBlock(Minecraft.getInstance().getBlockRenderer().getBlockModel(blockState), blockState, blockPos);
+		}
+
+		SubRegionMeshCache.loadPreShade(preShadeData, preShadeIndex, emitter.data());
+		emitter.load();
+		computeLighting();
+		TerrainEncoder.relightQuad(emitter, encoded, encodedIndex);
+	}
+
+	private void computeLighting() {
 		// needs to happen before offsets are applied
 		if (!emitter.material().disableAo() && Minecraft.useAmbientOcclusion()) {
 			aoCalc.compute(emitter);
@@ -199,20 +313,156 @@ public class CanvasTerrainRenderContext extends BlockRenderContext<BlockAndTintG
 		} else {
 			emitter.applyFlatLighting(inputContext.flatBrightness(emitter));
 		}
+	}
+
+	@Override
+	protected void shadeQuad() {
+		if (isCapturing) {
+			quadCache.capture(emitter.data());
+		}
+
+		final var recorder = encoder.recorder;
+
+		if (recorder != null) {
+			final BlockPos pos = inputContext.pos();
+			recorder.capturePreShade(emitter.data(), (pos.getX() & 0xF) | ((pos.getY() & 0xF) << 4) | ((pos.getZ() & 0xF) << 8), isFluid);
+		}
+
+		computeLighting();
+
+		if (Configurator.vertexBiomeBlending) {
+			colorizePerVertex();
+		} else {
+			emitter.colorize(inputContext);
+		}
+	}
+
+	/**
+	 * Colorizes the quad, then replaces biome tint applied to the whole quad with tint
+	 * interpolated at each vertex. Colors are scaled by the ratio of vertex tint to block
+	 * tint, so color providers that adjust the biome color keep their adjustment.
+	 * Quads with colors that don't match the block tint are left as they are.
+	 */
+	private void colorizePerVertex() {
+		final int[] data = emitter.data();
+		final int baseIndex = emitter.vertexStart();
+		final int[] untinted = untintedColors;
+
+		for (int i = 0; i < 4; ++i) {
+			untinted[i] = data[baseIndex + i * MESH_VERTEX_STRIDE + VERTEX_COLOR];
+		}
 
 		emitter.colorize(inputContext);
+
+		if (!biomeColors.hasVertexTint(inputContext.pos())) {
+			return;
+		}
+
+		final int blockTint = biomeColors.lastBlockTint();
+		final int tinted = data[baseIndex + VERTEX_COLOR];
+
+		if (tinted == untinted[0] || !isTintedBy(untinted[0], tinted, blockTint)) {
+			return;
+		}
+
+		for (int i = 0; i < 4; ++i) {
+			final int index = baseIndex + i * MESH_VERTEX_STRIDE;
+			final int vertexTint = biomeColors.vertexTint(
+					Float.intBitsToFloat(data[index + VERTEX_X]),
+					Float.intBitsToFloat(data[index + VERTEX_Y]),
+					Float.intBitsToFloat(data[index + VERTEX_Z]));
+
+			data[index + VERTEX_COLOR] = retint(data[index + VERTEX_COLOR], blockTint, vertexTint);
+		}
+	}
+
+	/**
+	 * True if the tinted vertex color is the untinted color multiplied by the given tint.
+	 * Vertex colors are ABGR and tint colors are RGB, so channel shifts are mirrored.
+	 */
+	private static boolean isTintedBy(int untinted, int tinted, int tint) {
+		for (int shift = 0; shift <= 16; shift += 8) {
+			final int expected = ((untinted >> shift) & 0xFF) * ((tint >> (16 - shift)) & 0xFF) / 255;
+
+			if (Math.abs(((tinted >> shift) & 0xFF) - expected) > 2) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Scales each channel of an ABGR vertex color by the ratio of two RGB tint colors. */
+	private static int retint(int color, int fromTint, int toTint) {
+		int result = color & 0xFF000000;
+
+		for (int shift = 0; shift <= 16; shift += 8) {
+			final int c = (color >> shift) & 0xFF;
+			final int from = (fromTint >> (16 - shift)) & 0xFF;
+			final int to = (toTint >> (16 - shift)) & 0xFF;
+			result |= (from == 0 ? c : Math.min(255, (c * to + (from >> 1)) / from)) << shift;
+		}
+
+		return result;
 	}
 
 	@Override
 	protected void encodeQuad() {
-		encoder.encode();
+		if ((lodCullMask & (1 << emitter.effectiveCullFaceId())) == 0) {
+			encoder.encode();
+		}
 	}
 
 	@Override
 	public void bake(BlockPos pos, BlockState state) {
 		matrixStack.push();
 		matrixStack.translate(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
-		renderBlock(state, pos, BlockModel.get(state));
+		// Not cached - bake listeners may substitute the world used for face culling
+		renderBlock(state, pos, BlockModel.get(state), false);
 		matrixStack.pop();
 	}
+
+	/** World view for {@link #renderLodBlock}. Only the block being rendered is visible. */
+	private class LodBlockView implements BlockAndTintGetter {
+		@Override
+		public BlockState getBlockState(BlockPos pos) {
+			return pos.equals(lodPos) ? region.getBlockState(pos) : Blocks.AIR.defaultBlockState();
+		}
+
+		@Override
+		public FluidState getFluidState(BlockPos pos) {
+			return getBlockState(pos).getFluidState();
+		}
+
+		@Override
+		@Nullable
+		public BlockEntity getBlockEntity(BlockPos pos) {
+			return pos.equals(lodPos) ? region.getBlockEntity(pos) : null;
+		}
+
+		@Override
+		public float getShade(Direction direction, boolean shaded) {
+			return region.getShade(direction, shaded);
+		}
+
+		@Override
+		public LevelLightEngine getLightEngine() {
+			return region.getLightEngine();
+		}
+
+		@Override
+		public int getBlockTint(BlockPos blockPos, ColorResolver colorResolver) {
+			return region.getBlockTint(blockPos, colorResolver);
+		}
+
+		@Override
+		public int getHeight() {
+			return region.getHeight();
+		}
+
+		@Override
+		public int getMinBuildHeight() {
+			return region.getMinBuildHeight();
+		}
+	}
 }
@@ -43,7 +43,10 @@ public abstract class BaseQuadEncoder {
 
 	public final BitSet animationBits = new BitSet();
 
-	protected void trackAnimation(BaseQuadEmitter quad) {
+	/**
+	 * @return animated sprite index of the quad, or -1 if not animated
+	 */
+	protected int trackAnimation(BaseQuadEmitter quad) {
 		final var mat = quad.material();
 
 		if (!mat.discardsTexture() && mat.texture().isAtlas()) {
@@ -53,6 +56,10 @@ public abstract class BaseQuadEncoder {
 			if (animationIndex >= 0) {
 				animationBits.set(animationIndex);
 			}
+
+			return animationIndex;
 		}
+
+		return -1;
 	}
 }
@@ -20,20 +20,27 @@
 
 package grondag.canvas.apiimpl.rendercontext.encoder;
 
+import org.jetbrains.annotations.Nullable;
+
 import io.vram.frex.api.model.InputContext;
 import io.vram.frex.base.renderer.mesh.BaseQuadEmitter;
 
 import grondag.canvas.buffer.format.TerrainEncoder;
+import grondag.canvas.buffer.input.DrawableVertexCollector;
 import grondag.canvas.buffer.input.VertexCollectorList;
 import grondag.canvas.material.state.CanvasRenderMaterial;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
 import grondag.canvas.terrain.region.RegionPosition;
+import grondag.canvas.terrain.region.SubRegionMeshCache;
 
 public class TerrainQuadEncoder extends BaseQuadEncoder {
 	/** Used by some terrain render configs to pass a region ID into vertex encoding. */
 	private int sectorId;
 	private int sectorRelativeRegionOrigin;
 
+	/** When non-null, encoded quads are also captured for incremental rebuild. */
+	public @Nullable SubRegionMeshCache.Segment recorder = null;
+
 	public TerrainQuadEncoder(BaseQuadEmitter emitter, InputContext inputContext) {
 		super(emitter, inputContext);
 		collectors = new VertexCollectorList(true, true);
@@ -53,8 +60,14 @@ public class TerrainQuadEncoder extends BaseQuadEncoder {
 	}
 
 	public void encode() {
-		trackAnimation(emitter);
-		TerrainEncoder.encodeQuad(this, collectors.get((CanvasRenderMaterial) emitter.material()));
+		final int animationIndex = trackAnimation(emitter);
+		final CanvasRenderMaterial mat = (CanvasRenderMaterial) emitter.material();
+		final DrawableVertexCollector collector = collectors.get(mat);
+		TerrainEncoder.encodeQuad(this, collector);
+
+		if (recorder != null) {
+			recorder.record(mat, emitter.effectiveCullFaceId(), mat.castShadows(), collector.target(), animationIndex);
+		}
 	}
 
 	public BaseQuadEmitter emitter() {
@@ -45,11 +45,13 @@ import net.minecraft.util.Mth;
 import io.vram.frex.api.material.MaterialConstants;
 import io.vram.frex.api.math.FastMatrix3f;
 import io.vram.frex.api.math.FastMatrix4f;
+import io.vram.frex.base.renderer.mesh.BaseQuadEmitter;
 import io.vram.frex.base.renderer.mesh.MeshEncodingHelper;
 
 import grondag.canvas.apiimpl.rendercontext.encoder.TerrainQuadEncoder;
 import grondag.canvas.buffer.input.VertexCollector;
 import grondag.canvas.material.state.CanvasRenderMaterial;
+import grondag.canvas.pipeline.Pipeline;
 
 public class TerrainEncoder {
 	private TerrainEncoder() { }
@@ -70,6 +72,11 @@ public class TerrainEncoder {
 			NORMAL_TANGENT_4B);
 
 	private static final int TERRAIN_VERTEX_STRIDE = TERRAIN_MATERIAL.vertexStrideInts;
+	/**
+	 * Sector ID occupies the low bits of the first vertex int, below the quad merge flags
+	 * and the normal and tangent sign bits. See {@link TerrainQuadMerger}.
+	 */
+	private static final int SECTOR_ID_MASK = 0x1FF;
 
 	public static void encodeQuad(TerrainQuadEncoder encoder, VertexCollector buff) {
 		final var quad = encoder.emitter();
@@ -112,7 +119,8 @@ public class TerrainEncoder {
 
 		// This and pos vertex encoding are the only differences from standard format
 		final int sectorId = encoder.sectorId();
-		assert sectorId >= 0;
+		assert sectorId >= 0 && sectorId <= SECTOR_ID_MASK;
+		final int mergeFlag = Pipeline.terrainQuadMerging() && mat.hasDefaultShader() ? TerrainQuadMerger.CANDIDATE_FLAG : 0;
 		final int sectorRelativeRegionOrigin = encoder.sectorRelativeRegionOrigin();
 
 		for (int i = 0; i < 4; i++) {
@@ -162,7 +170,7 @@ public class TerrainEncoder {
 			yInt += ((sectorRelativeRegionOrigin >> 8) & 0xFF);
 			zInt += ((sectorRelativeRegionOrigin >> 16) & 0xFF);
 
-			target[toIndex] = sectorId | normalSignBit | tangentInverseSignBits | (xFract << 16);
+			target[toIndex] = sectorId | mergeFlag | normalSignBit | tangentInverseSignBits | (xFract << 16);
 			target[toIndex + 1] = yFract | (zFract << 16);
 
 			final int ao = aoDisabled ? 0xFF000000 : (aoData[i] << 24);
@@ -184,4 +192,52 @@ public class TerrainEncoder {
 
 		buff.commit(quad.effectiveCullFaceId(), mat.castShadows());
 	}
+
+	/**
+	 * Rewrites only the AO and lightmap components of a quad previously encoded by
+	 * {@link #encodeQuad(TerrainQuadEncoder, VertexCollector)}, using lighting just
+	 * computed for the same quad. Must stay consistent with that method.
+	 */
+	public static void relightQuad(BaseQuadEmitter quad, int[] target, int targetIndex) {
+		final boolean aoDisabled = !Minecraft.useAmbientOcclusion();
+		final int[] aoData = quad.ao;
+		final boolean unlit = ((CanvasRenderMaterial) quad.material()).unlit();
+		final int baseSourceIndex = quad.vertexStart();
+		final int[] source = quad.data();
+
+		for (int i = 0; i < 4; i++) {
+			final int fromIndex = baseSourceIndex + i * MESH_VERTEX_STRIDE;
+			final int toIndex = targetIndex + i * TERRAIN_VERTEX_STRIDE;
+
+			final int ao = aoDisabled ? 0xFF000000 : (aoData[i] << 24);
+			target[toIndex + 2] = (target[toIndex + 2] & 0x00FFFFFF) | ao;
+
+			final int packedLight = unlit ? MeshEncodingHelper.FULL_BRIGHTNESS : source[fromIndex + VERTEX_LIGHTMAP];
+			final int blockLight = packedLight & 0xFF;
+			final int skyLight = (packedLight >> 16) & 0xFF;
+			target[toIndex + 5] = (target[toIndex + 5] & 0xFFFF0000) | blockLight | (skyLight << 8);
+		}
+	}
+
+	/**
+	 * Moves vertices previously encoded by {@link #encodeQuad(TerrainQuadEncoder, VertexCollector)}
+	 * to a different sector and sector-relative region origin. Must stay consistent with that method.
+	 *
+	 * @param data Encoded vertex data, modified in place
+	 * @param intCount Number of ints of vertex data to update
+	 */
+	public static void relocate(int[] data, int intCount, int fromOrigin, int toSectorId, int toOrigin) {
+		final int dx = (toOrigin & 0xFF) - (fromOrigin & 0xFF);
+		final int dy = ((toOrigin >> 8) & 0xFF) - ((fromOrigin >> 8) & 0xFF);
+		final int dz = ((toOrigin >> 16) & 0xFF) - ((fromOrigin >> 16) & 0xFF);
+
+		for (int i = 0; i < intCount; i += TERRAIN_VERTEX_STRIDE) {
+			data[i] = (data[i] & ~SECTOR_ID_MASK) | toSectorId;
+			final int pos = data[i + 2];
+			final int x = (pos + dx) & 0xFF;
+			final int y = ((pos >> 8) + dy) & 0xFF;
+			final int z = ((pos >> 16) + dz) & 0xFF;
+			data[i + 2] = (pos & 0xFF000000) | x | (y << 8) | (z << 16);
+		}
+	}
 }
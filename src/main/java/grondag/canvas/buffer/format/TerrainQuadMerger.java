@@ -0,0 +1,506 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.buffer.format;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Greedy merge of terrain quads encoded by {@link TerrainEncoder}.
+ *
+ * <p>A quad can merge if it was marked as a candidate when encoded, covers exactly one
+ * full block face with the whole sprite, and its four vertices share color, lighting,
+ * AO, normal and material. Adjacent candidates in the same plane that match in every
+ * attribute, including vertex winding and sprite orientation, are combined into
+ * rectangles of up to {@link #MAX_REPEAT} faces on each side. The plane itself can be
+ * between block boundaries, as for the surface of still fluids. Merged quads are flagged
+ * to repeat their sprite in the shader. Their texture coordinates count sprite repeats
+ * and are scaled down by {@link #MAX_REPEAT} to fit the vertex format.
+ *
+ * <p>Not thread-safe. Each collector list owns an instance.
+ */
+public class TerrainQuadMerger {
+	/** Set in the first int of each vertex of a quad that may be merged. Cleared by {@link #merge(int[], int)}. */
+	public static final int CANDIDATE_FLAG = 0x400;
+	/** Set in the first int of each vertex of a merged quad. Must match the terrain vertex shaders. */
+	public static final int REPEAT_UV_FLAG = 0x200;
+	/** Most faces merged along each axis. Must match the UV scale in the terrain vertex shaders. */
+	public static final int MAX_REPEAT = 16;
+
+	// Must match TerrainEncoder.TERRAIN_MATERIAL
+	static final int VERTEX_STRIDE = 7;
+	static final int QUAD_STRIDE = VERTEX_STRIDE * 4;
+
+	private static final int UV_MAX = 0xFFFF;
+	/** Allows for rounding of normalized sprite coordinates. */
+	private static final int UV_TOLERANCE = 8;
+	private static final int GRID_SIZE = 32;
+
+	/** Attributes a quad must share with others in its group. Mutable so that instances can be reused. */
+	private static final class Key {
+		private long a;
+		private long b;
+		private long c;
+
+		private Key set(long a, long b, long c) {
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			return this;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key k && k.a == a && k.b == b && k.c == c;
+		}
+
+		@Override
+		public int hashCode() {
+			return HashCommon.long2int(HashCommon.mix(a) ^ HashCommon.mix(b + 1) ^ HashCommon.mix(c + 2));
+		}
+	}
+
+	private final Object2ObjectOpenHashMap<Key, IntArrayList> groups = new Object2ObjectOpenHashMap<>();
+	private final ObjectArrayList<IntArrayList> listPool = new ObjectArrayList<>();
+	private final ObjectArrayList<Key> keyPool = new ObjectArrayList<>();
+	/** Probes {@link #groups} without allocation. Only pooled keys are stored in the map. */
+	private final Key searchKey = new Key();
+	private final int[] grid = new int[GRID_SIZE * GRID_SIZE];
+	private final boolean[] visited = new boolean[GRID_SIZE * GRID_SIZE];
+	private final int[] xyz = new int[12];
+	private final int[] uv = new int[8];
+	private final int[] pos = new int[3];
+
+	// Per-quad results, indexed by quad
+	private int[] cellS = new int[1024];
+	private int[] cellT = new int[1024];
+	/** Faces spanned along s and t by the rectangle led by a quad, zero if merged into another, -1 if not a candidate. */
+	private int[] spanS = new int[1024];
+	private int[] spanT = new int[1024];
+	private int[] output = new int[QUAD_STRIDE * 1024];
+
+	// Classification of the most recent quad
+	private int axis;
+	private int plane;
+	private int minS;
+	private int minT;
+	private int pattern;
+	/** True if sprite u follows the s axis of the plane and v follows t, false if swapped. */
+	private boolean uAlongS;
+
+	/**
+	 * Merges candidate quads in the given vertex data, in place.
+	 * Quads that don't merge keep their order and content, except that candidate flags are cleared.
+	 *
+	 * @return The new integer size of the data
+	 */
+	public int merge(int[] data, int integerSize) {
+		final int quadCount = integerSize / QUAD_STRIDE;
+		ensureCapacity(quadCount);
+		boolean hasGroup = false;
+
+		for (int q = 0; q < quadCount; ++q) {
+			spanS[q] = -1;
+
+			if (classify(data, q * QUAD_STRIDE)) {
+				cellS[q] = minS;
+				cellT[q] = minT;
+
+				final Key key = searchKey.set(axis | ((long) plane << 2) | ((long) pattern << 27) | ((long) (data[q * QUAD_STRIDE + 2] >>> 24) << 43),
+						(data[q * QUAD_STRIDE + 3] & 0xFFFFFFFFL) | ((long) data[q * QUAD_STRIDE + 5] << 32),
+						(data[q * QUAD_STRIDE + 6] & 0xFFFFFFFFL) | ((long) (data[q * QUAD_STRIDE] & 0xFFFF) << 32));
+
+				IntArrayList group = groups.get(key);
+
+				if (group == null) {
+					group = listPool.isEmpty() ? new IntArrayList() : listPool.pop();
+					final Key newKey = keyPool.isEmpty() ? new Key() : keyPool.pop();
+					groups.put(newKey.set(key.a, key.b, key.c), group);
+				} else {
+					hasGroup = true;
+				}
+
+				group.add(q);
+			}
+		}
+
+		int result = integerSize;
+
+		if (hasGroup) {
+			for (final IntArrayList group : groups.values()) {
+				if (group.size() > 1) {
+					mergeGroup(group);
+				}
+			}
+
+			result = 0;
+
+			for (int q = 0; q < quadCount; ++q) {
+				final int w = spanS[q];
+
+				if (w == 0) {
+					continue;
+				}
+
+				if (w > 1 || (w == 1 && spanT[q] > 1)) {
+					emitMerged(data, q * QUAD_STRIDE, result, q);
+				} else {
+					System.arraycopy(data, q * QUAD_STRIDE, output, result, QUAD_STRIDE);
+				}
+
+				result += QUAD_STRIDE;
+			}
+
+			System.arraycopy(output, 0, data, 0, result);
+		}
+
+		for (int i = 0; i < result; i += VERTEX_STRIDE) {
+			data[i] &= ~CANDIDATE_FLAG;
+		}
+
+		for (final IntArrayList group : groups.values()) {
+			group.clear();
+			listPool.add(group);
+		}
+
+		keyPool.addAll(groups.keySet());
+		groups.clear();
+		return result;
+	}
+
+	/**
+	 * Like {@link #merge(int[], int)}, but merges nothing unless every quad is a candidate
+	 * and all lie in the same plane. For sorted quads, such as water surfaces: quads in one
+	 * plane either don't overlap or face opposite ways, so merging them can't change how
+	 * they blend with each other, and there are no other quads to blend with.
+	 *
+	 * @return The new integer size of the data
+	 */
+	public int mergeCoplanar(int[] data, int integerSize) {
+		final int quadCount = integerSize / QUAD_STRIDE;
+		boolean canMerge = quadCount > 1;
+		int firstAxis = 0;
+		int firstPlane = 0;
+
+		for (int q = 0; canMerge && q < quadCount; ++q) {
+			if (!classify(data, q * QUAD_STRIDE)) {
+				canMerge = false;
+			} else if (q == 0) {
+				firstAxis = axis;
+				firstPlane = plane;
+			} else {
+				canMerge = axis == firstAxis && plane == firstPlane;
+			}
+		}
+
+		if (canMerge) {
+			return merge(data, integerSize);
+		}
+
+		for (int i = 0; i < integerSize; i += VERTEX_STRIDE) {
+			data[i] &= ~CANDIDATE_FLAG;
+		}
+
+		return integerSize;
+	}
+
+	private void ensureCapacity(int quadCount) {
+		if (quadCount > cellS.length) {
+			final int size = Math.max(quadCount, cellS.length * 2);
+			cellS = new int[size];
+			cellT = new int[size];
+			spanS = new int[size];
+			spanT = new int[size];
+			output = new int[size * QUAD_STRIDE];
+		}
+	}
+
+	/**
+	 * Returns an encoded vertex component as a block coordinate in the high bits and
+	 * a 16-bit fraction in the low bits. A fraction at the far edge of the block is
+	 * returned as the start of the next block.
+	 */
+	private static int coordinate(int blockPos, int fraction) {
+		return fraction == 0xFFFF ? (blockPos + 1) << 16 : (blockPos << 16) | fraction;
+	}
+
+	private static int uvBit(int uv) {
+		return uv <= UV_TOLERANCE ? 0 : uv >= UV_MAX - UV_TOLERANCE ? 1 : -1;
+	}
+
+	/**
+	 * Tests if the quad at the given index is a candidate that covers a single full face.
+	 * If so, sets {@link #axis}, {@link #plane}, {@link #minS}, {@link #minT} and {@link #pattern}.
+	 * The plane need not lie on a block boundary, so still fluid surfaces can merge.
+	 */
+	private boolean classify(int[] data, int base) {
+		final int w0 = data[base] & 0xFFFF;
+
+		if ((w0 & CANDIDATE_FLAG) == 0) {
+			return false;
+		}
+
+		final int ao = data[base + 2] >>> 24;
+		final int color = data[base + 3];
+		final int lightMaterial = data[base + 5];
+		final int normalTangent = data[base + 6];
+
+		int x0 = 0, y0 = 0, z0 = 0;
+		boolean sameX = true, sameY = true, sameZ = true;
+		final int[] xyz = this.xyz;
+		final int[] uv = this.uv;
+
+		for (int v = 0; v < 4; ++v) {
+			final int i = base + v * VERTEX_STRIDE;
+
+			if ((data[i] & 0xFFFF) != w0 || data[i + 2] >>> 24 != ao || data[i + 3] != color || data[i + 5] != lightMaterial || data[i + 6] != normalTangent) {
+				return false;
+			}
+
+			final int blockPos = data[i + 2];
+			final int x = coordinate(blockPos & 0xFF, data[i] >>> 16);
+			final int y = coordinate((blockPos >> 8) & 0xFF, data[i + 1] & 0xFFFF);
+			final int z = coordinate((blockPos >> 16) & 0xFF, data[i + 1] >>> 16);
+			final int u = uvBit(data[i + 4] & 0xFFFF);
+			final int w = uvBit(data[i + 4] >>> 16);
+
+			if ((u | w) < 0) {
+				return false;
+			}
+
+			if (v == 0) {
+				x0 = x;
+				y0 = y;
+				z0 = z;
+			} else {
+				sameX &= x == x0;
+				sameY &= y == y0;
+				sameZ &= z == z0;
+			}
+
+			xyz[v * 3] = x;
+			xyz[v * 3 + 1] = y;
+			xyz[v * 3 + 2] = z;
+			uv[v * 2] = u;
+			uv[v * 2 + 1] = w;
+		}
+
+		final int sOffset, tOffset;
+
+		if (sameX && !sameY && !sameZ) {
+			axis = 0;
+			plane = x0;
+			sOffset = 1;
+			tOffset = 2;
+		} else if (sameY && !sameX && !sameZ) {
+			axis = 1;
+			plane = y0;
+			sOffset = 0;
+			tOffset = 2;
+		} else if (sameZ && !sameX && !sameY) {
+			axis = 2;
+			plane = z0;
+			sOffset = 0;
+			tOffset = 1;
+		} else {
+			return false;
+		}
+
+		// Edges within the plane must lie on block boundaries
+		for (int v = 0; v < 4; ++v) {
+			final int s = xyz[v * 3 + sOffset];
+			final int t = xyz[v * 3 + tOffset];
+
+			if (((s | t) & 0xFFFF) != 0) {
+				return false;
+			}
+
+			xyz[v * 3 + sOffset] = s >> 16;
+			xyz[v * 3 + tOffset] = t >> 16;
+		}
+
+		int sMin = Integer.MAX_VALUE, sMax = Integer.MIN_VALUE, tMin = Integer.MAX_VALUE, tMax = Integer.MIN_VALUE;
+
+		for (int v = 0; v < 4; ++v) {
+			final int s = xyz[v * 3 + sOffset];
+			final int t = xyz[v * 3 + tOffset];
+			sMin = Math.min(sMin, s);
+			sMax = Math.max(sMax, s);
+			tMin = Math.min(tMin, t);
+			tMax = Math.max(tMax, t);
+		}
+
+		if (sMax - sMin != 1 || tMax - tMin != 1) {
+			return false;
+		}
+
+		int corners = 0;
+		int result = 0;
+		// Each sprite coordinate must follow one in-plane axis, forward or reversed, and not both the same axis
+		int uMatchS = 0, uMatchT = 0, vMatchS = 0, vMatchT = 0;
+
+		for (int v = 0; v < 4; ++v) {
+			final int cs = xyz[v * 3 + sOffset] - sMin;
+			final int ct = xyz[v * 3 + tOffset] - tMin;
+			final int u = uv[v * 2];
+			final int w = uv[v * 2 + 1];
+			corners |= 1 << (cs | (ct << 1));
+			result |= (cs | (ct << 1) | (u << 2) | (w << 3)) << (v * 4);
+			uMatchS += u == cs ? 1 : -1;
+			uMatchT += u == ct ? 1 : -1;
+			vMatchS += w == cs ? 1 : -1;
+			vMatchT += w == ct ? 1 : -1;
+		}
+
+		final boolean alongS = Math.abs(uMatchS) == 4 && Math.abs(vMatchT) == 4;
+		final boolean alongT = Math.abs(uMatchT) == 4 && Math.abs(vMatchS) == 4;
+
+		if (corners != 0xF || !(alongS || alongT)) {
+			return false;
+		}
+
+		uAlongS = alongS;
+		minS = sMin;
+		minT = tMin;
+		pattern = result;
+		return true;
+	}
+
+	/** Sets spans for quads in a group of matching candidates. Quads not in the grid keep a span of -1. */
+	private void mergeGroup(IntArrayList group) {
+		final int size = group.size();
+		int sMin = Integer.MAX_VALUE, tMin = Integer.MAX_VALUE, sMax = Integer.MIN_VALUE, tMax = Integer.MIN_VALUE;
+
+		for (int i = 0; i < size; ++i) {
+			final int q = group.getInt(i);
+			sMin = Math.min(sMin, cellS[q]);
+			sMax = Math.max(sMax, cellS[q]);
+			tMin = Math.min(tMin, cellT[q]);
+			tMax = Math.max(tMax, cellT[q]);
+		}
+
+		final int width = sMax - sMin + 1;
+		final int height = tMax - tMin + 1;
+
+		if (width > GRID_SIZE || height > GRID_SIZE) {
+			return;
+		}
+
+		final int[] grid = this.grid;
+		final boolean[] visited = this.visited;
+		Arrays.fill(grid, 0);
+		Arrays.fill(visited, false);
+
+		for (int i = 0; i < size; ++i) {
+			final int q = group.getInt(i);
+			final int cell = (cellT[q] - tMin) * GRID_SIZE + cellS[q] - sMin;
+
+			// Duplicates of an occupied cell are left as they are
+			if (grid[cell] == 0) {
+				grid[cell] = q + 1;
+			}
+		}
+
+		for (int t = 0; t < height; ++t) {
+			for (int s = 0; s < width; ++s) {
+				final int cell = t * GRID_SIZE + s;
+
+				if (grid[cell] == 0 || visited[cell]) {
+					continue;
+				}
+
+				int w = 1;
+
+				while (w < MAX_REPEAT && s + w < width && grid[cell + w] != 0 && !visited[cell + w]) {
+					++w;
+				}
+
+				int h = 1;
+
+				rows:
+				while (h < MAX_REPEAT && t + h < height) {
+					final int rowStart = cell + h * GRID_SIZE;
+
+					for (int i = 0; i < w; ++i) {
+						if (grid[rowStart + i] == 0 || visited[rowStart + i]) {
+							break rows;
+						}
+					}
+
+					++h;
+				}
+
+				for (int j = 0; j < h; ++j) {
+					for (int i = 0; i < w; ++i) {
+						final int c = cell + j * GRID_SIZE + i;
+						visited[c] = true;
+						spanS[grid[c] - 1] = 0;
+					}
+				}
+
+				final int leader = grid[cell] - 1;
+				spanS[leader] = w;
+				spanT[leader] = h;
+			}
+		}
+	}
+
+	private void emitMerged(int[] data, int base, int target, int q) {
+		final int w = spanS[q];
+		final int h = spanT[q];
+		classify(data, base);
+
+		final int sAxis = axis == 0 ? 1 : 0;
+		final int tAxis = axis == 2 ? 1 : 2;
+		final int[] output = this.output;
+		final int[] pos = this.pos;
+		final int uExtent = uAlongS ? w : h;
+		final int vExtent = uAlongS ? h : w;
+
+		for (int i = 0; i < 4; ++i) {
+			final int from = base + i * VERTEX_STRIDE;
+			final int to = target + i * VERTEX_STRIDE;
+			final int corner = pattern >> (i * 4);
+			pos[axis] = plane;
+			pos[sAxis] = (minS + (corner & 1) * w) << 16;
+			pos[tAxis] = (minT + ((corner >> 1) & 1) * h) << 16;
+
+			final int u = ((corner >> 2) & 1) * uExtent;
+			final int v = ((corner >> 3) & 1) * vExtent;
+
+			output[to] = (data[from] & 0xFFFF & ~CANDIDATE_FLAG) | REPEAT_UV_FLAG | ((pos[0] & 0xFFFF) << 16);
+			output[to + 1] = (pos[1] & 0xFFFF) | ((pos[2] & 0xFFFF) << 16);
+			output[to + 2] = (pos[0] >> 16) | ((pos[1] >> 16) << 8) | ((pos[2] >> 16) << 16) | (data[from + 2] & 0xFF000000);
+			output[to + 3] = data[from + 3];
+			output[to + 4] = encodeRepeatUv(u) | (encodeRepeatUv(v) << 16);
+			output[to + 5] = data[from + 5];
+			output[to + 6] = data[from + 6];
+		}
+	}
+
+	private static int encodeRepeatUv(int repeats) {
+		return Math.round(repeats * (float) UV_MAX / MAX_REPEAT);
+	}
+}
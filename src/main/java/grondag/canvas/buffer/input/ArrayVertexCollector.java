@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import net.minecraft.util.Mth;
 import net.minecraft.world.phys.Vec3;
 
+import grondag.canvas.buffer.format.TerrainQuadMerger;
 import grondag.canvas.buffer.render.TransferBuffer;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
@@ -91,7 +92,27 @@ public abstract class ArrayVertexCollector extends BaseVertexCollector {
 	}
 
 	@Override
-	public final int[] saveState(int[] priorState) {
+	public boolean isCoplanar() {
+		return false;
+	}
+
+	@Override
+	public void mergeQuads(TerrainQuadMerger merger) {
+		integerSize = merger.merge(vertexData, integerSize);
+	}
+
+	@Override
+	public int sortedIndexBytes() {
+		return 0;
+	}
+
+	@Override
+	public void sortedIndexesToBuffer(TransferBuffer targetBuffer) {
+		throw new UnsupportedOperationException("Unsorted vertex collector does not support sortedIndexesToBuffer.");
+	}
+
+	@Override
+	public int[] saveState(int[] priorState) {
 		final int integerSize = this.integerSize;
 
 		if (integerSize == 0) {
@@ -112,7 +133,7 @@ public abstract class ArrayVertexCollector extends BaseVertexCollector {
 	}
 
 	@Override
-	public final void loadState(int[] stateData) {
+	public void loadState(int[] stateData) {
 		clear();
 
 		if (stateData != null) {
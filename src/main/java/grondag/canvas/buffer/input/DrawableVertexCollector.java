@@ -27,6 +27,7 @@ import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.world.phys.Vec3;
 
+import grondag.canvas.buffer.format.TerrainQuadMerger;
 import grondag.canvas.buffer.render.TransferBuffer;
 import grondag.canvas.buffer.util.DrawableStream;
 import grondag.canvas.material.state.RenderState;
@@ -62,6 +63,31 @@ public interface DrawableVertexCollector extends VertexCollector {
 
 	void loadState(int[] state);
 
+	/**
+	 * True if all quads lie in the same axis-aligned plane and none of them overlap.
+	 * Sorting can't change how such quads appear, so resorts can be skipped. Only
+	 * meaningful for sorted terrain collectors and always false otherwise.
+	 */
+	boolean isCoplanar();
+
+	/**
+	 * Size of triangle index data for quads in sorted order, or zero if sorting
+	 * reorders vertex data instead. See {@link #sortedIndexesToBuffer(TransferBuffer)}.
+	 */
+	int sortedIndexBytes();
+
+	/**
+	 * Writes triangle indexes that draw quads in sorted order without moving vertex data.
+	 * Only valid when {@link #sortedIndexBytes()} is non-zero.
+	 */
+	void sortedIndexesToBuffer(TransferBuffer targetBuffer);
+
+	/**
+	 * Combines adjacent terrain quads marked as merge candidates. Sorted collectors
+	 * only merge quads that all lie in one plane. See {@link TerrainQuadMerger}.
+	 */
+	void mergeQuads(TerrainQuadMerger merger);
+
 	FaceBucket[] faceBuckets();
 
 	FaceBucket faceBucket(int index);
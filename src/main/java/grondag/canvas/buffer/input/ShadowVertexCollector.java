@@ -26,6 +26,7 @@ import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.world.phys.Vec3;
 
+import grondag.canvas.buffer.format.TerrainQuadMerger;
 import grondag.canvas.buffer.render.TransferBuffer;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
@@ -117,6 +118,28 @@ public class ShadowVertexCollector extends BaseVertexCollector {
 		throw new UnsupportedOperationException("ShadowVertexCollector vertex collector does not support loadState");
 	}
 
+	@Override
+	public boolean isCoplanar() {
+		throw new UnsupportedOperationException("ShadowVertexCollector vertex collector does not support isCoplanar");
+	}
+
+	@Override
+	public void mergeQuads(TerrainQuadMerger merger) {
+		common.mergeQuads(merger);
+		colorOnly.mergeQuads(merger);
+		integerSize = common.integerSize + colorOnly.integerSize;
+	}
+
+	@Override
+	public int sortedIndexBytes() {
+		return 0;
+	}
+
+	@Override
+	public void sortedIndexesToBuffer(TransferBuffer targetBuffer) {
+		throw new UnsupportedOperationException("ShadowVertexCollector vertex collector does not support sortedIndexesToBuffer.");
+	}
+
 	@Override
 	public FaceBucket[] faceBuckets() {
 		throw new UnsupportedOperationException("ShadowVertexCollector vertex collector does not support vertexBuckets");
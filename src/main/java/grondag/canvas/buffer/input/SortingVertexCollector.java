@@ -20,25 +20,60 @@
 
 package grondag.canvas.buffer.input;
 
-import it.unimi.dsi.fastutil.Swapper;
-import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import net.minecraft.util.Mth;
 import net.minecraft.world.phys.Vec3;
 
+import grondag.canvas.buffer.format.TerrainQuadMerger;
+import grondag.canvas.buffer.render.TransferBuffer;
+import grondag.canvas.config.Configurator;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
+import grondag.canvas.render.terrain.cluster.SortedIndexBuffer;
 
 public class SortingVertexCollector extends SimpleVertexCollector {
-	private float[] perQuadDistance = new float[512];
-	private final int[] swapData;
-	private boolean didSwap = false;
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX_SIZE = 1 << RADIX_BITS;
+	private static final int RADIX_MASK = RADIX_SIZE - 1;
+	private static final int RADIX_PASSES = 32 / RADIX_BITS;
+
+	/** Sort key in high 32 bits, original quad index in low 32 bits. */
+	private long[] sortKeys = new long[512];
+	private long[] sortScratch = new long[512];
+	private final int[] radixCounts = new int[RADIX_SIZE * RADIX_PASSES];
+	/**
+	 * Receives vertex data in sorted order before it is copied back to vertexData.
+	 * Shared by all collectors sorting on the same thread so sorting doesn't double
+	 * the memory held by each collector.
+	 */
+	private static final ThreadLocal<int[]> SORTED_DATA = ThreadLocal.withInitial(() -> new int[0]);
 	final QuadDistanceFunc distanceFunc;
+	private final boolean isTerrain;
+
+	/**
+	 * When true, sorting leaves vertex data in place and only updates {@link #quadOrder}.
+	 * Resorts can then upload triangle indexes instead of vertex data.
+	 */
+	private final boolean sortIndexesOnly;
+	/** Original quad index at each sorted position. Valid for the first quadOrderCount entries. */
+	private int[] quadOrder = new int[512];
+	private int quadOrderCount = 0;
+	/** Scratch for {@link #isCoplanar()}: min u, max u, min v, max v of each quad. */
+	private int[] quadBounds = new int[0];
 
 	public SortingVertexCollector(RenderState renderState, boolean isTerrain, int[] target) {
 		super(renderState, target);
-		swapData = new int[quadStrideInts * 2];
+		this.isTerrain = isTerrain;
 		distanceFunc = isTerrain ? this::getDistanceSqTerrain : this::getDistanceSq;
+		sortIndexesOnly = isTerrain && Configurator.indexedTranslucencyResort;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		quadOrderCount = 0;
 	}
 
 	@Override
@@ -52,55 +87,355 @@ public class SortingVertexCollector extends SimpleVertexCollector {
 
 	private boolean sortQuads(float x, float y, float z) {
 		final int quadCount = quadCount();
+
+		if (sortIndexesOnly) {
+			if (quadOrder.length < quadCount) {
+				quadOrder = new int[Mth.smallestEncompassingPowerOfTwo(quadCount)];
+			}
+
+			if (quadCount < 2) {
+				final boolean result = quadOrderCount != quadCount;
+				quadOrder[0] = 0;
+				quadOrderCount = quadCount;
+				return result;
+			}
+		} else if (quadCount < 2) {
+			return false;
+		}
+
 		final QuadDistanceFunc distanceFunc = this.distanceFunc;
 
-		if (perQuadDistance.length < quadCount) {
-			perQuadDistance = new float[Mth.smallestEncompassingPowerOfTwo(quadCount)];
+		if (sortKeys.length < quadCount) {
+			final int newSize = Mth.smallestEncompassingPowerOfTwo(quadCount);
+			sortKeys = new long[newSize];
+			sortScratch = new long[newSize];
 		}
 
+		long[] keys = sortKeys;
+
+		// Bits of non-negative floats sort the same as the floats. Inverting
+		// them gives farthest first in ascending order.
 		for (int j = 0; j < quadCount; ++j) {
-			perQuadDistance[j] = distanceFunc.compute(x, y, z, j);
+			keys[j] = ((long) ~Float.floatToRawIntBits(distanceFunc.compute(x, y, z, j)) << 32) | j;
+		}
+
+		// Must be stable - unstable sorts cause problems with coplanar quads
+		keys = radixSort(keys, sortScratch, quadCount);
+
+		if (sortIndexesOnly) {
+			return updateQuadOrder(keys, quadCount);
 		}
 
-		didSwap = false;
+		int firstMoved = 0;
 
-		// sort the indexes by distance - farthest first
-		// mergesort is important here - quicksort causes problems
-		// PERF: consider sorting primitive packed long array with distance in high bits
-		// and then use result to reorder the array. Will need to copy vertex data.
-		it.unimi.dsi.fastutil.Arrays.mergeSort(0, quadCount, comparator, swapper);
+		while (firstMoved < quadCount && (int) keys[firstMoved] == firstMoved) {
+			++firstMoved;
+		}
 
-		return didSwap;
+		if (firstMoved == quadCount) {
+			return false;
+		}
+
+		// Reorder vertex data with a single gather pass, then copy back
+		final int[] vertexData = this.vertexData;
+		final int stride = quadStrideInts;
+		int[] sortedData = SORTED_DATA.get();
+
+		if (sortedData.length < quadCount * stride) {
+			sortedData = new int[Mth.smallestEncompassingPowerOfTwo(quadCount * stride)];
+			SORTED_DATA.set(sortedData);
+		}
+
+		for (int j = firstMoved; j < quadCount; ++j) {
+			System.arraycopy(vertexData, (int) keys[j] * stride, sortedData, j * stride, stride);
+		}
+
+		System.arraycopy(sortedData, firstMoved * stride, vertexData, firstMoved * stride, (quadCount - firstMoved) * stride);
+
+		return true;
 	}
 
-	private interface QuadDistanceFunc {
-		float compute(float x, float y, float z, int quadIndex);
+	/**
+	 * Captures sorted quad order without moving vertex data.
+	 *
+	 * @return true if the order differs from the previous sort
+	 */
+	private boolean updateQuadOrder(long[] keys, int quadCount) {
+		final int[] quadOrder = this.quadOrder;
+		boolean result = quadOrderCount != quadCount;
+
+		for (int j = 0; j < quadCount; ++j) {
+			final int q = (int) keys[j];
+
+			if (quadOrder[j] != q) {
+				quadOrder[j] = q;
+				result = true;
+			}
+		}
+
+		quadOrderCount = quadCount;
+		return result;
+	}
+
+	@Override
+	public boolean isCoplanar() {
+		if (!isTerrain) {
+			return false;
+		}
+
+		final int vertexCount = vertexCount();
+
+		if (vertexCount == 0) {
+			return true;
+		}
+
+		final int[] vertexData = this.vertexData;
+		final int stride = vertexStrideInts;
+		final int x0 = terrainCoordinate(vertexData, 0, 0);
+		final int y0 = terrainCoordinate(vertexData, 0, 1);
+		final int z0 = terrainCoordinate(vertexData, 0, 2);
+		boolean sameX = true;
+		boolean sameY = true;
+		boolean sameZ = true;
+
+		for (int v = 1; v < vertexCount; ++v) {
+			final int i = v * stride;
+			sameX &= x0 == terrainCoordinate(vertexData, i, 0);
+			sameY &= y0 == terrainCoordinate(vertexData, i, 1);
+			sameZ &= z0 == terrainCoordinate(vertexData, i, 2);
+
+			if (!(sameX | sameY | sameZ)) {
+				return false;
+			}
+		}
+
+		// Overlapping quads in the plane still blend in sorted order
+		return !hasOverlappingQuads(sameX ? 1 : 0, sameZ ? 1 : 2);
+	}
+
+	/**
+	 * True if the interiors of any two quads overlap when projected onto the given axes.
+	 * Quads that only share edges don't overlap.
+	 */
+	private boolean hasOverlappingQuads(int uAxis, int vAxis) {
+		final int quadCount = quadCount();
+		final int[] vertexData = this.vertexData;
+
+		if (sortKeys.length < quadCount) {
+			final int newSize = Mth.smallestEncompassingPowerOfTwo(quadCount);
+			sortKeys = new long[newSize];
+			sortScratch = new long[newSize];
+		}
+
+		if (quadBounds.length < quadCount * 4) {
+			quadBounds = new int[Mth.smallestEncompassingPowerOfTwo(quadCount * 4)];
+		}
+
+		final long[] keys = sortKeys;
+		final int[] bounds = quadBounds;
+
+		for (int q = 0; q < quadCount; ++q) {
+			int minU = Integer.MAX_VALUE;
+			int maxU = Integer.MIN_VALUE;
+			int minV = Integer.MAX_VALUE;
+			int maxV = Integer.MIN_VALUE;
+
+			for (int v = 0; v < 4; ++v) {
+				final int i = q * quadStrideInts + v * vertexStrideInts;
+				final int u = terrainCoordinate(vertexData, i, uAxis);
+				final int w = terrainCoordinate(vertexData, i, vAxis);
+				minU = Math.min(minU, u);
+				maxU = Math.max(maxU, u);
+				minV = Math.min(minV, w);
+				maxV = Math.max(maxV, w);
+			}
+
+			final int b = q * 4;
+			bounds[b] = minU;
+			bounds[b + 1] = maxU;
+			bounds[b + 2] = minV;
+			bounds[b + 3] = maxV;
+			keys[q] = ((long) minU << 32) | q;
+		}
+
+		// Sweep along u so each quad is only compared with quads that start before it ends
+		Arrays.sort(keys, 0, quadCount);
+
+		for (int j = 0; j < quadCount; ++j) {
+			final int a = (int) keys[j] * 4;
+
+			for (int k = j + 1; k < quadCount; ++k) {
+				final int b = (int) keys[k] * 4;
+
+				if (bounds[b] >= bounds[a + 1]) {
+					break;
+				}
+
+				if (bounds[b + 2] < bounds[a + 3] && bounds[a + 2] < bounds[b + 3]) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Exact packed terrain coordinate of a vertex on the given axis: the region-relative
+	 * block in the low bytes of word 2 with a 16-bit fraction in word 0 or 1.
+	 */
+	private static int terrainCoordinate(int[] vertexData, int index, int axis) {
+		final int pos = vertexData[index + 2];
+
+		return switch (axis) {
+			case 0 -> ((pos & 0xFF) << 16) | (vertexData[index] >>> 16);
+			case 1 -> ((pos & 0xFF00) << 8) | (vertexData[index + 1] & 0xFFFF);
+			default -> (pos & 0xFF0000) | (vertexData[index + 1] >>> 16);
+		};
+	}
+
+	@Override
+	public void mergeQuads(TerrainQuadMerger merger) {
+		// Only safe when merging can't change the order quads blend in
+		if (isTerrain) {
+			integerSize = merger.mergeCoplanar(vertexData, integerSize);
+		}
+	}
+
+	@Override
+	public int sortedIndexBytes() {
+		return quadOrderCount == 0 ? 0 : SortedIndexBuffer.byteCount(quadOrderCount);
+	}
+
+	@Override
+	public void sortedIndexesToBuffer(TransferBuffer targetBuffer) {
+		assert quadOrderCount > 0;
+		assert targetBuffer.sizeBytes() == sortedIndexBytes();
+
+		final ByteBuffer bytes = targetBuffer.byteBuffer();
+		final int[] quadOrder = this.quadOrder;
+		final int limit = quadOrderCount;
+		int index = 0;
+
+		if (SortedIndexBuffer.bytesPerIndex(limit * 4) == 2) {
+			for (int j = 0; j < limit; ++j) {
+				final int v = quadOrder[j] << 2;
+				bytes.putShort(index, (short) v);
+				bytes.putShort(index + 2, (short) (v + 1));
+				bytes.putShort(index + 4, (short) (v + 2));
+				bytes.putShort(index + 6, (short) (v + 2));
+				bytes.putShort(index + 8, (short) (v + 3));
+				bytes.putShort(index + 10, (short) v);
+				index += 12;
+			}
+		} else {
+			for (int j = 0; j < limit; ++j) {
+				final int v = quadOrder[j] << 2;
+				bytes.putInt(index, v);
+				bytes.putInt(index + 4, v + 1);
+				bytes.putInt(index + 8, v + 2);
+				bytes.putInt(index + 12, v + 2);
+				bytes.putInt(index + 16, v + 3);
+				bytes.putInt(index + 20, v);
+				index += 24;
+			}
+		}
+	}
+
+	/** In index mode, sorted quad order is appended after vertex data. */
+	@Override
+	public int[] saveState(int[] priorState) {
+		if (!sortIndexesOnly || quadOrderCount == 0) {
+			return super.saveState(priorState);
+		}
+
+		final int integerSize = this.integerSize;
+		final int quadCount = quadOrderCount;
+		final int stateSize = integerSize + quadCount;
+		int[] result = priorState;
+
+		if (result == null || result.length != stateSize) {
+			result = new int[stateSize];
+		}
+
+		System.arraycopy(vertexData, 0, result, 0, integerSize);
+		System.arraycopy(quadOrder, 0, result, integerSize, quadCount);
+		return result;
 	}
 
-	private final IntComparator comparator = new IntComparator() {
-		@Override
-		public int compare(int a, int b) {
-			return Float.compare(perQuadDistance[b], perQuadDistance[a]);
+	@Override
+	public void loadState(int[] stateData) {
+		if (!sortIndexesOnly || stateData == null) {
+			super.loadState(stateData);
+			return;
 		}
-	};
 
-	private final Swapper swapper = new Swapper() {
-		@Override
-		public void swap(int a, int b) {
-			didSwap = true;
-			final float distSwap = perQuadDistance[a];
-			perQuadDistance[a] = perQuadDistance[b];
-			perQuadDistance[b] = distSwap;
+		clear();
+		final int quadCount = stateData.length / (quadStrideInts + 1);
+		final int size = quadCount * quadStrideInts;
+		grow(size);
+		System.arraycopy(stateData, 0, vertexData, 0, size);
+		integerSize = size;
+
+		if (quadOrder.length < quadCount) {
+			quadOrder = new int[Mth.smallestEncompassingPowerOfTwo(quadCount)];
+		}
 
-			final int aIndex = a * quadStrideInts;
-			final int bIndex = b * quadStrideInts;
+		System.arraycopy(stateData, size, quadOrder, 0, quadCount);
+		quadOrderCount = quadCount;
+	}
 
-			System.arraycopy(vertexData, aIndex, swapData, 0, quadStrideInts);
-			System.arraycopy(vertexData, bIndex, swapData, quadStrideInts, quadStrideInts);
-			System.arraycopy(swapData, 0, vertexData, bIndex, quadStrideInts);
-			System.arraycopy(swapData, quadStrideInts, vertexData, aIndex, quadStrideInts);
+	/**
+	 * Stable LSD radix sort on the high 32 bits of each key, treated as unsigned.
+	 * Digits that are the same for every key are skipped.
+	 *
+	 * @return the array that holds the sorted keys, either keys or scratch
+	 */
+	private long[] radixSort(long[] keys, long[] scratch, int count) {
+		final int[] counts = radixCounts;
+		Arrays.fill(counts, 0);
+
+		for (int j = 0; j < count; ++j) {
+			final int k = (int) (keys[j] >>> 32);
+
+			for (int pass = 0; pass < RADIX_PASSES; ++pass) {
+				++counts[(pass << RADIX_BITS) | ((k >>> (pass * RADIX_BITS)) & RADIX_MASK)];
+			}
 		}
-	};
+
+		for (int pass = 0; pass < RADIX_PASSES; ++pass) {
+			final int base = pass << RADIX_BITS;
+			final int shift = 32 + pass * RADIX_BITS;
+
+			if (counts[base + (int) ((keys[0] >>> shift) & RADIX_MASK)] == count) {
+				continue;
+			}
+
+			// convert counts to starting offsets
+			int offset = 0;
+
+			for (int d = 0; d < RADIX_SIZE; ++d) {
+				final int c = counts[base + d];
+				counts[base + d] = offset;
+				offset += c;
+			}
+
+			for (int j = 0; j < count; ++j) {
+				final long key = keys[j];
+				scratch[counts[base + (int) ((key >>> shift) & RADIX_MASK)]++] = key;
+			}
+
+			final long[] swap = keys;
+			keys = scratch;
+			scratch = swap;
+		}
+
+		return keys;
+	}
+
+	private interface QuadDistanceFunc {
+		float compute(float x, float y, float z, int quadIndex);
+	}
 
 	private float getDistanceSq(float x, float y, float z, int quadIndex) {
 		final int integerStride = quadStrideInts / 4;
@@ -28,6 +28,7 @@ import net.minecraft.world.phys.Vec3;
 
 import io.vram.frex.api.model.util.FaceUtil;
 
+import grondag.canvas.buffer.format.TerrainQuadMerger;
 import grondag.canvas.buffer.render.TransferBuffer;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
@@ -129,6 +130,33 @@ public class TerrainVertexCollector extends BaseVertexCollector {
 		throw new UnsupportedOperationException("Compound vertex collector does not support loadState");
 	}
 
+	@Override
+	public boolean isCoplanar() {
+		throw new UnsupportedOperationException("Compound vertex collector does not support isCoplanar");
+	}
+
+	@Override
+	public void mergeQuads(TerrainQuadMerger merger) {
+		int size = 0;
+
+		for (int i = 0; i < FaceUtil.FACE_INDEX_COUNT; ++i) {
+			collectors[i].mergeQuads(merger);
+			size += collectors[i].integerSize();
+		}
+
+		integerSize = size;
+	}
+
+	@Override
+	public int sortedIndexBytes() {
+		return 0;
+	}
+
+	@Override
+	public void sortedIndexesToBuffer(TransferBuffer targetBuffer) {
+		throw new UnsupportedOperationException("Compound vertex collector does not support sortedIndexesToBuffer.");
+	}
+
 	@Override
 	public FaceBucket faceBucket(int index) {
 		throw new UnsupportedOperationException("Compound vertex collector does not support faceBucket");
@@ -34,12 +34,14 @@ import io.vram.frex.base.renderer.mesh.RootQuadEmitter;
 import grondag.canvas.buffer.format.CanvasVertexFormats;
 import grondag.canvas.buffer.format.StandardEncoder;
 import grondag.canvas.buffer.format.TerrainEncoder;
+import grondag.canvas.buffer.format.TerrainQuadMerger;
 import grondag.canvas.config.Configurator;
 import grondag.canvas.material.state.CanvasRenderMaterial;
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.pipeline.Pipeline;
 import grondag.canvas.render.terrain.base.UploadableRegion;
 import grondag.canvas.render.terrain.cluster.ClusteredDrawableRegion;
+import grondag.canvas.render.terrain.cluster.VertexClusterRealm;
 import grondag.canvas.render.world.WorldRenderState;
 import grondag.canvas.terrain.region.RegionPosition;
 
@@ -56,6 +58,7 @@ public class VertexCollectorList {
 	/** If true, will segregate quads by shadow casting ability. */
 	private final int[] target;
 	protected final boolean isTerrain;
+	private TerrainQuadMerger quadMerger;
 
 	public VertexCollectorList(boolean trackFaces, boolean isTerrain) {
 		this.trackFaces = trackFaces;
@@ -152,6 +155,31 @@ public class VertexCollectorList {
 		return active.get(index);
 	}
 
+	/**
+	 * Merges eligible quads in all terrain collectors. Sorted collectors only merge
+	 * when all of their quads are eligible and lie in one plane.
+	 * Should be called after all quads are collected and before upload.
+	 */
+	public void mergeTerrainQuads() {
+		assert isTerrain;
+		TerrainQuadMerger merger = quadMerger;
+
+		if (merger == null) {
+			merger = new TerrainQuadMerger();
+			quadMerger = merger;
+		}
+
+		final int limit = active.size();
+
+		for (int i = 0; i < limit; i++) {
+			final DrawableVertexCollector collector = active.get(i);
+
+			if (!collector.isEmpty()) {
+				collector.mergeQuads(merger);
+			}
+		}
+	}
+
 	public int totalBytes(boolean sorted) {
 		final int limit = active.size();
 		final ObjectArrayList<DrawableVertexCollector> active = this.active;
@@ -168,9 +196,19 @@ public class VertexCollectorList {
 		return intSize * 4;
 	}
 
-	public UploadableRegion toUploadableChunk(boolean sorted, RegionPosition origin, WorldRenderState worldRenderState) {
+	/**
+	 * @param isLod True for distant-terrain meshes. Solid quads go to a separate realm. Sorted quads share
+	 * the translucent realm because draw order must be maintained across all regions.
+	 */
+	public UploadableRegion toUploadableChunk(boolean sorted, boolean isLod, RegionPosition origin, WorldRenderState worldRenderState) {
 		final int bytes = totalBytes(sorted);
-		return bytes == 0 ? UploadableRegion.EMPTY_UPLOADABLE : ClusteredDrawableRegion.uploadable(this, sorted ? worldRenderState.translucentClusterRealm : worldRenderState.solidClusterRealm, bytes, origin);
+
+		if (bytes == 0) {
+			return UploadableRegion.EMPTY_UPLOADABLE;
+		}
+
+		final VertexClusterRealm realm = sorted ? worldRenderState.translucentClusterRealm : isLod ? worldRenderState.lodClusterRealm : worldRenderState.solidClusterRealm;
+		return ClusteredDrawableRegion.uploadable(this, realm, bytes, origin);
 	}
 
 	/**
@@ -149,6 +149,99 @@ public class CanvasConfigScreen extends SpruceScreen {
 				DEFAULTS.fixLuminousBlockShading,
 				ConfigManager.parseTooltip("config.canvas.help.fix_luminous_block_shade")).spruceOption());
 
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.incremental_region_rebuild",
+				() -> editing.incrementalRegionRebuild,
+				b -> editing.incrementalRegionRebuild = b,
+				DEFAULTS.incrementalRegionRebuild,
+				ConfigManager.parseTooltip("config.canvas.help.incremental_region_rebuild")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.indexed_translucency_resort",
+				() -> editing.indexedTranslucencyResort,
+				b -> {
+					requiresRestart |= Configurator.indexedTranslucencyResort != b;
+					editing.indexedTranslucencyResort = b;
+				},
+				DEFAULTS.indexedTranslucencyResort,
+				ConfigManager.parseTooltip("config.canvas.help.indexed_translucency_resort")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.terrain_mesh_disk_cache",
+				() -> editing.terrainMeshDiskCache,
+				b -> editing.terrainMeshDiskCache = b,
+				DEFAULTS.terrainMeshDiskCache,
+				ConfigManager.parseTooltip("config.canvas.help.terrain_mesh_disk_cache")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.intOption("config.canvas.value.terrain_mesh_disk_cache_mb",
+				128,
+				8192,
+				128,
+				() -> editing.terrainMeshDiskCacheMb,
+				i -> editing.terrainMeshDiskCacheMb = i,
+				DEFAULTS.terrainMeshDiskCacheMb,
+				ConfigManager.parseTooltip("config.canvas.help.terrain_mesh_disk_cache_mb")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.parallel_main_thread_builds",
+				() -> editing.parallelMainThreadBuilds,
+				b -> editing.parallelMainThreadBuilds = b,
+				DEFAULTS.parallelMainThreadBuilds,
+				ConfigManager.parseTooltip("config.canvas.help.parallel_main_thread_builds")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.adaptive_rebuild_budget",
+				() -> editing.adaptiveRebuildBudget,
+				b -> editing.adaptiveRebuildBudget = b,
+				DEFAULTS.adaptiveRebuildBudget,
+				ConfigManager.parseTooltip("config.canvas.help.adaptive_rebuild_budget")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.intOption("config.canvas.value.adaptive_rebuild_target_fps",
+				30,
+				240,
+				10,
+				() -> editing.adaptiveRebuildTargetFps,
+				i -> editing.adaptiveRebuildTargetFps = i,
+				DEFAULTS.adaptiveRebuildTargetFps,
+				ConfigManager.parseTooltip("config.canvas.help.adaptive_rebuild_target_fps")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.cache_static_block_quads",
+				() -> editing.cacheStaticBlockQuads,
+				b -> editing.cacheStaticBlockQuads = b,
+				DEFAULTS.cacheStaticBlockQuads,
+				ConfigManager.parseTooltip("config.canvas.help.cache_static_block_quads")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.greedy_terrain_meshing",
+				() -> editing.greedyTerrainMeshing,
+				b -> {
+					reload |= Configurator.greedyTerrainMeshing != b;
+					editing.greedyTerrainMeshing = b;
+				},
+				DEFAULTS.greedyTerrainMeshing,
+				ConfigManager.parseTooltip("config.canvas.help.greedy_terrain_meshing")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.intOption("config.canvas.value.lod_chunk_distance",
+				0,
+				32,
+				1,
+				() -> editing.lodChunkDistance,
+				i -> editing.lodChunkDistance = i,
+				DEFAULTS.lodChunkDistance,
+				ConfigManager.parseTooltip("config.canvas.help.lod_chunk_distance")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.vertex_biome_blending",
+				() -> editing.vertexBiomeBlending,
+				b -> {
+					reload |= Configurator.vertexBiomeBlending != b;
+					editing.vertexBiomeBlending = b;
+				},
+				DEFAULTS.vertexBiomeBlending,
+				ConfigManager.parseTooltip("config.canvas.help.vertex_biome_blending")).spruceOption());
+
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.run_length_occlusion_boxes",
+				() -> editing.runLengthOcclusionBoxes,
+				b -> {
+					reload |= Configurator.runLengthOcclusionBoxes != b;
+					editing.runLengthOcclusionBoxes = b;
+				},
+				DEFAULTS.runLengthOcclusionBoxes,
+				ConfigManager.parseTooltip("config.canvas.help.run_length_occlusion_boxes")).spruceOption());
+
 		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.advanced_terrain_culling",
 				() -> editing.advancedTerrainCulling,
 				b -> {
@@ -242,6 +335,15 @@ public class CanvasConfigScreen extends SpruceScreen {
 				DEFAULTS.useCombinedThreadPool,
 				ConfigManager.parseTooltip("config.canvas.help.use_combined_thread_pool")).spruceOption());
 
+		list.addSingleOptionEntry(optionSession.booleanOption("config.canvas.value.use_work_stealing_executor",
+				() -> editing.useWorkStealingExecutor,
+				b -> {
+					requiresRestart |= Configurator.useWorkStealingExecutor != b;
+					editing.useWorkStealingExecutor = b;
+				},
+				DEFAULTS.useWorkStealingExecutor,
+				ConfigManager.parseTooltip("config.canvas.help.use_work_stealing_executor")).spruceOption());
+
 		list.addSingleOptionEntry(optionSession.enumOption("config.canvas.value.transfer_buffer_mode",
 				() -> editing.transferBufferMode,
 				e -> {
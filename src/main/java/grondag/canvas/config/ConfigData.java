@@ -59,6 +59,30 @@ class ConfigData {
 	boolean clampExteriorVertices = true;
 	@Comment("Prevent Glowstone and other blocks that emit light from casting shade on nearby blocks.")
 	boolean fixLuminousBlockShading = true;
+	@Comment("When blocks change, rebuilds only the affected parts of a region and reuses the rest. Uses more memory for regions that change often.")
+	boolean incrementalRegionRebuild = false;
+	@Comment("Translucent terrain resorts upload only a new index buffer instead of all vertex data. Adds one draw call per translucent region.")
+	boolean indexedTranslucencyResort = false;
+	@Comment("Saves tessellated terrain to disk and reuses it when unchanged regions are rebuilt, as after rejoining or changing render distance. Cleared when resources or options reload.")
+	boolean terrainMeshDiskCache = false;
+	@Comment("Maximum disk space used by the terrain mesh cache, in megabytes.")
+	int terrainMeshDiskCacheMb = 1024;
+	@Comment("Regions that must be rebuilt before a frame is drawn, including all rebuilds while FlawlessFrames is active, are tessellated on terrain worker threads in parallel while the render thread waits.")
+	boolean parallelMainThreadBuilds = false;
+	@Comment("Adjusts time spent on terrain rebuilds each frame to hold a target frame rate, instead of a fixed share of recent frame time.")
+	boolean adaptiveRebuildBudget = false;
+	@Comment("Frame rate held by adaptive rebuild budget when the frame rate limit is unlimited. Otherwise the limit is used.")
+	int adaptiveRebuildTargetFps = 60;
+	@Comment("Reuses quads of simple static block models for blocks with the same state and visible faces instead of running the model again.")
+	boolean cacheStaticBlockQuads = false;
+	@Comment("Merges adjacent full block faces with the same texture, color and lighting into larger quads that repeat the texture. Fewer vertices, but faces with custom shaders are not merged.")
+	boolean greedyTerrainMeshing = false;
+	@Comment("Regions farther than this many chunks from the camera are drawn with coarse meshes that use less memory and rebuild faster. Zero draws all regions in full detail.")
+	int lodChunkDistance = 0;
+	@Comment("Interpolates biome colors such as grass and water at each vertex instead of once per block, for smoother transitions between biomes.")
+	boolean vertexBiomeBlending = false;
+	@Comment("Finds terrain occlusion boxes by growing boxes from runs of solid blocks instead of testing candidate areas. Faster for caves and other broken-up terrain.")
+	boolean runLengthOcclusionBoxes = false;
 	@Comment("Uses more CPU to avoid drawing terrain that isn't visible. Improves FPS. Best for machines with 6+ fast CPU cores. Ignored if shadowmap enabled.")
 	boolean advancedTerrainCulling = true;
 	@Comment("Terrain setup done off the main render thread. Increases FPS when moving. May see occasional flashes of blank chunks")
@@ -79,6 +103,8 @@ class ConfigData {
 	boolean cullParticles = true;
 	@Comment("Use Canvas thread pool for rendering and local server tasks. May reduce lag spikes caused by thread contention.")
 	boolean useCombinedThreadPool = false;
+	@Comment("Use work-stealing thread pool for terrain builds. May reduce queue contention on machines with many cores. Requires restart.")
+	boolean useWorkStealingExecutor = false;
 	@Comment("When enabled, F3 debug screen output is refreshed 20X per second instead of every frame. Improves accuracy and reduces variability of FPS measurement.")
 	boolean steadyDebugScreen = true;
 	@Comment("When true, animated sprites not in view are not updated. Improves frame rate.")
@@ -41,6 +41,7 @@ import grondag.canvas.CanvasMod;
 import grondag.canvas.apiimpl.CanvasState;
 import grondag.canvas.pipeline.PipelineManager;
 import grondag.canvas.pipeline.config.option.OptionConfig;
+import grondag.canvas.terrain.region.RegionMeshDiskCache;
 
 public class ConfigManager {
 	static final ConfigData DEFAULTS = new ConfigData();
@@ -170,7 +171,11 @@ public class ConfigManager {
 		saveConfig();
 
 		switch (reload) {
-			case RELOAD_EVERYTHING -> Minecraft.getInstance().levelRenderer.allChanged();
+			case RELOAD_EVERYTHING -> {
+				// Options that require a reload can change encoded terrain
+				RegionMeshDiskCache.invalidate();
+				Minecraft.getInstance().levelRenderer.allChanged();
+			}
 			case RELOAD_PIPELINE -> PipelineManager.reloadIfNeeded(true);
 			case DONT_RELOAD -> { }
 		}
@@ -42,6 +42,18 @@ public class Configurator {
 	public static boolean preventDepthFighting = DEFAULTS.preventDepthFighting;
 	public static boolean clampExteriorVertices = DEFAULTS.clampExteriorVertices;
 	public static boolean fixLuminousBlockShading = DEFAULTS.fixLuminousBlockShading;
+	public static boolean incrementalRegionRebuild = DEFAULTS.incrementalRegionRebuild;
+	public static boolean indexedTranslucencyResort = DEFAULTS.indexedTranslucencyResort;
+	public static boolean terrainMeshDiskCache = DEFAULTS.terrainMeshDiskCache;
+	public static int terrainMeshDiskCacheMb = DEFAULTS.terrainMeshDiskCacheMb;
+	public static boolean parallelMainThreadBuilds = DEFAULTS.parallelMainThreadBuilds;
+	public static boolean adaptiveRebuildBudget = DEFAULTS.adaptiveRebuildBudget;
+	public static int adaptiveRebuildTargetFps = DEFAULTS.adaptiveRebuildTargetFps;
+	public static boolean cacheStaticBlockQuads = DEFAULTS.cacheStaticBlockQuads;
+	public static boolean greedyTerrainMeshing = DEFAULTS.greedyTerrainMeshing;
+	public static int lodChunkDistance = DEFAULTS.lodChunkDistance;
+	public static boolean vertexBiomeBlending = DEFAULTS.vertexBiomeBlending;
+	public static boolean runLengthOcclusionBoxes = DEFAULTS.runLengthOcclusionBoxes;
 	public static boolean advancedTerrainCulling = DEFAULTS.advancedTerrainCulling;
 	public static boolean terrainSetupOffThread = DEFAULTS.terrainSetupOffThread;
 	public static boolean cullEntityRender = DEFAULTS.cullEntityRender;
@@ -52,6 +64,7 @@ public class Configurator {
 	public static int dynamicFrustumPadding = DEFAULTS.dynamicFrustumPadding;
 	public static boolean cullParticles = DEFAULTS.cullParticles;
 	public static boolean useCombinedThreadPool = DEFAULTS.useCombinedThreadPool;
+	public static boolean useWorkStealingExecutor = DEFAULTS.useWorkStealingExecutor;
 	public static boolean shaderDebug = DEFAULTS.shaderDebug;
 	public static boolean preprocessShaderSource = DEFAULTS.preprocessShaderSource;
 	// public static boolean lightmapDebug = DEFAULTS.lightmapDebug;
@@ -123,6 +136,18 @@ public class Configurator {
 		preventDepthFighting = config.preventDepthFighting;
 		clampExteriorVertices = config.clampExteriorVertices;
 		fixLuminousBlockShading = config.fixLuminousBlockShading;
+		incrementalRegionRebuild = config.incrementalRegionRebuild;
+		indexedTranslucencyResort = config.indexedTranslucencyResort;
+		terrainMeshDiskCache = config.terrainMeshDiskCache;
+		terrainMeshDiskCacheMb = config.terrainMeshDiskCacheMb;
+		parallelMainThreadBuilds = config.parallelMainThreadBuilds;
+		adaptiveRebuildBudget = config.adaptiveRebuildBudget;
+		adaptiveRebuildTargetFps = config.adaptiveRebuildTargetFps;
+		cacheStaticBlockQuads = config.cacheStaticBlockQuads;
+		greedyTerrainMeshing = config.greedyTerrainMeshing;
+		lodChunkDistance = config.lodChunkDistance;
+		vertexBiomeBlending = config.vertexBiomeBlending;
+		runLengthOcclusionBoxes = config.runLengthOcclusionBoxes;
 		advancedTerrainCulling = config.advancedTerrainCulling;
 		terrainSetupOffThread = config.terrainSetupOffThread;
 		safeNativeMemoryAllocation = config.safeNativeMemoryAllocation;
@@ -134,6 +159,7 @@ public class Configurator {
 		staticFrustumPadding = Mth.clamp(config.staticFrustumPadding, 0, 30);
 		cullParticles = config.cullParticles;
 		useCombinedThreadPool = config.useCombinedThreadPool;
+		useWorkStealingExecutor = config.useWorkStealingExecutor;
 		transferBufferMode = config.transferBufferMode;
 		steadyDebugScreen = config.steadyDebugScreen;
 
@@ -183,6 +209,18 @@ public class Configurator {
 
 		config.preventDepthFighting = preventDepthFighting;
 		config.clampExteriorVertices = clampExteriorVertices;
+		config.incrementalRegionRebuild = incrementalRegionRebuild;
+		config.indexedTranslucencyResort = indexedTranslucencyResort;
+		config.terrainMeshDiskCache = terrainMeshDiskCache;
+		config.terrainMeshDiskCacheMb = terrainMeshDiskCacheMb;
+		config.parallelMainThreadBuilds = parallelMainThreadBuilds;
+		config.adaptiveRebuildBudget = adaptiveRebuildBudget;
+		config.adaptiveRebuildTargetFps = adaptiveRebuildTargetFps;
+		config.cacheStaticBlockQuads = cacheStaticBlockQuads;
+		config.greedyTerrainMeshing = greedyTerrainMeshing;
+		config.lodChunkDistance = lodChunkDistance;
+		config.vertexBiomeBlending = vertexBiomeBlending;
+		config.runLengthOcclusionBoxes = runLengthOcclusionBoxes;
 		config.advancedTerrainCulling = advancedTerrainCulling;
 		config.fixLuminousBlockShading = fixLuminousBlockShading;
 		config.terrainSetupOffThread = terrainSetupOffThread;
@@ -195,6 +233,7 @@ public class Configurator {
 		config.dynamicFrustumPadding = dynamicFrustumPadding;
 		config.cullParticles = cullParticles;
 		config.useCombinedThreadPool = useCombinedThreadPool;
+		config.useWorkStealingExecutor = useWorkStealingExecutor;
 		config.transferBufferMode = transferBufferMode;
 		config.steadyDebugScreen = steadyDebugScreen;
 
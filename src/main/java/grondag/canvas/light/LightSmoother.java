@@ -29,198 +29,151 @@ import grondag.canvas.terrain.region.input.InputRegion;
 // TODO: look at VoxelShapes.method_1080 as a way to not propagate thru slabs
 // Also BlockState.hasSidedTransparency seems promising
 
+/**
+ * Blurs block and sky light over a region and its margin to produce smoothed brightness.
+ * Both channels are packed into 32-bit lanes of one long, block light in the low lane,
+ * so each blur pass handles both at once. Passes run over contiguous rows without
+ * branches so the JIT can vectorize them. Opacity is held apart from light values
+ * as a 0/1 multiplier.
+ */
 public class LightSmoother {
-	public static final int OPAQUE = -1;
 	private static final int BLUR_RADIUS = 2;
-	private static final int MARGIN = BLUR_RADIUS + 2;
-	private static final int POS_DIAMETER = 16 + MARGIN * 2;
-	private static final int POS_COUNT = POS_DIAMETER * POS_DIAMETER * POS_DIAMETER;
+	static final int MARGIN = BLUR_RADIUS + 2;
+	static final int POS_DIAMETER = 16 + MARGIN * 2;
+	static final int POS_COUNT = POS_DIAMETER * POS_DIAMETER * POS_DIAMETER;
 	private static final int Y_INC = POS_DIAMETER;
 	private static final int Z_INC = POS_DIAMETER * POS_DIAMETER;
 	private static final ThreadLocal<Helper> helpers = ThreadLocal.withInitial(Helper::new);
 	private static final int INNER_DIST = 28966; // fractional part of 0xFFFF
 	private static final int OUTER_DIST = (0xFFFF - INNER_DIST) / 2;
-	private static final int INNER_PLUS = INNER_DIST + OUTER_DIST;
+	/** Sum of weights when neither neighbor is opaque. Unchanged when one neighbor is opaque. */
+	private static final int TOTAL_DIST = INNER_DIST + OUTER_DIST * 2;
+	/** Lanes hold at most 240 * 0xFFFF before shifting, so never carry into each other. */
+	private static final long LANE_MASK = 0x0000FFFF0000FFFFL;
+	private static final long LANE_ROUND = 0x00007FFF00007FFFL;
+	/** First and last-plus-one coordinate of positions written to the light cache. */
+	static final int OUTPUT_MIN = MARGIN - 1;
+	static final int OUTPUT_LIMIT = 16 + MARGIN + 1;
 
 	public static void computeSmoothedBrightness(InputRegion region) {
 		final Helper help = helpers.get();
 		final BlockPos.MutableBlockPos smoothPos = help.smoothPos;
-		final int[] sky = help.a;
-		final int[] block = help.b;
+		final long[] light = help.light;
+		final int[] open = help.open;
 
 		final int minX = region.originX() - MARGIN;
 		final int minY = region.originY() - MARGIN;
 		final int minZ = region.originZ() - MARGIN;
 
-		for (int x = 0; x < POS_DIAMETER; x++) {
+		for (int z = 0; z < POS_DIAMETER; z++) {
 			for (int y = 0; y < POS_DIAMETER; y++) {
-				for (int z = 0; z < POS_DIAMETER; z++) {
+				for (int x = 0; x < POS_DIAMETER; x++) {
 					final int bx = x + minX;
 					final int by = y + minY;
 					final int bz = z + minZ;
 					smoothPos.set(bx, by, bz);
 
 					final BlockState state = region.getBlockState(bx, by, bz);
-					// don't use cache here because we are populating the cache
-					final int packedLight = region.directBrightness(smoothPos);
-
-					final boolean opaque = state.isSolidRender(region, smoothPos);
-
 					final int i = index(x, y, z);
 
-					if (opaque) {
-						block[i] = OPAQUE;
-						sky[i] = OPAQUE;
-					} else if (packedLight == 0) {
-						block[i] = 0;
-						sky[i] = 0;
+					if (state.isSolidRender(region, smoothPos)) {
+						open[i] = 0;
+						light[i] = 0;
 					} else {
-						block[i] = (packedLight & 0xFF);
-						sky[i] = ((packedLight >>> 16) & 0xFF);
+						// don't use cache here because we are populating the cache
+						open[i] = 1;
+						light[i] = pack(region.directBrightness(state, smoothPos));
 					}
 				}
 			}
 		}
 
-		final int[] work = help.c;
-		smooth(BLUR_RADIUS + 1, block, work);
-		smooth(BLUR_RADIUS, work, block);
-		//        smooth(1, block, work);
-		//        float[] swap = block;
-		//        block = work;
-		//        work = swap;
-
-		smooth(BLUR_RADIUS + 1, sky, work);
-		smooth(BLUR_RADIUS, work, sky);
-		//        smooth(1, sky, work);
-		//        swap = sky;
-		//        sky = work;
-		//        work = swap;
-
-		final int limit = 16 + MARGIN + 1;
-
-		for (int x = MARGIN - 1; x < limit; x++) {
-			for (int y = MARGIN - 1; y < limit; y++) {
-				for (int z = MARGIN - 1; z < limit; z++) {
-					final int i = index(x, y, z);
-					final int b = Mth.clamp(((block[i]) * 104 + 51) / 100, 0, 240);
-					final int k = Mth.clamp(((sky[i]) * 104 + 51) / 100, 0, 240);
-					region.setLightCache(x + minX, y + minY, z + minZ, ((b + 2) & 0b11111100) | (((k + 2) & 0b11111100) << 16));
+		if (!isUniform(light, open)) {
+			blur(light, open, help.work);
+		}
+
+		for (int z = OUTPUT_MIN; z < OUTPUT_LIMIT; z++) {
+			for (int y = OUTPUT_MIN; y < OUTPUT_LIMIT; y++) {
+				for (int x = OUTPUT_MIN; x < OUTPUT_LIMIT; x++) {
+					region.setLightCache(x + minX, y + minY, z + minZ, output(light[index(x, y, z)]));
 				}
 			}
 		}
 	}
 
-	private static int index(int x, int y, int z) {
+	static int index(int x, int y, int z) {
 		return x + y * Y_INC + z * Z_INC;
 	}
 
-	private static void smooth(int margin, int[] src, int[] dest) {
-		final int xBase = MARGIN - margin;
-		final int xLimit = POS_DIAMETER - MARGIN + margin;
-
-		final int yBase = xBase * Y_INC;
-		final int yLimit = xLimit * Y_INC;
-		final int zBase = xBase * Z_INC;
-		final int zLimit = xLimit * Z_INC;
-
-		// X PASS
-		for (int x = xBase; x < xLimit; x++) {
-			for (int y = yBase; y < yLimit; y += Y_INC) {
-				for (int z = zBase; z < zLimit; z += Z_INC) {
-					final int i = x + y + z;
-
-					final int c = src[i];
-
-					if (c == OPAQUE) {
-						dest[i] = OPAQUE;
-						continue;
-					}
-
-					//                    int a = src[index(x + 1, y, z)];
-					//                    int b = src[index(x - 1, y, z)];
-					final int a = src[i + 1];
-					final int b = src[i - 1];
-
-					if (a == OPAQUE) {
-						if (b == OPAQUE) {
-							dest[i] = c;
-						} else {
-							dest[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-						}
-					} else if (b == OPAQUE) {
-						dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-					} else {
-						dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-					}
-				}
-			}
-		}
-
-		// Y PASS
-		for (int x = xBase; x < xLimit; x++) {
-			for (int y = yBase; y < yLimit; y += Y_INC) {
-				for (int z = zBase; z < zLimit; z += Z_INC) {
-					final int i = x + y + z;
-
-					// Note arrays are swapped here
-					final int c = dest[i];
+	/** Converts a packed lightmap value to sky and block light in separate lanes. */
+	static long pack(int packedLight) {
+		return (packedLight & 0xFF) | ((long) ((packedLight >>> 16) & 0xFF) << 32);
+	}
 
-					if (c == OPAQUE) {
-						src[i] = OPAQUE;
-						continue;
-					}
+	/** Converts smoothed lanes to the packed lightmap value stored in the region light cache. */
+	static int output(long light) {
+		final int b = Mth.clamp(((int) (light & 0xFFFFFFFFL) * 104 + 51) / 100, 0, 240);
+		final int k = Mth.clamp(((int) (light >>> 32) * 104 + 51) / 100, 0, 240);
+		return ((b + 2) & 0b11111100) | (((k + 2) & 0b11111100) << 16);
+	}
 
-					//                    int a = dest[index(x, y - 1, z)];
-					//                    int b = dest[index(x, y + 1, z)];
-					final int a = dest[i + Y_INC];
-					final int b = dest[i - Y_INC];
-
-					if (a == OPAQUE) {
-						if (b == OPAQUE) {
-							src[i] = c;
-						} else {
-							src[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-						}
-					} else if (b == OPAQUE) {
-						src[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-					} else {
-						src[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-					}
+	/**
+	 * True if all open positions have the same light. Blurring can't change such a
+	 * volume because weights for each position always sum to the same total.
+	 */
+	static boolean isUniform(long[] light, int[] open) {
+		long first = -1;
+
+		for (int i = 0; i < POS_COUNT; ++i) {
+			if (open[i] != 0) {
+				if (first == -1) {
+					first = light[i];
+				} else if (light[i] != first) {
+					return false;
 				}
 			}
 		}
 
-		// Z PASS
-		for (int x = xBase; x < xLimit; x++) {
-			for (int y = yBase; y < yLimit; y += Y_INC) {
-				for (int z = zBase; z < zLimit; z += Z_INC) {
-					final int i = x + y + z;
-
-					// Arrays are swapped back to original roles here
-					final int c = src[i];
+		return true;
+	}
 
-					if (c == OPAQUE) {
-						dest[i] = OPAQUE;
-						continue;
-					}
+	/**
+	 * Applies the full blur to packed light in place. Results are valid
+	 * for the output range, which is all that is written to the cache.
+	 */
+	static void blur(long[] light, int[] open, long[] work) {
+		final int outer = BLUR_RADIUS + 1;
+		pass(outer, 1, light, work, open);
+		pass(outer, Y_INC, work, light, open);
+		pass(outer, Z_INC, light, work, open);
+		pass(BLUR_RADIUS, 1, work, light, open);
+		pass(BLUR_RADIUS, Y_INC, light, work, open);
+		pass(BLUR_RADIUS, Z_INC, work, light, open);
+	}
 
-					//                    int a = src[index(x, y, z - 1)];
-					//                    int b = src[index(x, y, z + 1)];
-					final int a = src[i + Z_INC];
-					final int b = src[i - Z_INC];
-
-					if (a == OPAQUE) {
-						if (b == OPAQUE) {
-							dest[i] = c;
-						} else {
-							dest[i] = (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-						}
-					} else if (b == OPAQUE) {
-						dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
-					} else {
-						dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
-					}
+	/**
+	 * Blurs along one axis. An opaque neighbor's weight moves to the center,
+	 * and a position between two opaque neighbors keeps its light.
+	 * Opaque positions remain zero.
+	 */
+	private static void pass(int margin, int step, long[] src, long[] dest, int[] open) {
+		final int base = MARGIN - margin;
+		final int limit = POS_DIAMETER - MARGIN + margin;
+
+		for (int z = base; z < limit; z++) {
+			for (int y = base; y < limit; y++) {
+				final int row = y * Y_INC + z * Z_INC;
+				final int rowLimit = row + limit;
+
+				for (int i = row + base; i < rowLimit; i++) {
+					final int openA = open[i + step];
+					final int openB = open[i - step];
+					final int weightA = openA * OUTER_DIST;
+					final int weightB = openB * OUTER_DIST;
+					// Full weight, with no rounding error, when both neighbors are opaque
+					final int weightC = TOTAL_DIST - weightA - weightB + 2 * (1 - openA) * (1 - openB);
+					final long sum = src[i + step] * weightA + src[i - step] * weightB + src[i] * weightC + LANE_ROUND;
+					dest[i] = open[i] * ((sum >>> 16) & LANE_MASK);
 				}
 			}
 		}
@@ -228,8 +181,8 @@ public class LightSmoother {
 
 	private static class Helper {
 		private final BlockPos.MutableBlockPos smoothPos = new BlockPos.MutableBlockPos();
-		private final int[] a = new int[POS_COUNT];
-		private final int[] b = new int[POS_COUNT];
-		private final int[] c = new int[POS_COUNT];
+		private final long[] light = new long[POS_COUNT];
+		private final long[] work = new long[POS_COUNT];
+		private final int[] open = new int[POS_COUNT];
 	}
 }
@@ -157,6 +157,14 @@ public class CanvasRenderMaterial extends BaseRenderMaterial {
 		return shaderFlags;
 	}
 
+	/**
+	 * True if this material uses the same vertex and fragment shaders as the default material.
+	 * Custom shaders may depend on texture coordinates spanning a single sprite.
+	 */
+	public boolean hasDefaultShader() {
+		return shaderId == ((CanvasRenderMaterial) manager.defaultMaterial()).shaderId;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder();
@@ -23,12 +23,16 @@ package grondag.canvas.mixin;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import net.minecraft.client.multiplayer.ClientChunkCache;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.LightLayer;
 import net.minecraft.world.level.chunk.LevelChunk;
 
 import grondag.canvas.mixinterface.LevelChunkExt;
+import grondag.canvas.render.world.CanvasWorldRenderer;
 
 @Mixin(ClientChunkCache.class)
 public class MixinClientChunkCache {
@@ -40,4 +44,22 @@ public class MixinClientChunkCache {
 			((LevelChunkExt) chunk).canvas_clearColorCache();
 		}
 	}
+
+	@Inject(method = "onLightUpdate", at = @At("HEAD"))
+	private void beforeLightUpdate(LightLayer lightLayer, SectionPos sectionPos, CallbackInfo ci) {
+		final CanvasWorldRenderer cwr = CanvasWorldRenderer.instance();
+
+		if (cwr != null) {
+			cwr.onLightUpdate(true);
+		}
+	}
+
+	@Inject(method = "onLightUpdate", at = @At("RETURN"))
+	private void afterLightUpdate(LightLayer lightLayer, SectionPos sectionPos, CallbackInfo ci) {
+		final CanvasWorldRenderer cwr = CanvasWorldRenderer.instance();
+
+		if (cwr != null) {
+			cwr.onLightUpdate(false);
+		}
+	}
 }
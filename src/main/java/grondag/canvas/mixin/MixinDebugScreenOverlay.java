@@ -55,6 +55,8 @@ import grondag.canvas.config.Configurator;
 import grondag.canvas.mixinterface.BufferBuilderExt;
 import grondag.canvas.render.terrain.cluster.SlabAllocator;
 import grondag.canvas.render.world.CanvasWorldRenderer;
+import grondag.canvas.terrain.occlusion.geometry.OcclusionResultCache;
+import grondag.canvas.terrain.region.input.PackedInputRegion;
 import grondag.canvas.terrain.util.TerrainExecutor;
 import grondag.canvas.varia.AutoImmediate;
 import grondag.canvas.varia.CanvasGlHelper;
@@ -212,8 +214,12 @@ public class MixinDebugScreenOverlay extends GuiComponent {
 		final var worldRenderState = CanvasWorldRenderer.instance().worldRenderState;
 		result.add("Solid " + worldRenderState.solidClusterRealm.debugSummary());
 		result.add("Translucent " + worldRenderState.translucentClusterRealm.debugSummary());
+		result.add("LOD " + worldRenderState.lodClusterRealm.debugSummary());
 		result.add(worldRenderState.drawlistDebugSummary());
+		result.add(worldRenderState.cameraVisibleRegions.debugSummary());
 		result.add(SlabAllocator.debugSummary());
+		result.add(PackedInputRegion.debugSummary());
+		result.add(OcclusionResultCache.SHARED.debugSummary());
 
 		return result;
 	}
@@ -54,6 +54,7 @@ import net.minecraft.client.renderer.entity.EntityRenderDispatcher;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.BlockDestructionProgress;
 import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.shapes.CollisionContext;
@@ -112,6 +113,11 @@ public class MixinLevelRenderer implements LevelRendererExt {
 		ci.cancel();
 	}
 
+	@Inject(at = @At("HEAD"), method = "blockChanged")
+	private void onBlockChanged(BlockGetter blockGetter, BlockPos pos, BlockState oldState, BlockState newState, int flags, CallbackInfo ci) {
+		((CanvasWorldRenderer) (Object) this).onBlockChanged(pos);
+	}
+
 	@Redirect(method = "Lnet/minecraft/client/renderer/LevelRenderer;setSectionDirty(IIIZ)V", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/renderer/ViewArea;setDirty(IIIZ)V"), require = 1)
 	private void onScheduleChunkRender(ViewArea viewArea, int x, int y, int z, boolean urgent) {
 		((CanvasWorldRenderer) (Object) this).scheduleRegionRender(x, y, z, urgent);
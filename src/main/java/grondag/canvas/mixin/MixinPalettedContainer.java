@@ -0,0 +1,70 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.mixin;
+
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+
+import net.minecraft.util.BitStorage;
+import net.minecraft.world.level.chunk.Palette;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+import grondag.canvas.mixinterface.BitStorageExt;
+import grondag.canvas.mixinterface.PalettedContainerExt;
+
+@Mixin(PalettedContainer.class)
+public class MixinPalettedContainer<T> implements PalettedContainerExt<T> {
+	@Shadow private volatile PalettedContainer.Data<T> data;
+
+	@Override
+	public @Nullable T canvas_uniformValue() {
+		final Palette<T> palette = data.palette();
+		return palette.getSize() == 1 ? palette.valueFor(0) : null;
+	}
+
+	@Override
+	public @Nullable T canvas_unpack(T[] target, int[] idScratch) {
+		final PalettedContainer.Data<T> data = this.data;
+		final Palette<T> palette = data.palette();
+
+		if (palette.getSize() == 1) {
+			return palette.valueFor(0);
+		}
+
+		final BitStorage storage = data.storage();
+		final int limit = storage.getSize();
+
+		if (storage instanceof BitStorageExt ext) {
+			ext.canvas_unpack(idScratch);
+		} else {
+			for (int i = 0; i < limit; ++i) {
+				idScratch[i] = storage.get(i);
+			}
+		}
+
+		for (int i = 0; i < limit; ++i) {
+			target[i] = palette.valueFor(idScratch[i]);
+		}
+
+		return null;
+	}
+}
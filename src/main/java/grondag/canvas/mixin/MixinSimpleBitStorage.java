@@ -0,0 +1,70 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.mixin;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+
+import net.minecraft.util.SimpleBitStorage;
+
+import grondag.canvas.mixinterface.BitStorageExt;
+
+@Mixin(SimpleBitStorage.class)
+public class MixinSimpleBitStorage implements BitStorageExt {
+	@Shadow private long[] data;
+	@Shadow private int bits;
+	@Shadow private long mask;
+	@Shadow private int size;
+	@Shadow private int valuesPerLong;
+
+	@Override
+	public void canvas_fastForEach(IntArrayList list) {
+		final int size = this.size;
+		final int start = list.size();
+		list.size(start + size);
+		canvas_unpack(list.elements(), start);
+	}
+
+	@Override
+	public void canvas_unpack(int[] target) {
+		canvas_unpack(target, 0);
+	}
+
+	// Values never span words, so each word can be shifted out without division
+	private void canvas_unpack(int[] target, int index) {
+		final long[] data = this.data;
+		final int bits = this.bits;
+		final long mask = this.mask;
+		final int valuesPerLong = this.valuesPerLong;
+		final int limit = index + size;
+
+		for (final long word : data) {
+			long w = word;
+			final int wordLimit = Math.min(limit, index + valuesPerLong);
+
+			while (index < wordLimit) {
+				target[index++] = (int) (w & mask);
+				w >>>= bits;
+			}
+		}
+	}
+}
@@ -56,6 +56,7 @@ import grondag.canvas.material.state.TerrainRenderStates;
 import grondag.canvas.mixinterface.SpriteExt;
 import grondag.canvas.mixinterface.TextureAtlasExt;
 import grondag.canvas.render.world.CanvasWorldRenderer;
+import grondag.canvas.terrain.region.RegionMeshDiskCache;
 import grondag.canvas.texture.CombinedSpriteAnimation;
 
 @Mixin(TextureAtlas.class)
@@ -86,6 +87,9 @@ public abstract class MixinTextureAtlas extends AbstractTexture implements Textu
 			CanvasMod.LOG.info("Start of pre-upload handling for atlas " + location.toString());
 		}
 
+		// Cached terrain meshes refer to sprites and material indexes of the prior atlas
+		RegionMeshDiskCache.invalidate();
+
 		final var dataExt = (TextureAtlasPreparationExt) input;
 		width = dataExt.frex_atlasWidth();
 		height = dataExt.frex_atlasHeight();
@@ -24,4 +24,7 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 public interface BitStorageExt {
 	void canvas_fastForEach(IntArrayList list);
+
+	/** Decodes all values, in index order, into the start of target. */
+	void canvas_unpack(int[] target);
 }
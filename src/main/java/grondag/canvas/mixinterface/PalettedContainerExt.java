@@ -0,0 +1,43 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.mixinterface;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bulk access to palette contents. Each call reads storage and palette together,
+ * so results are consistent even if the container is resized by another thread.
+ */
+public interface PalettedContainerExt<T> {
+	/**
+	 * @return the value of every entry if the palette holds a single value, or null otherwise
+	 */
+	@Nullable T canvas_uniformValue();
+
+	/**
+	 * Decodes every entry, in vanilla index order, into target.
+	 *
+	 * @param idScratch Receives the palette IDs. Must be at least as large as target.
+	 * @return the value of every entry if the palette holds a single value, in which case
+	 * target is not written, or null otherwise
+	 */
+	@Nullable T canvas_unpack(T[] target, int[] idScratch);
+}
@@ -29,9 +29,11 @@ public abstract class ChunkRebuildCounters {
 	public static final boolean ENABLED = Configurator.enablePerformanceTrace;
 	private static final ConcurrentPerformanceCounter buildCounter = new ConcurrentPerformanceCounter();
 	private static final ConcurrentPerformanceCounter copyCounter = new ConcurrentPerformanceCounter();
+	private static final ConcurrentPerformanceCounter prepareCounter = new ConcurrentPerformanceCounter();
 	private static final ConcurrentPerformanceCounter uploadCounter = new ConcurrentPerformanceCounter();
 	private static final ThreadLocal<Long> chunkStart = ThreadLocal.withInitial(() -> 0L);
 	private static final ThreadLocal<Long> copyStart = ThreadLocal.withInitial(() -> 0L);
+	private static final ThreadLocal<Long> prepareStart = ThreadLocal.withInitial(() -> 0L);
 	private static final ThreadLocal<Long> uploadStart = ThreadLocal.withInitial(() -> 0L);
 
 	private ChunkRebuildCounters() {
@@ -40,6 +42,7 @@ public abstract class ChunkRebuildCounters {
 	public static void reset() {
 		buildCounter.clearStats();
 		copyCounter.clearStats();
+		prepareCounter.clearStats();
 		uploadCounter.clearStats();
 	}
 
@@ -57,6 +60,9 @@ public abstract class ChunkRebuildCounters {
 			final int copyCount = copyCounter.runCount();
 			CanvasMod.LOG.info(String.format("World copy time per chunk for last %d regions = %,dns  total time: %fs", copyCount, copyCount == 0 ? 0 : copyCounter.runTime() / copyCount, copyCounter.runTime() / 1000000000d));
 
+			final int prepareCount = prepareCounter.runCount();
+			CanvasMod.LOG.info(String.format("Input prepare time per region for last %d regions = %,dns  total time: %fs", prepareCount, prepareCount == 0 ? 0 : prepareCounter.runTime() / prepareCount, prepareCounter.runTime() / 1000000000d));
+
 			final int uploadCount = uploadCounter.runCount();
 			CanvasMod.LOG.info(String.format("Upload time per region for last %d regions = %,dns  total time: %fs", uploadCount, uploadCount == 0 ? 0 : uploadCounter.runTime() / uploadCount, uploadCounter.runTime() / 1000000000d));
 			reset();
@@ -74,6 +80,15 @@ public abstract class ChunkRebuildCounters {
 		copyCounter.addCount(1);
 	}
 
+	public static void startPrepare() {
+		prepareStart.set(System.nanoTime());
+	}
+
+	public static void completePrepare() {
+		prepareCounter.endRun(prepareStart.get());
+		prepareCounter.addCount(1);
+	}
+
 	public static void startUpload() {
 		uploadStart.set(System.nanoTime());
 	}
@@ -94,6 +94,7 @@ public class Pipeline {
 	private static PipelineConfig config;
 
 	private static boolean advancedTerrainCulling;
+	private static boolean terrainQuadMerging;
 
 	public static boolean shadowsEnabled() {
 		return skyShadowFbo != null;
@@ -103,6 +104,16 @@ public class Pipeline {
 		return advancedTerrainCulling;
 	}
 
+	/**
+	 * True if greedy terrain meshing is enabled and the active pipeline can draw merged quads.
+	 * Merged quads repeat their sprite, which material programs may not expect, so only
+	 * the material programs included with Canvas allow merging. Also gates merging of
+	 * still fluid surfaces, which repeat their sprite the same way.
+	 */
+	public static boolean terrainQuadMerging() {
+		return terrainQuadMerging;
+	}
+
 	public static PipelineConfig config() {
 		return config;
 	}
@@ -252,6 +263,9 @@ public class Pipeline {
 		}
 
 		materialTextures = new ProgramTextureData(config.materialProgram.samplerImages);
+		terrainQuadMerging = Configurator.greedyTerrainMeshing
+				&& config.materialProgram.vertexSource.getNamespace().equals(CanvasMod.MODID)
+				&& config.materialProgram.fragmentSource.getNamespace().equals(CanvasMod.MODID);
 
 		isFabulous = config.fabulosity != null;
 
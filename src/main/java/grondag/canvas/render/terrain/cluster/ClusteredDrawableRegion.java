@@ -63,6 +63,16 @@ public class ClusteredDrawableRegion extends AbstractDrawableRegion<ClusteredDra
 				transferBuffer, byteCount, origin, collector.quadCount() * 4,
 				buckets);
 
+		if (translucent) {
+			final int indexBytes = collector.sortedIndexBytes();
+
+			if (indexBytes > 0) {
+				final TransferBuffer indexBuffer = TransferBuffers.claim(indexBytes);
+				collector.sortedIndexesToBuffer(indexBuffer);
+				storage.setSortedIndexes(indexBuffer);
+			}
+		}
+
 		return new ClusteredDrawableRegion(collector.quadCount() * 4, storage);
 	}
 
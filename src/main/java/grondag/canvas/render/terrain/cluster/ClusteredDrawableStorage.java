@@ -21,10 +21,12 @@
 package grondag.canvas.render.terrain.cluster;
 
 import com.mojang.blaze3d.systems.RenderSystem;
+import org.jetbrains.annotations.Nullable;
 
 import grondag.canvas.buffer.input.FaceBucket;
 import grondag.canvas.buffer.render.TransferBuffer;
 import grondag.canvas.buffer.render.UploadableVertexStorage;
+import grondag.canvas.render.terrain.drawlist.DrawSpec;
 import grondag.canvas.render.terrain.cluster.VertexCluster.RegionAllocation;
 import grondag.canvas.terrain.region.RegionPosition;
 
@@ -38,6 +40,9 @@ public class ClusteredDrawableStorage implements UploadableVertexStorage {
 	public final FaceBucket[] faceBuckets;
 
 	private TransferBuffer transferBuffer;
+	private TransferBuffer indexTransferBuffer = null;
+	private SortedIndexBuffer sortedIndexes = null;
+	private DrawSpec indexedDrawSpec = null;
 	private boolean isClosed = false;
 	private RegionAllocation allocation = null;
 
@@ -52,6 +57,51 @@ public class ClusteredDrawableStorage implements UploadableVertexStorage {
 		clusterPos = VertexClusterRealm.clusterPos(regionOrigin.asLong());
 	}
 
+	/**
+	 * Makes this storage draw with its own sorted index buffer instead of the
+	 * shared slab index. Must be called before {@link #upload()}.
+	 */
+	void setSortedIndexes(TransferBuffer indexTransferBuffer) {
+		assert allocation == null;
+		this.indexTransferBuffer = indexTransferBuffer;
+	}
+
+	/**
+	 * Replaces sorted indexes after a translucency resort. Releases the transfer
+	 * buffer without uploading if this storage is closed or the buffer no longer
+	 * matches, which can happen when a rebuild replaced the storage in the meantime.
+	 */
+	public void uploadSortedIndexes(TransferBuffer indexTransferBuffer) {
+		assert RenderSystem.isOnRenderThread();
+
+		if (isClosed || sortedIndexes == null || sortedIndexes.capacityBytes() != indexTransferBuffer.sizeBytes()) {
+			indexTransferBuffer.release();
+		} else {
+			sortedIndexes.upload(indexTransferBuffer);
+		}
+	}
+
+	/** Null if drawn with the shared slab index. */
+	public @Nullable SortedIndexBuffer sortedIndexes() {
+		return sortedIndexes;
+	}
+
+	/** Draw spec for the sorted index draw, kept so draw list rebuilds can reuse it. Null if none was built. */
+	public @Nullable DrawSpec indexedDrawSpec() {
+		return indexedDrawSpec;
+	}
+
+	/** Replaces and releases any prior indexed draw spec. The spec is released when this storage closes. */
+	public void setIndexedDrawSpec(DrawSpec spec) {
+		assert RenderSystem.isOnRenderThread();
+
+		if (indexedDrawSpec != null) {
+			indexedDrawSpec.release();
+		}
+
+		indexedDrawSpec = spec;
+	}
+
 	TransferBuffer getAndClearTransferBuffer() {
 		TransferBuffer result = transferBuffer;
 		transferBuffer = null;
@@ -74,6 +124,20 @@ public class ClusteredDrawableStorage implements UploadableVertexStorage {
 				transferBuffer = transferBuffer.release();
 			}
 
+			if (indexTransferBuffer != null) {
+				indexTransferBuffer = indexTransferBuffer.release();
+			}
+
+			if (indexedDrawSpec != null) {
+				indexedDrawSpec.release();
+				indexedDrawSpec = null;
+			}
+
+			if (sortedIndexes != null) {
+				sortedIndexes.shutdown();
+				sortedIndexes = null;
+			}
+
 			if (allocation != null) {
 				allocation.onRegionClosed();
 				allocation = null;
@@ -93,6 +157,12 @@ public class ClusteredDrawableStorage implements UploadableVertexStorage {
 	public void upload() {
 		assert allocation == null;
 		allocation = realm.allocate(this);
+
+		if (indexTransferBuffer != null) {
+			sortedIndexes = new SortedIndexBuffer(indexTransferBuffer.sizeBytes(), quadVertexCount);
+			sortedIndexes.upload(indexTransferBuffer);
+			indexTransferBuffer = null;
+		}
 	}
 
 	/** Flag 6 (unassigned) will always be set. */
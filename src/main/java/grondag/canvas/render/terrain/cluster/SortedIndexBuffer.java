@@ -0,0 +1,72 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.render.terrain.cluster;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+
+import grondag.canvas.buffer.render.AbstractGlBuffer;
+import grondag.canvas.buffer.render.TransferBuffer;
+import grondag.canvas.varia.GFX;
+
+/**
+ * Per-region triangle indexes that draw translucent quads in sorted order.
+ * Lets a resort upload only indexes while vertex data stays resident in its slab.
+ *
+ * <p>Indexes are relative to the first vertex of the region so short indexes
+ * are used unless the region has more vertices than they can address.
+ */
+public class SortedIndexBuffer extends AbstractGlBuffer {
+	public final int elementType;
+
+	SortedIndexBuffer(int capacityBytes, int quadVertexCount) {
+		// Bound as copy target for updates so element array state of a bound VAO is never disturbed
+		super(capacityBytes, GFX.GL_COPY_WRITE_BUFFER, GFX.GL_DYNAMIC_DRAW);
+		elementType = elementType(quadVertexCount);
+	}
+
+	/** Replaces buffer content and releases the transfer buffer. */
+	void upload(TransferBuffer transferBuffer) {
+		assert RenderSystem.isOnRenderThread();
+		assert transferBuffer.sizeBytes() == capacityBytes;
+
+		GFX.bindBuffer(bindTarget, glBufferId());
+		transferBuffer.releaseToBoundBuffer(bindTarget, 0);
+		GFX.bindBuffer(bindTarget, 0);
+	}
+
+	@Override
+	protected void onShutdown() {
+		// NOOP
+	}
+
+	public static int bytesPerIndex(int quadVertexCount) {
+		return quadVertexCount <= 0x10000 ? 2 : 4;
+	}
+
+	public static int elementType(int quadVertexCount) {
+		return quadVertexCount <= 0x10000 ? GFX.GL_UNSIGNED_SHORT : GFX.GL_UNSIGNED_INT;
+	}
+
+	/** Six triangle indexes for each quad. */
+	public static int byteCount(int quadCount) {
+		return quadCount * 6 * bytesPerIndex(quadCount * 4);
+	}
+}
@@ -65,6 +65,15 @@ public class ClusterDrawList {
 
 		for (final var region : regions) {
 			final var alloc = region.allocation().getAllocation();
+			final var sortedIndexes = region.sortedIndexes();
+
+			if (sortedIndexes != null) {
+				// Region order must be kept, so flush pending regions before the indexed draw
+				quadCount += DrawSpecBuilder.build(specAllocations, drawSpecs, false, false);
+				quadCount += DrawSpecBuilder.buildIndexed(region, alloc, sortedIndexes, drawSpecs);
+				lastSlab = null;
+				continue;
+			}
 
 			if (alloc.slab != lastSlab) {
 				// NB: builder checks for empty region list (will be true for first region)
@@ -113,7 +122,7 @@ public class ClusterDrawList {
 		for (int i = 0; i < limit; ++i) {
 			final var spec = drawSpecs.get(i);
 			spec.bind();
-			GFX.glMultiDrawElementsBaseVertex(GFX.GL_TRIANGLES, spec.triVertexCount(), GFX.GL_UNSIGNED_SHORT, spec.triIndexOffset(), spec.baseQuadVertexOffset());
+			GFX.glMultiDrawElementsBaseVertex(GFX.GL_TRIANGLES, spec.triVertexCount(), spec.elementType(), spec.triIndexOffset(), spec.baseQuadVertexOffset());
 		}
 	}
 
@@ -127,6 +136,11 @@ public class ClusterDrawList {
 	}
 
 	public void release() {
-		drawSpecs.forEach(DrawSpec::release);
+		for (final DrawSpec spec : drawSpecs) {
+			// Indexed specs are reused across draw lists and released with their region
+			if (!spec.isRegionOwned()) {
+				spec.release();
+			}
+		}
 	}
 }
@@ -21,21 +21,46 @@
 package grondag.canvas.render.terrain.drawlist;
 
 import java.nio.IntBuffer;
+import java.util.function.IntSupplier;
 
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryUtil;
 
 import grondag.canvas.render.terrain.cluster.Slab;
+import grondag.canvas.render.terrain.cluster.SortedIndexBuffer;
+import grondag.canvas.render.terrain.cluster.VertexCluster.RegionAllocation.SlabAllocation;
+import grondag.canvas.varia.GFX;
 
-class DrawSpec {
+public class DrawSpec {
 	private IntBuffer triVertexCount;
 	private IntBuffer baseQuadVertexOffset;
 	private PointerBuffer triIndexOffset;
 	private final int size;
 	private final TerrainVAO vao;
+	private final int elementType;
+	/** Allocation and indexes drawn by a region-owned spec, null for specs owned by a draw list. */
+	private final @Nullable SlabAllocation indexedAllocation;
+	private final @Nullable SortedIndexBuffer sortedIndexes;
 	private boolean isClosed = false;
 
 	DrawSpec (Slab slab, int size, int[] triVertexCount, int[] baseQuadVertexOffset) {
+		this(slab, () -> SlabIndex.get().glBufferId(), GFX.GL_UNSIGNED_SHORT, size, triVertexCount, baseQuadVertexOffset, null, null);
+	}
+
+	/**
+	 * Draws a single region using its own sorted index buffer. Owned by the region's
+	 * storage and reused by draw list rebuilds while allocation and indexes are unchanged.
+	 */
+	DrawSpec (SlabAllocation alloc, SortedIndexBuffer sortedIndexes) {
+		this(alloc.slab, sortedIndexes::glBufferId, sortedIndexes.elementType, 1, new int[] {alloc.triVertexCount}, new int[] {alloc.baseQuadVertexIndex}, alloc, sortedIndexes);
+	}
+
+	private DrawSpec (Slab slab, IntSupplier elementIdSupplier, int elementType, int size, int[] triVertexCount, int[] baseQuadVertexOffset,
+			@Nullable SlabAllocation indexedAllocation, @Nullable SortedIndexBuffer sortedIndexes) {
+		this.elementType = elementType;
+		this.indexedAllocation = indexedAllocation;
+		this.sortedIndexes = sortedIndexes;
 		this.size = size;
 		this.triVertexCount = MemoryUtil.memAllocInt(size);
 		this.triVertexCount.put(0, triVertexCount, 0, size);
@@ -51,7 +76,20 @@ class DrawSpec {
 
 		triIndexOffset.position(0);
 
-		vao = new TerrainVAO(() -> slab.glBufferId(), () -> SlabIndex.get().glBufferId(), 0);
+		vao = new TerrainVAO(() -> slab.glBufferId(), elementIdSupplier, 0);
+	}
+
+	/** True for specs owned by region storage, which must not be released by draw lists. */
+	boolean isRegionOwned() {
+		return indexedAllocation != null;
+	}
+
+	boolean drawsIndexed(SlabAllocation alloc, SortedIndexBuffer sortedIndexes) {
+		return !isClosed && indexedAllocation == alloc && this.sortedIndexes == sortedIndexes;
+	}
+
+	int elementType() {
+		return elementType;
 	}
 
 	IntBuffer baseQuadVertexOffset() {
@@ -72,7 +110,7 @@ class DrawSpec {
 		return triIndexOffset;
 	}
 
-	protected void release() {
+	public void release() {
 		assert !isClosed;
 
 		if (!isClosed) {
@@ -25,6 +25,8 @@ import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 
+import grondag.canvas.render.terrain.cluster.ClusteredDrawableStorage;
+import grondag.canvas.render.terrain.cluster.SortedIndexBuffer;
 import grondag.canvas.render.terrain.cluster.VertexCluster.RegionAllocation.SlabAllocation;
 
 abstract class DrawSpecBuilder {
@@ -66,6 +68,24 @@ abstract class DrawSpecBuilder {
 		return quadCount;
 	}
 
+	/**
+	 * For translucent regions that carry their own sorted indexes. Always a single draw.
+	 * The spec is kept by the region storage and reused until its allocation or indexes change.
+	 */
+	public static int buildIndexed(ClusteredDrawableStorage region, SlabAllocation alloc, SortedIndexBuffer sortedIndexes, ObjectArrayList<DrawSpec> output) {
+		assert RenderSystem.isOnRenderThread();
+
+		DrawSpec spec = region.indexedDrawSpec();
+
+		if (spec == null || !spec.drawsIndexed(alloc, sortedIndexes)) {
+			spec = new DrawSpec(alloc, sortedIndexes);
+			region.setIndexedDrawSpec(spec);
+		}
+
+		output.add(spec);
+		return alloc.quadVertexCount;
+	}
+
 	private static void acceptAlloc(SlabAllocation alloc) {
 		quadCount += alloc.quadVertexCount;
 
@@ -20,8 +20,8 @@
 
 package grondag.canvas.render.terrain.drawlist;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 
 import grondag.canvas.material.state.RenderState;
 import grondag.canvas.render.terrain.base.AbstractDrawableRegionList;
@@ -29,6 +29,7 @@ import grondag.canvas.render.terrain.base.DrawableRegion;
 import grondag.canvas.render.terrain.base.DrawableRegionList;
 import grondag.canvas.render.terrain.cluster.ClusteredDrawableRegion;
 import grondag.canvas.render.terrain.cluster.ClusteredDrawableStorage;
+import grondag.canvas.render.terrain.cluster.VertexCluster;
 import grondag.canvas.render.world.WorldRenderState;
 import grondag.canvas.varia.GFX;
 
@@ -51,18 +52,20 @@ public class RealmDrawList extends AbstractDrawableRegionList {
 	}
 
 	private void build() {
-		final Long2ObjectOpenHashMap<ClusterDrawList> map = new Long2ObjectOpenHashMap<>();
+		// Keyed by cluster because realms can have clusters at the same position
+		final Reference2ObjectOpenHashMap<VertexCluster, ClusterDrawList> map = new Reference2ObjectOpenHashMap<>();
 		final int limit = regions.size();
 
 		for (int regionIndex = 0; regionIndex < limit; ++regionIndex) {
 			final ClusteredDrawableStorage storage = ((ClusteredDrawableRegion) regions.get(regionIndex)).storage();
 
-			ClusterDrawList clusterList = map.get(storage.clusterPos);
+			final VertexCluster cluster = storage.allocation().cluster();
+			ClusterDrawList clusterList = map.get(cluster);
 
 			if (clusterList == null) {
-				clusterList = new ClusterDrawList(storage.allocation().cluster(), this);
+				clusterList = new ClusterDrawList(cluster, this);
 				clusterLists.add(clusterList);
-				map.put(storage.clusterPos, clusterList);
+				map.put(cluster, clusterList);
 			}
 
 			clusterList.add(storage);
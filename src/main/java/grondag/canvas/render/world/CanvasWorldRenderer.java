@@ -119,8 +119,10 @@ import grondag.canvas.shader.data.ScreenRenderState;
 import grondag.canvas.shader.data.ShaderDataManager;
 import grondag.canvas.terrain.occlusion.SortableVisibleRegionList;
 import grondag.canvas.terrain.occlusion.TerrainIterator;
+import grondag.canvas.terrain.region.RebuildBudgetController;
 import grondag.canvas.terrain.region.RegionRebuildManager;
 import grondag.canvas.terrain.region.RenderRegionStorage;
+import grondag.canvas.terrain.region.input.PackedInputRegion;
 import grondag.canvas.terrain.util.TerrainExecutor;
 import grondag.canvas.varia.GFX;
 
@@ -139,6 +141,8 @@ public class CanvasWorldRenderer extends LevelRenderer {
 	private CanvasOutlineImmediate outlineImmediate;
 	private final CanvasParticleRenderer particleRenderer = new CanvasParticleRenderer(entityCullingFrustum);
 	private final WorldRenderContextBase eventContext = new WorldRenderContextBase();
+	private final RebuildBudgetController rebuildBudget = new RebuildBudgetController();
+	private long lastFrameStartNanos = 0L;
 
 	/** Used to avoid camera rotation in managed draws.  Kept to avoid reallocation every frame. */
 	private final PoseStack identityStack = new PoseStack();
@@ -349,14 +353,31 @@ public class CanvasWorldRenderer extends LevelRenderer {
 		}
 
 		final long nowTime = Util.getNanos();
-		final long usedTime = nowTime - frameStartNanos;
+		final RegionRebuildManager regionRebuildManager = worldRenderState.regionRebuildManager;
+		final long rebuildDeadline;
+
+		if (Configurator.adaptiveRebuildBudget) {
+			final long targetFrameNanos = maxFpsLimit == 0L ? 1000000000L / Configurator.adaptiveRebuildTargetFps : maxFpsLimit;
+			rebuildBudget.update(frameStartNanos - lastFrameStartNanos, targetFrameNanos, regionRebuildManager.queueDepth());
+			rebuildDeadline = nowTime + rebuildBudget.budgetNanos();
+		} else {
+			final long usedTime = nowTime - frameStartNanos;
 
-		// No idea what the 3/2 is for - looks like a hack
-		final long updateBudget = wr.canvas_chunkUpdateSmoother().registerValueAndGetMean(usedTime) * 3L / 2L;
-		final long clampedBudget = Mth.clamp(updateBudget, maxFpsLimit, 33333333L);
+			// No idea what the 3/2 is for - looks like a hack
+			final long updateBudget = wr.canvas_chunkUpdateSmoother().registerValueAndGetMean(usedTime) * 3L / 2L;
+			final long clampedBudget = Mth.clamp(updateBudget, maxFpsLimit, 33333333L);
+			rebuildDeadline = frameStartNanos + clampedBudget;
+		}
 
+		lastFrameStartNanos = frameStartNanos;
 		worldRenderState.regionBuilder().upload();
-		worldRenderState.regionRebuildManager.processScheduledRegions(frameStartNanos + clampedBudget);
+		final int processedCount = regionRebuildManager.processScheduledRegions(rebuildDeadline);
+
+		if (Configurator.adaptiveRebuildBudget) {
+			rebuildBudget.recordWork(Util.getNanos() - nowTime, processedCount);
+		}
+
+		PackedInputRegion.trimPool();
 
 		// WIP: need a way to set the deadline appropriately based on steady frame rate and time already elapsed.
 		// Method must ensure we don't have starvation - task queue can't grow indefinitely.
@@ -822,6 +843,18 @@ public class CanvasWorldRenderer extends LevelRenderer {
 		((LevelRenderer) vanillaWorldRenderer).updateGlobalBlockEntities(removedBlockEntities, addedBlockEntities);
 	}
 
+	public void onBlockChanged(BlockPos pos) {
+		if (Configurator.incrementalRegionRebuild) {
+			worldRenderState.renderRegionStorage.markBlockChanged(pos.getX(), pos.getY(), pos.getZ());
+		}
+	}
+
+	public void onLightUpdate(boolean isStarting) {
+		if (Configurator.incrementalRegionRebuild) {
+			worldRenderState.renderRegionStorage.setLightUpdate(isStarting);
+		}
+	}
+
 	public void scheduleRegionRender(int x, int y, int z, boolean urgent) {
 		worldRenderState.renderRegionStorage.scheduleRebuild(x << 4, y << 4, z << 4, urgent);
 	}
@@ -89,6 +89,8 @@ public class WorldRenderState {
 	public final DrawListCullingHelper drawListCullingHlper = new DrawListCullingHelper(this);
 	public final VertexClusterRealm solidClusterRealm = new VertexClusterRealm(false);
 	public final VertexClusterRealm translucentClusterRealm = new VertexClusterRealm(true);
+	/** Holds solid distant-terrain meshes, so their memory is tracked apart from full-detail terrain. */
+	public final VertexClusterRealm lodClusterRealm = new VertexClusterRealm(false);
 	public final BitSet terrainAnimationBits = new BitSet();
 
 	public WorldRenderState(CanvasWorldRenderer cwr) {
@@ -124,6 +126,7 @@ public class WorldRenderState {
 		hasSkylight = world != null && world.dimensionType().hasSkyLight();
 		solidClusterRealm.clear();
 		translucentClusterRealm.clear();
+		lodClusterRealm.clear();
 	}
 
 	public ClientLevel getWorld() {
@@ -232,6 +235,7 @@ public class WorldRenderState {
 		sectorManager.clear();
 		solidClusterRealm.clear();
 		translucentClusterRealm.clear();
+		lodClusterRealm.clear();
 	}
 
 	void clearDrawSpecs() {
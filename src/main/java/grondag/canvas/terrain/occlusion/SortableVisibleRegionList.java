@@ -24,11 +24,15 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.phys.Vec3;
 
+import grondag.canvas.terrain.region.RenderRegion;
+
 public final class SortableVisibleRegionList extends VisibleRegionList {
 	private int sortPositionVersion;
 	private int lastSortPositionVersion;
 	private long lastCameraBlockPos = Long.MAX_VALUE;
 	private Vec3 lastSortPos = new Vec3(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+	private long scheduledResortCount;
+	private long avoidedResortCount;
 
 	@Override
 	public void clear() {
@@ -48,6 +52,13 @@ public final class SortableVisibleRegionList extends VisibleRegionList {
 		return lastSortPos;
 	}
 
+	public String debugSummary() {
+		final long scheduled = scheduledResortCount;
+		final long avoided = avoidedResortCount;
+		final long total = scheduled + avoided;
+		return String.format("Translucent resorts: %,d  avoided: %,d (%d%%)", scheduled, avoided, total == 0 ? 0 : avoided * 100 / total);
+	}
+
 	/**
 	 * Checks build regions for translucent resort need and schedules
 	 * up to 16 of them per pass. Nearer regions are checked first and
@@ -56,6 +67,10 @@ public final class SortableVisibleRegionList extends VisibleRegionList {
 	 * <p>Regions that are non-translucent, already scheduled or already current
 	 * won't count against the limit.  Resorts are fast and happen off thread -
 	 * checking incrementally avoids overloading the GPU with buffer uploads.
+	 *
+	 * <p>Regions are only resorted after the camera has moved a distance that
+	 * grows with region distance, and regions with all translucent quads in
+	 * one plane are never resorted. See {@link RenderRegion#scheduleSort(int, Vec3)}.
 	 */
 	public void scheduleResort(Vec3 cameraPos) {
 		final double x = cameraPos.x;
@@ -90,12 +105,17 @@ public final class SortableVisibleRegionList extends VisibleRegionList {
 			int count = 0;
 			int i;
 
-			// PERF: probably a way to sort more distant regions less frequently
 			for (i = 0; i < limit; i++) {
-				if (visibleRegions[i].scheduleSort(positionVersion)) {
+				final int result = visibleRegions[i].scheduleSort(positionVersion, cameraPos);
+
+				if (result == RenderRegion.SORT_SCHEDULED) {
+					++scheduledResortCount;
+
 					if (++count > 16) {
 						break;
 					}
+				} else if (result == RenderRegion.SORT_AVOIDED) {
+					++avoidedResortCount;
 				}
 			}
 
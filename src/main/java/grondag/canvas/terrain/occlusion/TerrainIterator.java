@@ -52,6 +52,7 @@ import grondag.canvas.terrain.region.RegionBuildState;
 import grondag.canvas.terrain.region.RenderRegion;
 import grondag.canvas.terrain.region.RenderRegionIndexer;
 import grondag.canvas.terrain.region.RenderRegionStorage;
+import grondag.canvas.terrain.util.TerrainExecutor;
 import grondag.canvas.terrain.util.TerrainExecutorTask;
 
 public class TerrainIterator implements TerrainExecutorTask {
@@ -76,6 +77,8 @@ public class TerrainIterator implements TerrainExecutorTask {
 	 * camera is outside world range.  Otherwise will match the origin of the camera region.
 	 */
 	private long cameraChunkOrigin;
+	/** Camera origin when terrain executor priorities were last updated. Only used on iteration thread. */
+	private long priorityCameraChunkOrigin = Long.MIN_VALUE;
 	private int renderDistance;
 	private boolean chunkCullingEnabled = true;
 	private volatile boolean cancelled = false;
@@ -209,6 +212,13 @@ public class TerrainIterator implements TerrainExecutorTask {
 
 		try {
 			worldRenderState.renderRegionStorage.updateRegionPositionAndVisibility();
+
+			// Region distances are now current for the new camera region so queued builds can be re-sorted
+			if (priorityCameraChunkOrigin != cameraChunkOrigin) {
+				priorityCameraChunkOrigin = cameraChunkOrigin;
+				TerrainExecutor.INSTANCE.advancePriorityEpoch();
+			}
+
 			worldRenderState.drawListCullingHlper.update();
 
 			if (resetCameraOccluder) {
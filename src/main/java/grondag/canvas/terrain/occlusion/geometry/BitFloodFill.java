@@ -0,0 +1,166 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.INTERIOR_CACHE_WORDS;
+
+import io.vram.frex.api.model.util.FaceUtil;
+
+/**
+ * Flood fill over the 16x16x16 interior of a region stored as 64 words of
+ * 64 bits, in the same x | y << 4 | z << 8 order used by {@link RegionOcclusionCalculator}.
+ * Each word holds four rows of 16 positions along X for a single Z, so X and Y
+ * neighbors are mostly word shifts and Z neighbors are four words away.
+ *
+ * <p>Visits positions in no particular order but produces the same connected set
+ * as a position-by-position search.
+ */
+final class BitFloodFill {
+	private BitFloodFill() { }
+
+	/** Positions with x == 0 in each row of a word. */
+	static final long X0_MASK = 0x0001000100010001L;
+	/** Positions with x == 15 in each row of a word. */
+	static final long X15_MASK = 0x8000800080008000L;
+	private static final long X_INTERIOR_MASK = ~(X0_MASK | X15_MASK);
+	private static final long FIRST_ROW_MASK = 0xFFFFL;
+	private static final long LAST_ROW_MASK = 0xFFFF000000000000L;
+
+	/**
+	 * Expands the filled set through all connected open positions.
+	 * Filled positions must already be open.
+	 */
+	static void fill(long[] filled, long[] open) {
+		boolean changed;
+
+		do {
+			changed = false;
+
+			// Alternating sweep direction lets growth travel across many words per pass
+			for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+				changed |= growWord(filled, open, i);
+			}
+
+			for (int i = INTERIOR_CACHE_WORDS - 1; i >= 0; --i) {
+				changed |= growWord(filled, open, i);
+			}
+		} while (changed);
+	}
+
+	private static boolean growWord(long[] filled, long[] open, int i) {
+		final long openWord = open[i];
+		final long prior = filled[i];
+		long word = (prior | neighborsWithinWord(prior) | neighborsFromOtherWords(filled, i)) & openWord;
+
+		if (word == prior) {
+			return false;
+		}
+
+		// grow within the word until it stops changing
+		long next = (word | neighborsWithinWord(word)) & openWord;
+
+		while (next != word) {
+			word = next;
+			next = (word | neighborsWithinWord(word)) & openWord;
+		}
+
+		filled[i] = word;
+		return true;
+	}
+
+	/** X neighbors and Y neighbors in the same word. */
+	private static long neighborsWithinWord(long word) {
+		return ((word << 1) & ~X0_MASK) | ((word >>> 1) & ~X15_MASK) | (word << 16) | (word >>> 16);
+	}
+
+	/** Y neighbors in adjacent rows of the words before and after, and Z neighbors. */
+	private static long neighborsFromOtherWords(long[] words, int i) {
+		long result = 0;
+
+		if ((i & 3) != 0) {
+			result |= words[i - 1] >>> 48;
+		}
+
+		if ((i & 3) != 3) {
+			result |= words[i + 1] << 48;
+		}
+
+		if (i >= 4) {
+			result |= words[i - 4];
+		}
+
+		if (i < INTERIOR_CACHE_WORDS - 4) {
+			result |= words[i + 4];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sets target to every position adjacent to a source position, not including
+	 * source positions unless they are also adjacent to another source position.
+	 */
+	static void neighbors(long[] source, long[] target) {
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			target[i] = neighborsWithinWord(source[i]) | neighborsFromOtherWords(source, i);
+		}
+	}
+
+	/**
+	 * Exterior faces touched by the given positions. Positions on more than one face
+	 * only report the first of west/east, down/up and north/south, matching the
+	 * face tracking in {@link RegionOcclusionCalculator}.
+	 */
+	static int faceFlags(long[] words) {
+		long west = 0;
+		long east = 0;
+		long down = 0;
+		long up = 0;
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			final long word = words[i];
+			west |= word & X0_MASK;
+			east |= word & X15_MASK;
+
+			if ((i & 3) == 0) {
+				down |= word & FIRST_ROW_MASK;
+			} else if ((i & 3) == 3) {
+				up |= word & LAST_ROW_MASK;
+			}
+		}
+
+		int result = 0;
+
+		if (west != 0) result |= FaceUtil.WEST_FLAG;
+		if (east != 0) result |= FaceUtil.EAST_FLAG;
+		if ((down & X_INTERIOR_MASK) != 0) result |= FaceUtil.DOWN_FLAG;
+		if ((up & X_INTERIOR_MASK) != 0) result |= FaceUtil.UP_FLAG;
+
+		// z faces exclude rows at y == 0 and y == 15, already reported as down/up
+		final long north = ((words[0] & ~FIRST_ROW_MASK) | words[1] | words[2] | (words[3] & ~LAST_ROW_MASK)) & X_INTERIOR_MASK;
+		final long south = ((words[60] & ~FIRST_ROW_MASK) | words[61] | words[62] | (words[63] & ~LAST_ROW_MASK)) & X_INTERIOR_MASK;
+
+		if (north != 0) result |= FaceUtil.NORTH_FLAG;
+		if (south != 0) result |= FaceUtil.SOUTH_FLAG;
+
+		return result;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Occlusion results of recent region builds, keyed by the opacity bits and build flags
+ * that {@link RegionOcclusionCalculator#build} reads. The flood fill, hidden interior
+ * positions and occluding boxes depend on opacity alone, so a rebuild that doesn't
+ * change opacity, as when a chest opens or a torch is placed on a wall, reuses them.
+ * Trimming of renderable positions and renderable bounds are cheap and are redone from
+ * the current renderable bits. Identical sections elsewhere, such as solid stone, hit
+ * the shared least-recently-used cache.
+ *
+ * <p>The shared cache holds a full copy of each key, so hash collisions can't return
+ * a wrong result from it. Entries themselves hold only the key hash, the result and
+ * the bits needed to restore the calculator, because regions retain the entry of their
+ * last build after it leaves the shared cache. The entry of a region's prior build is
+ * matched by hash alone. Entries are never modified after they are created and can be shared.
+ */
+public class OcclusionResultCache {
+	public static final OcclusionResultCache SHARED = new OcclusionResultCache(256);
+
+	private final int capacity;
+	private final Long2ObjectLinkedOpenHashMap<KeyedEntry> entries = new Long2ObjectLinkedOpenHashMap<>();
+	private final AtomicInteger regionHits = new AtomicInteger();
+	private final AtomicInteger sharedHits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	OcclusionResultCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public static long hash(long[] key) {
+		long result = key.length;
+
+		for (final long word : key) {
+			result = HashCommon.mix(result ^ word) * 0x9E3779B97F4A7C15L;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Entry with the given key, or null if none is cached. The given previous entry of
+	 * the region being built is checked first, by hash only, and doesn't need to be in the cache.
+	 */
+	public @Nullable Entry find(long hash, long[] key, @Nullable Entry previous) {
+		if (previous != null && previous.hash == hash) {
+			regionHits.incrementAndGet();
+			return previous;
+		}
+
+		KeyedEntry result;
+
+		synchronized (this) {
+			result = entries.getAndMoveToLast(hash);
+		}
+
+		if (result != null && Arrays.equals(result.key, key)) {
+			sharedHits.incrementAndGet();
+			return result.entry;
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Adds an entry for a result just computed and replaces any entry with the same hash.
+	 * The key is copied. Hidden words are kept and must not be modified. They may be null
+	 * if the computation hid no interior positions.
+	 */
+	public Entry put(long hash, long[] key, long @Nullable [] hiddenWords, OcclusionResult result) {
+		final Entry entry = new Entry(hash, hiddenWords, result);
+		final KeyedEntry keyed = new KeyedEntry(key.clone(), entry);
+
+		synchronized (this) {
+			entries.putAndMoveToLast(hash, keyed);
+
+			if (entries.size() > capacity) {
+				entries.removeFirst();
+			}
+		}
+
+		return entry;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public String debugSummary() {
+		return String.format("Occlusion cache region hits:%d shared hits:%d misses:%d entries:%d",
+				regionHits.get(),
+				sharedHits.get(),
+				misses.get(),
+				size());
+	}
+
+	/**
+	 * Result of one occlusion build with the hash of its key and the interior positions
+	 * the build hid because they can't be seen from outside the region. Hidden positions
+	 * are marked closed and not renderable. Hidden words are null when none were hidden.
+	 *
+	 * <p>The renderable bounds of the result are those of the build that created the entry.
+	 */
+	public static final class Entry {
+		private final long hash;
+		final long @Nullable [] hiddenWords;
+		public final OcclusionResult result;
+
+		private Entry(long hash, long @Nullable [] hiddenWords, OcclusionResult result) {
+			this.hash = hash;
+			this.hiddenWords = hiddenWords;
+			this.result = result;
+		}
+	}
+
+	private record KeyedEntry(long[] key, Entry entry) { }
+}
@@ -26,15 +26,15 @@ import static grondag.canvas.terrain.util.RenderRegionStateIndexer.TOTAL_CACHE_W
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.interiorIndex;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.regionIndex;
 
-import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import java.util.Arrays;
+
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.RenderShape;
 import net.minecraft.world.level.block.state.BlockState;
 
-import io.vram.frex.api.model.util.FaceUtil;
-
 import grondag.bitraster.PackedBox;
 import grondag.canvas.config.Configurator;
 import grondag.canvas.pipeline.Pipeline;
@@ -48,6 +48,9 @@ public abstract class RegionOcclusionCalculator {
 	private static final int RENDERABLE_OFFSET = TOTAL_CACHE_WORDS;
 	private static final int EXTERIOR_VISIBLE_OFFSET = RENDERABLE_OFFSET + TOTAL_CACHE_WORDS;
 	private static final int WORD_COUNT = EXTERIOR_VISIBLE_OFFSET + TOTAL_CACHE_WORDS;
+	/** Cache key holds all opacity words and build flags. */
+	private static final int KEY_FLAGS_INDEX = TOTAL_CACHE_WORDS;
+	private static final int KEY_WORD_COUNT = KEY_FLAGS_INDEX + 1;
 	static final long[] EMPTY_BITS = new long[WORD_COUNT];
 	private static final long[] EXTERIOR_MASK = new long[INTERIOR_CACHE_WORDS];
 
@@ -64,8 +67,15 @@ public abstract class RegionOcclusionCalculator {
 	}
 
 	public final BoxFinder boxFinder = new BoxFinder(new AreaFinder());
-	private final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+	public final RunBoxFinder runBoxFinder = new RunBoxFinder();
 	private final long[] bits = new long[WORD_COUNT];
+	private final long[] openBits = new long[INTERIOR_CACHE_WORDS];
+	private final long[] fillBits = new long[INTERIOR_CACHE_WORDS];
+	private final long[] neighborBits = new long[INTERIOR_CACHE_WORDS];
+	private final long[] hiddenBits = new long[INTERIOR_CACHE_WORDS];
+	private boolean hasHiddenBits;
+	private final long[] cacheKey = new long[KEY_WORD_COUNT];
+	private @Nullable OcclusionResultCache.Entry cacheEntry;
 	private int openCount;
 	private int minRenderableX;
 	private int minRenderableY;
@@ -74,23 +84,31 @@ public abstract class RegionOcclusionCalculator {
 	private int maxRenderableY;
 	private int maxRenderableZ;
 
-	/**
-	 * Accumulates exterior faces visited during fill to track which exterior
-	 * faces are connected. Used for occlusion.
-	 */
-	private int visitedFacesMask;
-
 	public void prepare() {
-		System.arraycopy(EMPTY_BITS, 0, bits, 0, WORD_COUNT);
+		reset();
 		captureExterior();
+		// closed exterior positions don't count against open interior positions
 		openCount = INTERIOR_STATE_COUNT;
 		captureInterior();
 	}
 
+	/**
+	 * Clears all positions to open and not renderable.
+	 */
+	void reset() {
+		System.arraycopy(EMPTY_BITS, 0, bits, 0, WORD_COUNT);
+		openCount = INTERIOR_STATE_COUNT;
+	}
+
 	protected abstract BlockState blockStateAtIndex(int regionIndex);
 
 	protected abstract boolean closedAtRelativePos(BlockState blockState, int regionIndex);
 
+	/**
+	 * State of every interior position if the interior holds a single state, or null otherwise.
+	 */
+	protected abstract @Nullable BlockState uniformInteriorState();
+
 	public boolean isClosed(int index) {
 		return (bits[(index >> 6)] & (1L << (index & 63))) != 0;
 	}
@@ -99,6 +117,30 @@ public abstract class RegionOcclusionCalculator {
 		return (bits[(interiorIndex >> 6) + RENDERABLE_OFFSET] & (1L << (interiorIndex & 63))) != 0;
 	}
 
+	/**
+	 * Index of the first renderable interior position at or after the given index,
+	 * or -1 if there are none. Skips empty words, so iterating a section that is
+	 * empty or only renders its surface does not visit every position.
+	 */
+	public int nextRenderable(int interiorIndex) {
+		if (interiorIndex >= INTERIOR_STATE_COUNT) {
+			return -1;
+		}
+
+		int wordIndex = interiorIndex >> 6;
+		long word = bits[wordIndex + RENDERABLE_OFFSET] & (-1L << (interiorIndex & 63));
+
+		while (word == 0) {
+			if (++wordIndex == INTERIOR_CACHE_WORDS) {
+				return -1;
+			}
+
+			word = bits[wordIndex + RENDERABLE_OFFSET];
+		}
+
+		return (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+	}
+
 	protected void setVisibility(int index, boolean isRenderable, boolean isClosed) {
 		final long mask = (1L << (index & 63));
 		final int baseIndex = index >> 6;
@@ -123,11 +165,36 @@ public abstract class RegionOcclusionCalculator {
 	}
 
 	private void captureInterior() {
+		final BlockState uniformState = uniformInteriorState();
+
+		// States without a dynamic shape have position-independent visibility,
+		// so a uniform interior can be classified once and filled a word at a time.
+		if (uniformState != null && !uniformState.hasDynamicShape()) {
+			captureUniformInterior(uniformState);
+			return;
+		}
+
 		for (int i = 0; i < INTERIOR_STATE_COUNT; i++) {
 			captureInteriorVisibility(i);
 		}
 	}
 
+	private void captureUniformInterior(BlockState blockState) {
+		if (blockState.getRenderShape() == RenderShape.INVISIBLE && blockState.getFluidState().isEmpty()) {
+			// empty - nothing to render and every position is open
+			return;
+		}
+
+		final boolean closed = closedAtRelativePos(blockState, 0) || (Configurator.renderWhiteGlassAsOccluder && blockState.getBlock() == Blocks.WHITE_STAINED_GLASS);
+		Arrays.fill(bits, RENDERABLE_OFFSET, RENDERABLE_OFFSET + INTERIOR_CACHE_WORDS, -1L);
+
+		if (closed) {
+			// uniform opaque - build() will reduce renderable positions to the visible surface
+			Arrays.fill(bits, 0, INTERIOR_CACHE_WORDS, -1L);
+			openCount = 0;
+		}
+	}
+
 	/**
 	 * Count of positions from adjacent regions that can potentially obscure this region.
 	 * Is also the count of positions in the interior region that can be obscured.
@@ -252,45 +319,6 @@ public abstract class RegionOcclusionCalculator {
 		}
 	}
 
-	/**
-	 * Checks if the position is interior and not already visited.
-	 * If the position is interior and not already visited, marks it visited
-	 * and returns a boolean indicating opacity.
-	 *
-	 * @param index
-	 * @return True if position met the conditions for visiting AND was not opaque.
-	 */
-	private boolean setVisited(int index) {
-		// interior only
-		if (index >= INTERIOR_STATE_COUNT) {
-			return false;
-		}
-
-		final int wordIndex = index >> 6;
-		final long mask = 1L << (index & 63);
-
-		if ((bits[wordIndex + EXTERIOR_VISIBLE_OFFSET] & mask) == 0) {
-			// not already visited
-
-			// mark visited
-			bits[wordIndex + EXTERIOR_VISIBLE_OFFSET] |= mask;
-
-			// return opacity result
-			if ((bits[wordIndex] & mask) == 0) {
-				if (!Pipeline.advancedTerrainCulling()) {
-					trackVistedFaces(index);
-				}
-
-				return true;
-			} else {
-				return false;
-			}
-		} else {
-			// already visited
-			return false;
-		}
-	}
-
 	private void clearInteriorRenderable(int interiorIndex) {
 		bits[(interiorIndex >> 6) + RENDERABLE_OFFSET] &= ~(1L << (interiorIndex & 63));
 	}
@@ -466,20 +494,30 @@ public abstract class RegionOcclusionCalculator {
 	/**
 	 * Removes renderable flag and marks closed if position has no open neighbors and is not visible from exterior.
 	 * Should not be called if camera may be inside the chunk!
+	 *
+	 * <p>Hidden positions depend only on opacity and are kept in {@link #hiddenBits}.
 	 */
 	private void hideInteriorClosedPositions() {
-		for (int i = 0; i < INTERIOR_STATE_COUNT; i++) {
-			final long mask = (1L << (i & 63));
-			final int wordIndex = (i >> 6);
-			final int x = i & 0xF;
-			final int y = (i >> 4) & 0xF;
-			final int z = (i >> 8) & 0xF;
-
-			if ((bits[wordIndex + EXTERIOR_VISIBLE_OFFSET] & mask) == 0 && x != 0 && y != 0 && z != 0 && x != 15 && y != 15 && z != 15) {
-				bits[wordIndex + RENDERABLE_OFFSET] &= ~mask;
-				// mark it opaque
-				bits[wordIndex] |= mask;
-			}
+		boolean hasHidden = false;
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; i++) {
+			final long hidden = ~(bits[i + EXTERIOR_VISIBLE_OFFSET] | EXTERIOR_MASK[i]);
+			hiddenBits[i] = hidden;
+			hasHidden |= hidden != 0;
+		}
+
+		if (hasHidden) {
+			hidePositions(hiddenBits);
+			hasHiddenBits = true;
+		}
+	}
+
+	private void hidePositions(long[] hiddenWords) {
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; i++) {
+			final long hidden = hiddenWords[i];
+			bits[i + RENDERABLE_OFFSET] &= ~hidden;
+			// mark it opaque
+			bits[i] |= hidden;
 		}
 	}
 
@@ -553,58 +591,118 @@ public abstract class RegionOcclusionCalculator {
 		maxRenderableZ = maxZ < minZ ? minZ : maxZ;
 	}
 
-	private void visitSurfaceIfPossible(int index) {
-		if (setVisited(index)) {
-			fill(index);
+	/**
+	 * Packed box of renderable interior positions, for {@link #OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX}.
+	 */
+	private int renderableBounds() {
+		computeRenderableBounds();
+
+		if (minRenderableX == Integer.MAX_VALUE) {
+			return PackedBox.EMPTY_BOX;
+		} else if ((minRenderableX | minRenderableY | minRenderableZ) == 0 && (maxRenderableX & maxRenderableY & maxRenderableZ) == 15) {
+			return PackedBox.FULL_BOX;
+		} else {
+			return PackedBox.pack(minRenderableX, minRenderableY, minRenderableZ,
+					maxRenderableX + 1, maxRenderableY + 1, maxRenderableZ + 1, PackedBox.RANGE_EXTREME);
 		}
 	}
 
-	private OcclusionResult computeOcclusion(boolean isNear) {
+	/**
+	 * Marks interior surface positions not covered by neighboring regions as seeds for
+	 * a fill, using the given range of covering indexes.
+	 *
+	 * @return true if any seeds were found
+	 */
+	private boolean captureSeeds(int start, int end) {
+		final long[] fillBits = this.fillBits;
+		System.arraycopy(EMPTY_BITS, 0, fillBits, 0, INTERIOR_CACHE_WORDS);
+		boolean result = false;
+
+		for (int i = start; i < end; ++i) {
+			if (!isClosed(COVERING_INDEXES[i])) {
+				final int index = COVERED_INDEXES[i];
+				fillBits[index >> 6] |= 1L << (index & 63);
+				result = true;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fills from the seeds in {@link #fillBits} through open positions not already visited.
+	 * Visited positions, including closed seeds and closed positions adjacent to the fill,
+	 * are added to the exterior visible bits.
+	 *
+	 * <p>On return, {@link #fillBits} contains only the newly visited open positions.
+	 */
+	private void fillFromSeeds() {
+		final long[] bits = this.bits;
+		final long[] fillBits = this.fillBits;
+		final long[] openBits = this.openBits;
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			final long seeds = fillBits[i];
+			final int visitedIndex = i + EXTERIOR_VISIBLE_OFFSET;
+			// An open position already visited belongs to a region that has already been filled
+			fillBits[i] = seeds & openBits[i] & ~bits[visitedIndex];
+			bits[visitedIndex] |= seeds;
+		}
+
+		BitFloodFill.fill(fillBits, openBits);
+		BitFloodFill.neighbors(fillBits, neighborBits);
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			bits[i + EXTERIOR_VISIBLE_OFFSET] |= fillBits[i] | (neighborBits[i] & ~openBits[i]);
+		}
+	}
+
+	private OcclusionResult computeOcclusion(boolean isNear, boolean advancedCulling, boolean runLengthBoxes) {
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			openBits[i] = ~bits[i];
+		}
+
 		// Determine which blocks are visible by visiting exterior blocks
 		// that aren't occluded by neighboring regions and doing a fill from there.
 		long mutualFaceMask = 0;
 
-		if (Pipeline.advancedTerrainCulling()) {
-			for (int i = 0; i < COVERING_INDEX_COUNT; ++i) {
-				if (!isClosed(COVERING_INDEXES[i])) {
-					visitSurfaceIfPossible(COVERED_INDEXES[i]);
-				}
+		if (advancedCulling) {
+			if (captureSeeds(0, COVERING_INDEX_COUNT)) {
+				fillFromSeeds();
 			}
 		} else {
-			for (int i = 0; i < COVERING_INDEX_COUNT; ++i) {
-				// face indices are six groups of 256, one for each face.
-				// We want to reset visibility search on each new face and
-				// exploit this fact to know when we progress to the next face
-				if ((i & 0xFF) == 0) {
+			// face indices are six groups of 256, one for each face.
+			// Faces reached by fills from each face are connected to each other.
+			// Positions reached from an earlier face aren't counted again.
+			for (int i = 0; i < COVERING_INDEX_COUNT; i += 256) {
+				if (captureSeeds(i, i + 256)) {
+					fillFromSeeds();
+					final int visitedFacesMask = BitFloodFill.faceFlags(fillBits);
+
 					if (visitedFacesMask != 0) {
 						mutualFaceMask |= OcclusionResult.buildMutualFaceMask(visitedFacesMask);
-						visitedFacesMask = 0;
 					}
 				}
-
-				if (!isClosed(COVERING_INDEXES[i])) {
-					visitSurfaceIfPossible(COVERED_INDEXES[i]);
-				}
-			}
-
-			if (visitedFacesMask != 0) {
-				mutualFaceMask |= OcclusionResult.buildMutualFaceMask(visitedFacesMask);
-				visitedFacesMask = 0;
 			}
 		}
 
-		if (Pipeline.advancedTerrainCulling()) {
+		if (advancedCulling) {
 			// don't hide inside position if we may be inside the chunk!
 			if (!isNear) {
 				hideInteriorClosedPositions();
 			}
 
-			computeRenderableBounds();
+			final int renderableBounds = renderableBounds();
 
-			final BoxFinder boxFinder = this.boxFinder;
-			final IntArrayList boxes = boxFinder.boxes;
+			final IntArrayList boxes;
 
-			boxFinder.findBoxes(bits, 0);
+			if (runLengthBoxes) {
+				runBoxFinder.findBoxes(bits, 0);
+				boxes = runBoxFinder.boxes;
+			} else {
+				boxFinder.findBoxes(bits, 0);
+				boxes = boxFinder.boxes;
+			}
 
 			final int boxCount = boxes.size();
 
@@ -618,122 +716,100 @@ public abstract class RegionOcclusionCalculator {
 				}
 			}
 
-			if (minRenderableX == Integer.MAX_VALUE) {
-				result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = PackedBox.EMPTY_BOX;
-			} else {
-				if ((minRenderableX | minRenderableY | minRenderableZ) == 0 && (maxRenderableX & maxRenderableY & maxRenderableZ) == 15) {
-					result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = PackedBox.FULL_BOX;
-				} else {
-					result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = PackedBox.pack(minRenderableX, minRenderableY, minRenderableZ,
-							maxRenderableX + 1, maxRenderableY + 1, maxRenderableZ + 1, PackedBox.RANGE_EXTREME);
-				}
-			}
-
+			result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = renderableBounds;
 			return new OcclusionResult(result, 0L);
 		} else {
 			return new OcclusionResult(null, mutualFaceMask);
 		}
 	}
 
-	public OcclusionResult build(boolean isNear) {
-		if (openCount == 0) {
-			// If there are no open interior positions then only surface blocks can be visible,
-			// and only if they not covered by positions in adjacent sections.
+	/**
+	 * Computes occlusion for the captured region, or reuses the result of an earlier
+	 * build with the same opacity. Either way, opacity and renderable bits are left as
+	 * the computation would leave them. See {@link OcclusionResultCache}.
+	 *
+	 * @param previous cache entry of the prior build of the same region, checked first
+	 */
+	public OcclusionResult build(boolean isNear, @Nullable OcclusionResultCache.Entry previous) {
+		return build(OcclusionResultCache.SHARED, isNear, Pipeline.advancedTerrainCulling(), Configurator.runLengthOcclusionBoxes, previous);
+	}
 
-			// PERF: should do this after hiding interior closed positions?
-			// PERF: should still compute render box instead of assuming it is full
-			//       because the only visible/renderable area could be quite small because of
-			//       adjacent regions occluding most of this region
-			adjustSurfaceVisibility();
+	OcclusionResult build(OcclusionResultCache cache, boolean isNear, boolean advancedCulling, boolean runLengthBoxes, @Nullable OcclusionResultCache.Entry previous) {
+		final long[] key = cacheKey;
+		System.arraycopy(bits, 0, key, 0, TOTAL_CACHE_WORDS);
+		key[KEY_FLAGS_INDEX] = (isNear ? 1 : 0) | (advancedCulling ? 2 : 0) | (runLengthBoxes ? 4 : 0);
 
-			final int[] result = new int[2];
-			result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = PackedBox.FULL_BOX;
+		final long hash = OcclusionResultCache.hash(key);
+		OcclusionResultCache.Entry entry = cache.find(hash, key, previous);
+		OcclusionResult result;
 
-			// entire region acts as an occluder
-			result[OCCLUSION_RESULT_FIRST_BOX_INDEX] = PackedBox.FULL_BOX;
-			return new OcclusionResult(result, 0L);
+		if (entry == null) {
+			hasHiddenBits = false;
+			result = compute(isNear, advancedCulling, runLengthBoxes);
+			entry = cache.put(hash, key, hasHiddenBits ? hiddenBits.clone() : null, result);
 		} else {
-			return computeOcclusion(isNear);
+			result = restore(entry, advancedCulling);
 		}
-	}
-
-	private void fill(int xyz4) {
-		visit(xyz4);
 
-		while (!queue.isEmpty()) {
-			final int nextXyz4 = queue.dequeueInt();
-			visit(nextXyz4);
-		}
+		cacheEntry = entry;
+		return result;
 	}
 
-	private void visit(int xyz4) {
-		final int x = xyz4 & 0xF;
-
-		if (x == 0) {
-			enqueIfUnvisited(xyz4 + 1);
-		} else if (x == 15) {
-			enqueIfUnvisited(xyz4 - 1);
-		} else {
-			enqueIfUnvisited(xyz4 - 1);
-			enqueIfUnvisited(xyz4 + 1);
+	/**
+	 * Repeats the renderable trimming of {@link #compute} using opacity-dependent parts of
+	 * the cached result. Renderable positions aren't part of the key, so renderable bounds
+	 * are recomputed and the cached result is only returned if they match.
+	 */
+	private OcclusionResult restore(OcclusionResultCache.Entry entry, boolean advancedCulling) {
+		if (openCount == 0) {
+			adjustSurfaceVisibility();
+			return entry.result;
 		}
 
-		final int y = xyz4 & 0xF0;
-
-		if (y == 0) {
-			enqueIfUnvisited(xyz4 + 0x10);
-		} else if (y == 0xF0) {
-			enqueIfUnvisited(xyz4 - 0x10);
-		} else {
-			enqueIfUnvisited(xyz4 - 0x10);
-			enqueIfUnvisited(xyz4 + 0x10);
+		if (entry.hiddenWords != null) {
+			hidePositions(entry.hiddenWords);
 		}
 
-		final int z = xyz4 & 0xF00;
-
-		if (z == 0) {
-			enqueIfUnvisited(xyz4 + 0x100);
-		} else if (z == 0xF00) {
-			enqueIfUnvisited(xyz4 - 0x100);
-		} else {
-			enqueIfUnvisited(xyz4 - 0x100);
-			enqueIfUnvisited(xyz4 + 0x100);
+		if (!advancedCulling) {
+			return entry.result;
 		}
-	}
 
-	private void trackVistedFaces(int xyz4) {
-		final int x = xyz4 & 0xF;
+		final int renderableBounds = renderableBounds();
+		final int[] occlusionData = entry.result.occlusionData();
 
-		if (x == 0) {
-			visitedFacesMask |= FaceUtil.WEST_FLAG;
-			return;
-		} else if (x == 15) {
-			visitedFacesMask |= FaceUtil.EAST_FLAG;
-			return;
+		if (occlusionData[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] == renderableBounds) {
+			return entry.result;
 		}
 
-		final int y = xyz4 & 0xF0;
+		final int[] result = occlusionData.clone();
+		result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = renderableBounds;
+		return new OcclusionResult(result, entry.result.mutalFaceMask());
+	}
 
-		if (y == 0) {
-			visitedFacesMask |= FaceUtil.DOWN_FLAG;
-			return;
-		} else if (y == 0xF0) {
-			visitedFacesMask |= FaceUtil.UP_FLAG;
-			return;
-		}
+	/** Cache entry of the most recent {@link #build(boolean, OcclusionResultCache.Entry)}. */
+	public @Nullable OcclusionResultCache.Entry cacheEntry() {
+		return cacheEntry;
+	}
 
-		final int z = xyz4 & 0xF00;
+	private OcclusionResult compute(boolean isNear, boolean advancedCulling, boolean runLengthBoxes) {
+		if (openCount == 0) {
+			// If there are no open interior positions then only surface blocks can be visible,
+			// and only if they not covered by positions in adjacent sections.
 
-		if (z == 0) {
-			visitedFacesMask |= FaceUtil.NORTH_FLAG;
-		} else if (z == 0xF00) {
-			visitedFacesMask |= FaceUtil.SOUTH_FLAG;
-		}
-	}
+			// PERF: should do this after hiding interior closed positions?
+			// PERF: should still compute render box instead of assuming it is full
+			//       because the only visible/renderable area could be quite small because of
+			//       adjacent regions occluding most of this region
+			adjustSurfaceVisibility();
+
+			final int[] result = new int[2];
+			result[OCCLUSION_RESULT_RENDERABLE_BOUNDS_INDEX] = PackedBox.FULL_BOX;
 
-	private void enqueIfUnvisited(int xyz4) {
-		if (setVisited(xyz4)) {
-			queue.enqueue(xyz4);
+			// entire region acts as an occluder
+			result[OCCLUSION_RESULT_FIRST_BOX_INDEX] = PackedBox.FULL_BOX;
+			return new OcclusionResult(result, 0L);
+		} else {
+			return computeOcclusion(isNear, advancedCulling, runLengthBoxes);
 		}
 	}
 }
@@ -0,0 +1,221 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.INTERIOR_CACHE_WORDS;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import grondag.bitraster.PackedBox;
+
+/**
+ * Alternative to {@link BoxFinder} that doesn't test candidate areas. Slice words
+ * are split into 16-bit rows, one per x run of a y, z position. Each position not
+ * yet covered seeds a box that takes the uncovered run along x from the seed,
+ * then grows along y and z as far as every row keeps the run solid. Both growth
+ * orders are tried and the larger box is kept, which is then widened along x
+ * through solid positions.
+ *
+ * <p>Boxes may overlap, which lets later boxes be larger. Every solid position
+ * is covered and no box covers an open position.
+ */
+public class RunBoxFinder {
+	public final IntArrayList boxes = new IntArrayList();
+	/** Solid positions, one row of x bits for each y | z << 4. */
+	private final int[] solid = new int[256];
+	/** Solid positions not yet covered by a box. */
+	private final int[] remaining = new int[256];
+	/** Volume in high bits and packed box in low bits, for largest-first output. */
+	private final LongArrayList sortedBoxes = new LongArrayList();
+
+	public void findBoxes(long[] sourceBits, int sourceIndex) {
+		final int[] solid = this.solid;
+		final int[] remaining = this.remaining;
+
+		for (int i = 0; i < INTERIOR_CACHE_WORDS; ++i) {
+			final long word = sourceBits[sourceIndex + i];
+			final int row = i << 2;
+			solid[row] = (int) word & 0xFFFF;
+			solid[row + 1] = (int) (word >>> 16) & 0xFFFF;
+			solid[row + 2] = (int) (word >>> 32) & 0xFFFF;
+			solid[row + 3] = (int) (word >>> 48);
+		}
+
+		System.arraycopy(solid, 0, remaining, 0, 256);
+		sortedBoxes.clear();
+
+		for (int row = 0; row < 256; ++row) {
+			int bits;
+
+			while ((bits = remaining[row]) != 0) {
+				growBox(Integer.numberOfTrailingZeros(bits), row & 15, row >> 4);
+			}
+		}
+
+		sortedBoxes.sort((a, b) -> Long.compare(b, a));
+		boxes.clear();
+		final int limit = sortedBoxes.size();
+
+		for (int i = 0; i < limit; ++i) {
+			boxes.add((int) sortedBoxes.getLong(i));
+		}
+	}
+
+	private void growBox(int seedX, int seedY, int seedZ) {
+		// seed is the lowest uncovered bit, so the uncovered run starts there
+		final int x0 = seedX;
+		final int x1 = x0 + Integer.numberOfTrailingZeros(~(remaining[seedY | (seedZ << 4)] >>> x0));
+		int mask = ((1 << (x1 - x0)) - 1) << x0;
+
+		// y first, then z
+		final int ya0 = growYDown(mask, seedY, seedZ, seedZ + 1);
+		final int ya1 = growYUp(mask, seedY + 1, seedZ, seedZ + 1);
+		final int za0 = growZDown(mask, seedZ, ya0, ya1);
+		final int za1 = growZUp(mask, seedZ + 1, ya0, ya1);
+
+		// z first, then y
+		final int zb0 = growZDown(mask, seedZ, seedY, seedY + 1);
+		final int zb1 = growZUp(mask, seedZ + 1, seedY, seedY + 1);
+		final int yb0 = growYDown(mask, seedY, zb0, zb1);
+		final int yb1 = growYUp(mask, seedY + 1, zb0, zb1);
+
+		final int y0;
+		final int y1;
+		final int z0;
+		final int z1;
+
+		if ((ya1 - ya0) * (za1 - za0) >= (yb1 - yb0) * (zb1 - zb0)) {
+			y0 = ya0;
+			y1 = ya1;
+			z0 = za0;
+			z1 = za1;
+		} else {
+			y0 = yb0;
+			y1 = yb1;
+			z0 = zb0;
+			z1 = zb1;
+		}
+
+		// widen along x through solid positions, possibly overlapping earlier boxes
+		mask = growX(mask, y0, y1, z0, z1);
+		final int[] remaining = this.remaining;
+
+		for (int z = z0; z < z1; ++z) {
+			for (int y = y0; y < y1; ++y) {
+				remaining[y | (z << 4)] &= ~mask;
+			}
+		}
+
+		final int dx = Integer.bitCount(mask);
+		final int dy = y1 - y0;
+		final int dz = z1 - z0;
+		final int vol = dx * dy * dz;
+		final boolean isSection = (dx == 16 ? 1 : 0) + (dy == 16 ? 1 : 0) + (dz == 16 ? 1 : 0) >= 2;
+		final int range = isSection ? PackedBox.RANGE_EXTREME : rangeFromVolume(vol);
+		sortedBoxes.add(((long) vol << 32) | (PackedBox.pack(Integer.numberOfTrailingZeros(mask), y0, z0, 32 - Integer.numberOfLeadingZeros(mask), y1, z1, range) & 0xFFFFFFFFL));
+	}
+
+	/** True if the run is solid in every row from z0 to z1 at the given y. */
+	private boolean isSolidAtY(int mask, int y, int z0, int z1) {
+		for (int z = z0; z < z1; ++z) {
+			if ((solid[y | (z << 4)] & mask) != mask) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** True if the run is solid in every row from y0 to y1 at the given z. */
+	private boolean isSolidAtZ(int mask, int z, int y0, int y1) {
+		final int base = z << 4;
+
+		for (int y = y0; y < y1; ++y) {
+			if ((solid[base | y] & mask) != mask) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Extends the run one x position at a time while every row in the y, z rectangle is solid there. */
+	private int growX(int mask, int y0, int y1, int z0, int z1) {
+		int bit;
+
+		while ((bit = (mask >>> 1) & ~mask) != 0 && isSolidRect(bit, y0, y1, z0, z1)) {
+			mask |= bit;
+		}
+
+		while ((bit = (mask << 1) & ~mask & 0xFFFF) != 0 && isSolidRect(bit, y0, y1, z0, z1)) {
+			mask |= bit;
+		}
+
+		return mask;
+	}
+
+	private boolean isSolidRect(int mask, int y0, int y1, int z0, int z1) {
+		for (int z = z0; z < z1; ++z) {
+			if (!isSolidAtZ(mask, z, y0, y1)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private int growYDown(int mask, int y0, int z0, int z1) {
+		while (y0 > 0 && isSolidAtY(mask, y0 - 1, z0, z1)) {
+			--y0;
+		}
+
+		return y0;
+	}
+
+	private int growYUp(int mask, int y1, int z0, int z1) {
+		while (y1 < 16 && isSolidAtY(mask, y1, z0, z1)) {
+			++y1;
+		}
+
+		return y1;
+	}
+
+	private int growZDown(int mask, int z0, int y0, int y1) {
+		while (z0 > 0 && isSolidAtZ(mask, z0 - 1, y0, y1)) {
+			--z0;
+		}
+
+		return z0;
+	}
+
+	private int growZUp(int mask, int z1, int y0, int y1) {
+		while (z1 < 16 && isSolidAtZ(mask, z1, y0, y1)) {
+			++z1;
+		}
+
+		return z1;
+	}
+
+	private static int rangeFromVolume(int maxArea) {
+		return maxArea <= 64 ? PackedBox.RANGE_NEAR : maxArea > 512 ? PackedBox.RANGE_FAR : PackedBox.RANGE_MID;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.region;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.apiimpl.rendercontext.CanvasTerrainRenderContext;
+import grondag.canvas.terrain.util.TerrainExecutor;
+import grondag.canvas.terrain.util.TerrainExecutorTask;
+
+/**
+ * Rebuilds a group of regions that must be complete before the frame continues,
+ * using terrain workers as well as the render thread.
+ *
+ * <p>Inputs are captured and results applied on the render thread, in the order regions
+ * were added.  Tessellation is claimed one region at a time by privileged executor tasks
+ * and by the render thread itself, which keeps claiming until none are left and then
+ * waits for any still running on workers.  Because the render thread takes whatever
+ * workers have not, the batch completes even if queued tasks are dropped.
+ *
+ * <p>Not reusable - stale tasks from a prior batch must not see new builds.
+ */
+class MainThreadBuildBatch {
+	private final ObjectArrayList<RenderRegion.MainThreadBuild> builds = new ObjectArrayList<>();
+	private final AtomicInteger nextBuild = new AtomicInteger();
+	private final AtomicInteger completedCount = new AtomicInteger();
+	private final Thread renderThread = Thread.currentThread();
+
+	private final TerrainExecutorTask helper = new TerrainExecutorTask() {
+		@Override
+		public void run(CanvasTerrainRenderContext context) {
+			tessellate(context);
+		}
+
+		@Override
+		public int priority() {
+			return -1;
+		}
+	};
+
+	/** Captures input for the region. Regions that turn out to be empty are handled immediately. */
+	void add(RenderRegion region) {
+		final RenderRegion.MainThreadBuild build = region.prepareMainThreadBuild();
+
+		if (build != null) {
+			builds.add(build);
+		}
+	}
+
+	void buildAll() {
+		final int count = builds.size();
+
+		if (count == 0) {
+			return;
+		}
+
+		// Render thread does its share, so one fewer helper than builds is enough
+		final int helperCount = Math.min(count - 1, Runtime.getRuntime().availableProcessors() - 1);
+
+		for (int i = 0; i < helperCount; ++i) {
+			TerrainExecutor.INSTANCE.execute(helper);
+		}
+
+		tessellate(builds.get(0).region.mainThreadContext());
+
+		while (completedCount.get() < count) {
+			LockSupport.park(this);
+		}
+
+		for (final RenderRegion.MainThreadBuild build : builds) {
+			build.region.completeMainThreadBuild(build);
+		}
+	}
+
+	private void tessellate(CanvasTerrainRenderContext context) {
+		final int count = builds.size();
+		int index;
+
+		while ((index = nextBuild.getAndIncrement()) < count) {
+			try {
+				RenderRegion.tessellateMainThreadBuild(builds.get(index), context);
+			} catch (final Exception e) {
+				CanvasMod.LOG.error("Unhandled error during parallel region rebuild. Impact unknown.", e);
+			} finally {
+				if (completedCount.incrementAndGet() == count) {
+					LockSupport.unpark(renderThread);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.region;
+
+/**
+ * Adjusts the time the render thread spends on region rebuilds each frame
+ * to hold a target frame time.
+ *
+ * <p>Frame rate limiters and vsync hide any headroom a frame has, so the controller
+ * can't compute the ideal budget directly.  Instead it probes: the budget grows by a
+ * small step each frame that meets the target, and more slowly once near the budget
+ * that last caused a miss.  It holds while frames are slightly over and shrinks by
+ * the full overrun when frames are clearly over.  The budget never exceeds
+ * the estimated cost of draining the queue, so it can't wind up while idle, and
+ * never drops below a floor that keeps the queue moving when frames are slow
+ * for reasons rebuilds can't fix.
+ *
+ * <p>Has no dependencies on game or render state so it can be tested by simulation.
+ * Not thread-safe.
+ */
+public class RebuildBudgetController {
+	static final long MIN_BUDGET_NANOS = 500_000L;
+	static final long MAX_BUDGET_NANOS = 33_333_333L;
+	private static final long INITIAL_REGION_COST_NANOS = 1_000_000L;
+	/** Frame times longer than this are pauses or hitches and say nothing about steady state. */
+	private static final long MAX_MEANINGFUL_FRAME_NANOS = 1_000_000_000L;
+	/** Frames over the target by less than this fraction don't reduce the budget. Absorbs jitter. */
+	private static final float TARGET_TOLERANCE = 0.05f;
+	/** Weight of the newest sample in the per-region cost average. */
+	private static final float COST_SMOOTHING = 0.1f;
+
+	private long budgetNanos = MIN_BUDGET_NANOS;
+	private long regionCostNanos = INITIAL_REGION_COST_NANOS;
+	/** Budget in effect at the most recent missed frame. */
+	private long missBudgetNanos = MAX_BUDGET_NANOS;
+
+	/** Time the render thread should spend on uploads and rebuilds this frame. */
+	public long budgetNanos() {
+		return budgetNanos;
+	}
+
+	/** Recent average cost of processing one queued region on the render thread. */
+	public long regionCostNanos() {
+		return regionCostNanos;
+	}
+
+	/**
+	 * Call once per frame before any rebuild work is done.
+	 *
+	 * @param frameNanos Measured duration of the prior frame, start to start
+	 * @param targetFrameNanos Frame duration to hold
+	 * @param queueDepth Number of regions waiting to be processed
+	 */
+	public void update(long frameNanos, long targetFrameNanos, int queueDepth) {
+		if (frameNanos > 0 && frameNanos < MAX_MEANINGFUL_FRAME_NANOS) {
+			long budget = budgetNanos;
+
+			if (frameNanos <= targetFrameNanos) {
+				final long step = Math.max(MIN_BUDGET_NANOS / 2, regionCostNanos / 4);
+				// Approach the budget that last caused a miss cautiously
+				budget += budget < missBudgetNanos - step * 2 ? step : step / 8;
+			} else if (frameNanos > targetFrameNanos + (long) (targetFrameNanos * TARGET_TOLERANCE)) {
+				missBudgetNanos = budget;
+				budget -= frameNanos - targetFrameNanos;
+			}
+
+			budgetNanos = budget;
+		}
+
+		final long neededNanos = regionCostNanos * queueDepth;
+		budgetNanos = Math.max(MIN_BUDGET_NANOS, Math.min(budgetNanos, Math.min(MAX_BUDGET_NANOS, neededNanos)));
+	}
+
+	/**
+	 * Call after rebuild work for the frame is done.
+	 *
+	 * @param elapsedNanos Time spent on uploads and rebuilds
+	 * @param regionCount Number of queued regions processed in that time
+	 */
+	public void recordWork(long elapsedNanos, int regionCount) {
+		if (regionCount > 0) {
+			final long sample = elapsedNanos / regionCount;
+			regionCostNanos = Math.max(1, regionCostNanos + (long) ((sample - regionCostNanos) * COST_SMOOTHING));
+		}
+	}
+}
@@ -45,21 +45,38 @@ public class RegionBuildState {
 	@Nullable
 	int[] translucentState;
 
+	/** True if all translucent quads are in one plane without overlap, so resorting can't change their appearance. */
+	boolean translucentIsPlanar;
+
+	/** True if built as a coarse distant-terrain mesh. See {@link RegionPosition#isLod()}. */
+	boolean isLod;
+
 	public List<BlockEntity> getBlockEntities() {
 		return blockEntities;
 	}
 
 	/**
 	 * Persists data for translucency resort if needed, also performing initial sort.
-	 * Should be called after vertex collection is complete.
+	 * Should be called after vertex collection is complete. Distant-terrain meshes
+	 * are only sorted here and never resorted.
+	 *
+	 * @return true if translucent quads were sorted
 	 */
-	public void prepareTranslucentIfNeeded(Vec3 sortPos, RegionRenderSector sector, VertexCollectorList collectors) {
+	public boolean prepareTranslucentIfNeeded(Vec3 sortPos, RegionRenderSector sector, VertexCollectorList collectors) {
 		final DrawableVertexCollector buffer = collectors.getIfExists(TerrainRenderStates.TRANSLUCENT_TERRAIN);
 
-		if (buffer != null && !buffer.isEmpty()) {
-			buffer.sortTerrainQuads(sortPos, sector);
+		if (buffer == null || buffer.isEmpty()) {
+			return false;
+		}
+
+		buffer.sortTerrainQuads(sortPos, sector);
+
+		if (!isLod) {
 			translucentState = buffer.saveState(translucentState);
+			translucentIsPlanar = buffer.isCoplanar();
 		}
+
+		return true;
 	}
 
 	public OcclusionResult getOcclusionResult() {
@@ -0,0 +1,467 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.region;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.apiimpl.rendercontext.encoder.TerrainQuadEncoder;
+import grondag.canvas.buffer.format.TerrainEncoder;
+import grondag.canvas.config.Configurator;
+import grondag.canvas.material.state.CanvasRenderMaterial;
+import grondag.canvas.pipeline.Pipeline;
+import grondag.canvas.terrain.region.input.InputRegion;
+import grondag.canvas.terrain.region.input.RegionContentHash;
+
+/**
+ * Optional on-disk store of tessellated region output, keyed by a hash of everything
+ * tessellation reads from the world.  Lets regions that are rebuilt without having
+ * changed - after rejoining a server, changing dimension or changing render distance -
+ * replay their quads instead of running models, lighting and color again.
+ *
+ * <p>Encoded quads contain material indexes that are assigned at run time, so entries
+ * are only valid until atlases or configuration are reloaded, or the block state
+ * registry is remapped.  Each such period gets its own directory and an in-memory
+ * index of the entries written to it; anything not in the index is never read.
+ * Directories of prior periods and prior launches are deleted in the background.
+ *
+ * <p>Terrain workers never wait on file IO. Writes run on the IO pool, and reads are
+ * started there when a region is scheduled, using the key last stored for its origin.
+ * A build replays the entry only if that read has already completed with a matching key.
+ */
+public class RegionMeshDiskCache {
+	private static final int MAGIC = 0x43524D43;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_BYTES = 36;
+	private static final String DIRECTORY_NAME = "canvas_mesh_cache";
+	/** Reads started ahead of builds are skipped beyond this many pending results. */
+	private static final int MAX_PREFETCHED = 1024;
+	private static final ThreadLocal<RegionContentHash> HASH = ThreadLocal.withInitial(RegionContentHash::new);
+
+	private static volatile @Nullable Session session = null;
+	private static long registryHash = 0;
+
+	private RegionMeshDiskCache() { }
+
+	/** Discards all entries. Call when anything that affects encoded output outside of region content changes. */
+	public static synchronized void invalidate() {
+		final Session prior = session;
+		session = null;
+
+		if (prior != null) {
+			prior.discard();
+		}
+	}
+
+	/**
+	 * Call on renderer reload.  Block state IDs can be remapped when joining a server,
+	 * which would make keys computed from them ambiguous.
+	 */
+	public static void checkRegistry() {
+		final RegionContentHash hash = HASH.get().reset(0);
+
+		for (final BlockState state : Block.BLOCK_STATE_REGISTRY) {
+			hash.add(System.identityHashCode(state));
+		}
+
+		final long newHash = hash.high();
+
+		synchronized (RegionMeshDiskCache.class) {
+			if (newHash != registryHash) {
+				registryHash = newHash;
+				invalidate();
+			}
+		}
+	}
+
+	/**
+	 * @return Key for the region's current content, or null if the region can't be cached
+	 */
+	static @Nullable String key(InputRegion region) {
+		if (!Configurator.terrainMeshDiskCache || !region.isContentHashable()) {
+			return null;
+		}
+
+		final RegionContentHash hash = HASH.get().reset(FORMAT_VERSION);
+		final Minecraft mc = Minecraft.getInstance();
+		hash.add(mc.options.ambientOcclusion.ordinal());
+		hash.add(mc.options.biomeBlendRadius);
+		// Pipeline and lighting options that change encoded output
+		hash.add(Configurator.pipelineId.hashCode());
+		hash.add((Configurator.lightSmoothing ? 1 : 0)
+				| (Configurator.semiFlatLighting ? 2 : 0)
+				| (Configurator.fixLuminousBlockShading ? 4 : 0)
+				| (Configurator.blendFluidColors ? 8 : 0)
+				| (Configurator.vertexBiomeBlending ? 16 : 0)
+				| (Pipeline.terrainQuadMerging() ? 32 : 0)
+				| (Pipeline.advancedTerrainCulling() ? 64 : 0));
+		region.hashContent(hash);
+		return String.format("%016x%016x", hash.high(), hash.low());
+	}
+
+	/** Starts a segment to record all output of a region being tessellated for storage. */
+	static SubRegionMeshCache.Segment newRecorder() {
+		return new SubRegionMeshCache.Segment(TerrainEncoder.TERRAIN_MATERIAL.quadStrideInts, false);
+	}
+
+	/**
+	 * Starts reading the entry last stored for the region at the given origin, if any,
+	 * so a build that follows can replay it without waiting. Call when scheduling a build.
+	 */
+	static void prefetch(long regionOrigin) {
+		if (!Configurator.terrainMeshDiskCache) {
+			return;
+		}
+
+		final Session current = session();
+
+		if (current != null) {
+			current.prefetch(regionOrigin);
+		}
+	}
+
+	/**
+	 * Replays previously stored output for the given key, relocated to the encoder's current sector.
+	 * Only output already read by {@link #prefetch(long)} is used - this never reads from disk.
+	 *
+	 * @return true if output was found and replayed
+	 */
+	static boolean replay(String key, long regionOrigin, TerrainQuadEncoder encoder) {
+		final Session current = session();
+
+		if (current == null) {
+			return false;
+		}
+
+		final Prefetched prefetched = current.takePrefetched(key, regionOrigin);
+
+		if (prefetched == null) {
+			return false;
+		}
+
+		final SubRegionMeshCache.Segment segment = prefetched.segment;
+		TerrainEncoder.relocate(segment.quadData(), segment.quadCount() * segment.quadStrideInts(), prefetched.storedOrigin, encoder.sectorId(), encoder.sectorRelativeRegionOrigin());
+		segment.replay(encoder);
+		return true;
+	}
+
+	/** Writes recorded output in the background. The segment must not be modified afterwards. */
+	static void store(String key, long regionOrigin, SubRegionMeshCache.Segment segment, int sectorRelativeRegionOrigin) {
+		final Session current = session();
+
+		if (current != null) {
+			Util.ioPool().execute(() -> current.write(key, regionOrigin, segment, sectorRelativeRegionOrigin));
+		}
+	}
+
+	private static @Nullable Session session() {
+		Session result = session;
+
+		if (result == null) {
+			synchronized (RegionMeshDiskCache.class) {
+				result = session;
+
+				if (result == null) {
+					result = Session.create();
+					session = result;
+				}
+			}
+		}
+
+		return result == null || result.failed ? null : result;
+	}
+
+	private static Path rootDirectory() {
+		return Minecraft.getInstance().gameDirectory.toPath().normalize().resolve(DIRECTORY_NAME);
+	}
+
+	private static void deleteRecursively(Path path) {
+		try (Stream<Path> paths = Files.walk(path)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		} catch (final IOException e) {
+			CanvasMod.LOG.warn("Unable to delete terrain mesh cache directory " + path, e);
+		}
+	}
+
+	/** Entry read ahead of a build, not yet relocated. */
+	private record Prefetched(int storedOrigin, SubRegionMeshCache.Segment segment) { }
+
+	/** Size of a completely written entry and the origin of the region it was stored for. */
+	private record EntryInfo(int byteCount, long regionOrigin) { }
+
+	private record PendingRead(String key, CompletableFuture<Prefetched> result) { }
+
+	private static class Session {
+		private final long id;
+		private final Path directory;
+		/** Entries that have been completely written, in access order for eviction. */
+		private final LinkedHashMap<String, EntryInfo> entries = new LinkedHashMap<>(1024, 0.75f, true);
+		/** Key most recently stored for each region origin. */
+		private final Long2ObjectOpenHashMap<String> keysByOrigin = new Long2ObjectOpenHashMap<>();
+		private final ConcurrentHashMap<Long, PendingRead> pendingReads = new ConcurrentHashMap<>();
+		private long totalBytes = 0;
+		private final ObjectArrayList<CanvasRenderMaterial> materials = new ObjectArrayList<>();
+		private final Reference2IntOpenHashMap<CanvasRenderMaterial> materialIds = new Reference2IntOpenHashMap<>();
+		private volatile boolean failed = false;
+
+		private Session(long id, Path directory) {
+			this.id = id;
+			this.directory = directory;
+			materialIds.defaultReturnValue(-1);
+		}
+
+		private static Session create() {
+			final long id = ThreadLocalRandom.current().nextLong();
+			final Path root = rootDirectory();
+			final Path directory = root.resolve(Long.toHexString(id));
+			final Session result = new Session(id, directory);
+
+			try {
+				Files.createDirectories(directory);
+			} catch (final IOException e) {
+				CanvasMod.LOG.warn("Unable to create terrain mesh cache directory, disk cache will not be used.", e);
+				result.failed = true;
+				return result;
+			}
+
+			Util.ioPool().execute(() -> {
+				try (Stream<Path> priors = Files.list(root)) {
+					priors.filter(p -> !p.equals(directory)).forEach(RegionMeshDiskCache::deleteRecursively);
+				} catch (final IOException e) {
+					CanvasMod.LOG.warn("Unable to remove prior terrain mesh cache directories", e);
+				}
+			});
+
+			return result;
+		}
+
+		private void discard() {
+			failed = true;
+
+			synchronized (this) {
+				entries.clear();
+				keysByOrigin.clear();
+				totalBytes = 0;
+			}
+
+			pendingReads.clear();
+
+			Util.ioPool().execute(() -> deleteRecursively(directory));
+		}
+
+		private synchronized int materialId(CanvasRenderMaterial mat) {
+			int result = materialIds.getInt(mat);
+
+			if (result == -1) {
+				result = materials.size();
+				materials.add(mat);
+				materialIds.put(mat, result);
+			}
+
+			return result;
+		}
+
+		private void prefetch(long regionOrigin) {
+			final String key;
+
+			synchronized (this) {
+				key = keysByOrigin.get(regionOrigin);
+
+				if (key == null || !entries.containsKey(key)) {
+					return;
+				}
+			}
+
+			final PendingRead prior = pendingReads.get(regionOrigin);
+
+			if ((prior != null && prior.key.equals(key)) || pendingReads.size() >= MAX_PREFETCHED) {
+				return;
+			}
+
+			pendingReads.put(regionOrigin, new PendingRead(key, CompletableFuture.supplyAsync(() -> read(key), Util.ioPool())));
+		}
+
+		/** Result of a completed read of the given key for the region, or null. Never waits. */
+		private @Nullable Prefetched takePrefetched(String key, long regionOrigin) {
+			final PendingRead pending = pendingReads.get(regionOrigin);
+
+			if (pending == null || !pending.key.equals(key) || !pending.result.isDone()) {
+				// An unfinished read may still serve a later build with the same content
+				return null;
+			}
+
+			pendingReads.remove(regionOrigin, pending);
+			return pending.result.getNow(null);
+		}
+
+		private @Nullable Prefetched read(String key) {
+			if (failed) {
+				return null;
+			}
+
+			try {
+				final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(key)));
+
+				if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getLong() != id) {
+					return null;
+				}
+
+				final int storedOrigin = buffer.getInt();
+				final int quadStrideInts = buffer.getInt();
+				final int quadCount = buffer.getInt();
+				final int animationWordCount = buffer.getInt();
+				final int dataLength = buffer.getInt();
+
+				if (quadStrideInts != TerrainEncoder.TERRAIN_MATERIAL.quadStrideInts || dataLength != quadCount * quadStrideInts) {
+					return null;
+				}
+
+				final long[] animationWords = new long[animationWordCount];
+				buffer.asLongBuffer().get(animationWords);
+				buffer.position(buffer.position() + animationWordCount * 8);
+
+				final ObjectArrayList<CanvasRenderMaterial> quadMaterials = new ObjectArrayList<>(quadCount);
+
+				synchronized (this) {
+					for (int i = 0; i < quadCount; ++i) {
+						final int materialId = buffer.getInt();
+
+						if (materialId < 0 || materialId >= materials.size()) {
+							return null;
+						}
+
+						quadMaterials.add(materials.get(materialId));
+					}
+				}
+
+				final byte[] quadFlags = new byte[quadCount];
+				buffer.get(quadFlags);
+
+				final int[] quadData = new int[dataLength];
+				buffer.asIntBuffer().get(quadData);
+
+				return new Prefetched(storedOrigin, new SubRegionMeshCache.Segment(quadStrideInts, quadMaterials, BitSet.valueOf(animationWords), quadData, quadFlags, quadCount));
+			} catch (final IOException | RuntimeException e) {
+				CanvasMod.LOG.warn("Unable to read terrain mesh cache entry " + key, e);
+				return null;
+			}
+		}
+
+		private void write(String key, long regionOrigin, SubRegionMeshCache.Segment segment, int sectorRelativeRegionOrigin) {
+			if (failed) {
+				return;
+			}
+
+			final int quadCount = segment.quadCount();
+			final int quadStrideInts = segment.quadStrideInts();
+			final int dataLength = quadCount * quadStrideInts;
+			final long[] animationWords = segment.animationBits().toLongArray();
+			final int byteCount = HEADER_BYTES + animationWords.length * 8 + quadCount * 5 + dataLength * 4;
+			final ByteBuffer buffer = ByteBuffer.allocate(byteCount);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(FORMAT_VERSION);
+			buffer.putLong(id);
+			buffer.putInt(sectorRelativeRegionOrigin);
+			buffer.putInt(quadStrideInts);
+			buffer.putInt(quadCount);
+			buffer.putInt(animationWords.length);
+			buffer.putInt(dataLength);
+
+			for (final long word : animationWords) {
+				buffer.putLong(word);
+			}
+
+			for (int i = 0; i < quadCount; ++i) {
+				buffer.putInt(materialId(segment.material(i)));
+			}
+
+			buffer.put(segment.quadFlags(), 0, quadCount);
+			buffer.asIntBuffer().put(segment.quadData(), 0, dataLength);
+
+			final Path file = directory.resolve(key);
+			final Path tempFile = directory.resolve(key + ".tmp");
+
+			try {
+				Files.write(tempFile, buffer.array());
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final IOException e) {
+				CanvasMod.LOG.warn("Unable to write terrain mesh cache entry " + key, e);
+				return;
+			}
+
+			final long budget = Configurator.terrainMeshDiskCacheMb * 1024L * 1024L;
+
+			synchronized (this) {
+				if (failed) {
+					return;
+				}
+
+				final EntryInfo prior = entries.put(key, new EntryInfo(byteCount, regionOrigin));
+
+				if (prior != null) {
+					totalBytes -= prior.byteCount;
+				}
+
+				totalBytes += byteCount;
+				keysByOrigin.put(regionOrigin, key);
+				final Iterator<Map.Entry<String, EntryInfo>> it = entries.entrySet().iterator();
+
+				while (totalBytes > budget && it.hasNext()) {
+					final Map.Entry<String, EntryInfo> eldest = it.next();
+
+					if (eldest.getKey().equals(key)) {
+						continue;
+					}
+
+					it.remove();
+					final EntryInfo info = eldest.getValue();
+					totalBytes -= info.byteCount;
+					keysByOrigin.remove(info.regionOrigin, eldest.getKey());
+					directory.resolve(eldest.getKey()).toFile().delete();
+				}
+			}
+		}
+	}
+}
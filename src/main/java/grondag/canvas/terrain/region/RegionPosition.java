@@ -24,6 +24,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.world.phys.Vec3;
 
 import grondag.bitraster.PackedBox;
+import grondag.canvas.config.Configurator;
 import grondag.canvas.pipeline.Pipeline;
 import grondag.canvas.render.frustum.TerrainFrustum.RegionVisibilityTest;
 import grondag.canvas.render.terrain.drawlist.DrawListCullingHelper;
@@ -70,6 +71,9 @@ public class RegionPosition extends BlockPos {
 	/** See {@link #isNear()}. */
 	private boolean isNear;
 
+	/** See {@link #isLod()}. */
+	private boolean isLod;
+
 	/** See {@link #fuzz()}. */
 	private int fuzz;
 
@@ -86,6 +90,11 @@ public class RegionPosition extends BlockPos {
 	/** See {@link #checkAndUpdateSortNeeded(int)}. */
 	private int sortPositionVersion = -1;
 
+	/** Camera position at last translucency resort. See {@link #hasMovedEnoughToResort(Vec3)}. */
+	private double lastSortX = Double.NaN;
+	private double lastSortY = Double.NaN;
+	private double lastSortZ = Double.NaN;
+
 	/** The smallest cascade on which this region can potentially cast a shadow. */
 	private int shadowCascade;
 
@@ -137,6 +146,10 @@ public class RegionPosition extends BlockPos {
 			squaredCameraChunkDistance = owner.renderChunk.horizontalSquaredDistance + cy * cy;
 			isInsideRenderDistance = squaredCameraChunkDistance <= worldRenderState.maxSquaredChunkRenderDistance();
 			isNear = squaredCameraChunkDistance <= 3;
+			final int lodDistance = Configurator.lodChunkDistance;
+			// One chunk of hysteresis so regions at the boundary aren't rebuilt as the camera moves back and forth
+			final int lodThreshold = isLod ? lodDistance : lodDistance + 1;
+			isLod = lodDistance > 0 && squaredCameraChunkDistance > lodThreshold * lodThreshold;
 			// Based on trial-and-error
 			fuzz = squaredCameraChunkDistance >= 7 * 7 ? 1 : 0;
 			occlusionRange = PackedBox.rangeFromSquareChunkDist(squaredCameraChunkDistance);
@@ -186,6 +199,7 @@ public class RegionPosition extends BlockPos {
 	public void close() {
 		isInsideRenderDistance = false;
 		isNear = false;
+		isLod = false;
 		cameraFrustumPositionVersion = -1;
 		cameraFrustumViewVersion = -1;
 		cameraRegionOrigin = -1;
@@ -210,6 +224,14 @@ public class RegionPosition extends BlockPos {
 		return isNear;
 	}
 
+	/**
+	 * True if the region is far enough from the camera to be built as a coarse
+	 * distant-terrain mesh. See {@link Configurator#lodChunkDistance}.
+	 */
+	public boolean isLod() {
+		return isLod;
+	}
+
 	/**
 	 * Means what the name suggests.  Note that retention distance is longer.
 	 * Does not mean region is visible or within the view frustum.
@@ -284,6 +306,45 @@ public class RegionPosition extends BlockPos {
 		}
 	}
 
+	/**
+	 * True if the camera has moved far enough since the last resort of this region
+	 * that the order of its translucent quads may have changed. The required distance
+	 * grows with distance from the camera because the direction to distant quads
+	 * changes more slowly.
+	 */
+	public boolean hasMovedEnoughToResort(Vec3 cameraPos) {
+		final double dx = cameraPos.x - lastSortX;
+		final double dy = cameraPos.y - lastSortY;
+		final double dz = cameraPos.z - lastSortZ;
+		final double distSq = dx * dx + dy * dy + dz * dz;
+		// NaN when never sorted, which must always resort
+		return !(distSq < squaredResortDistance(squaredCameraChunkDistance));
+	}
+
+	/**
+	 * Call when translucent quads are sorted, whether by a resort or a rebuild.
+	 * Called from terrain worker threads; a stale read on the render thread only
+	 * delays or repeats one resort.
+	 */
+	public void setResortPosition(Vec3 cameraPos) {
+		lastSortX = cameraPos.x;
+		lastSortY = cameraPos.y;
+		lastSortZ = cameraPos.z;
+	}
+
+	/** Squared camera movement in blocks needed before a region at the given squared chunk distance is resorted. */
+	static double squaredResortDistance(int squaredCameraChunkDistance) {
+		if (squaredCameraChunkDistance < 4 * 4) {
+			return 1;
+		} else if (squaredCameraChunkDistance < 8 * 8) {
+			return 2 * 2;
+		} else if (squaredCameraChunkDistance < 16 * 16) {
+			return 4 * 4;
+		} else {
+			return 8 * 8;
+		}
+	}
+
 	/** For debugging. */
 	public boolean sharesOriginWith(int blockX, int blockY, int blockZ) {
 		return getX() >> 4 == blockX >> 4 && getY() >> 4 == blockY >> 4 && getZ() >> 4 == blockZ >> 4;
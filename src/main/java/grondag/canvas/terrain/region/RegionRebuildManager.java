@@ -31,6 +31,8 @@ import net.minecraft.Util;
 import io.vram.frex.api.config.FlawlessFrames;
 import io.vram.sc.unordered.SimpleUnorderedArrayList;
 
+import grondag.canvas.config.Configurator;
+
 /**
  * Tracks what regions require rebuilding and rebuilds them on demand.
  *
@@ -49,6 +51,34 @@ public class RegionRebuildManager {
 	 */
 	private final Set<RenderRegion> externalBuildRequests = new ObjectOpenHashSet<>();
 
+	/** Main-thread rebuilds accumulated for parallel tessellation, or null if none. */
+	private MainThreadBuildBatch mainThreadBatch = null;
+
+	/**
+	 * Rebuilds the region before the frame continues. With parallel main-thread builds
+	 * enabled, input is captured now and the build completes in {@link #completeMainThreadBuilds()}.
+	 */
+	private void rebuildOnMainThread(RenderRegion region) {
+		if (Configurator.parallelMainThreadBuilds) {
+			if (mainThreadBatch == null) {
+				mainThreadBatch = new MainThreadBuildBatch();
+			}
+
+			mainThreadBatch.add(region);
+		} else {
+			region.rebuildOnMainThread();
+		}
+	}
+
+	private void completeMainThreadBuilds() {
+		final MainThreadBuildBatch batch = mainThreadBatch;
+
+		if (batch != null) {
+			mainThreadBatch = null;
+			batch.buildAll();
+		}
+	}
+
 	public void acceptExternalBuildRequest(RenderRegion region) {
 		externalBuildRequests.add(region);
 	}
@@ -64,7 +94,7 @@ public class RegionRebuildManager {
 			if (flawless || region.needsRebuild() && !region.isClosed()) {
 				if (region.needsImportantRebuild() || region.origin.isNear()) {
 					regionsToRebuild.remove(region);
-					region.rebuildOnMainThread();
+					rebuildOnMainThread(region);
 				} else {
 					regionsToRebuild.add(region);
 				}
@@ -72,6 +102,7 @@ public class RegionRebuildManager {
 		}
 
 		externalBuildRequests.clear();
+		completeMainThreadBuilds();
 	}
 
 	/**
@@ -105,12 +136,14 @@ public class RegionRebuildManager {
 			if (region.needsRebuild()) {
 				if (region.needsImportantRebuild() || region.origin.isNear()) {
 					regionsToRebuild.remove(region);
-					region.rebuildOnMainThread();
+					rebuildOnMainThread(region);
 				} else {
 					regionsToRebuild.add(region);
 				}
 			}
 		}
+
+		completeMainThreadBuilds();
 	}
 
 	/**
@@ -139,9 +172,11 @@ public class RegionRebuildManager {
 	 *
 	 * @param endNanos The max end time for this task. (NOT the duration.)
 	 * Processing will end when the system nanotime exceeds this value.
+	 * @return Number of regions rebuilt or scheduled for rebuild
 	 */
-	public void processScheduledRegions(long endNanos) {
+	public int processScheduledRegions(long endNanos) {
 		final Set<RenderRegion> regionsToRebuild = this.regionsToRebuild;
+		int processedCount = 0;
 
 		//final long start = Util.getMeasuringTimeNano();
 		//int builtCount = 0;
@@ -156,11 +191,13 @@ public class RegionRebuildManager {
 				if (region.isClosed()) {
 					iterator.remove();
 				} else if (flawless || region.needsImportantRebuild()) {
-					region.rebuildOnMainThread();
+					rebuildOnMainThread(region);
 					iterator.remove();
+					++processedCount;
 				} else if (region.renderChunk.areCornersLoaded()) {
 					region.prepareAndExecuteRebuildTask();
 					iterator.remove();
+					++processedCount;
 				}
 
 				// this seemed excessive
@@ -179,7 +216,11 @@ public class RegionRebuildManager {
 					break;
 				}
 			}
+
+			completeMainThreadBuilds();
 		}
+
+		return processedCount;
 	}
 
 	public void clear() {
@@ -189,4 +230,9 @@ public class RegionRebuildManager {
 	public boolean isEmpty() {
 		return regionsToRebuild.isEmpty();
 	}
+
+	/** Number of regions awaiting rebuild. */
+	public int queueDepth() {
+		return regionsToRebuild.size();
+	}
 }
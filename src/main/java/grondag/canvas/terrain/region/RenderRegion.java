@@ -24,11 +24,14 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.jetbrains.annotations.Nullable;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 
@@ -44,28 +47,33 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.material.FluidState;
 import net.minecraft.world.phys.Vec3;
 
-import io.vram.frex.api.math.FastMatrix3f;
 import io.vram.frex.api.math.FastMatrix4f;
 import io.vram.frex.api.math.MatrixStack;
 import io.vram.frex.api.model.fluid.FluidModel;
 
 import grondag.canvas.apiimpl.rendercontext.CanvasTerrainRenderContext;
+import grondag.canvas.apiimpl.rendercontext.encoder.TerrainQuadEncoder;
 import grondag.canvas.buffer.input.DrawableVertexCollector;
 import grondag.canvas.buffer.input.VertexCollectorList;
+import grondag.canvas.buffer.render.TransferBuffer;
+import grondag.canvas.buffer.render.TransferBuffers;
+import grondag.canvas.config.Configurator;
 import grondag.canvas.material.state.TerrainRenderStates;
 import grondag.canvas.perf.ChunkRebuildCounters;
 import grondag.canvas.pipeline.Pipeline;
 import grondag.canvas.render.terrain.TerrainSectorMap.RegionRenderSector;
 import grondag.canvas.render.terrain.base.DrawableRegion;
 import grondag.canvas.render.terrain.base.UploadableRegion;
+import grondag.canvas.render.terrain.cluster.ClusteredDrawableStorage;
 import grondag.canvas.render.world.WorldRenderState;
 import grondag.canvas.terrain.occlusion.camera.CameraRegionVisibility;
+import grondag.canvas.terrain.occlusion.geometry.OcclusionResultCache;
 import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
 import grondag.canvas.terrain.occlusion.shadow.ShadowRegionVisibility;
 import grondag.canvas.terrain.region.input.InputRegion;
 import grondag.canvas.terrain.region.input.PackedInputRegion;
 import grondag.canvas.terrain.region.input.SignalInputRegion;
-import grondag.canvas.terrain.util.RenderRegionStateIndexer;
+import grondag.canvas.terrain.util.RegionLodSampler;
 import grondag.canvas.terrain.util.TerrainExecutor;
 import grondag.canvas.terrain.util.TerrainExecutorTask;
 
@@ -108,6 +116,42 @@ public class RenderRegion implements TerrainExecutorTask {
 	 */
 	private boolean needsRebuild;
 	private boolean needsImportantRebuild;
+
+	/**
+	 * Sub-regions changed by block updates since the last build was scheduled.
+	 * All bits are set when the change can't be attributed to specific blocks.
+	 * Main thread only.
+	 */
+	private long dirtySubRegions = SubRegionMeshCache.ALL_SUB_REGIONS;
+
+	/** True when block-level changes were reported ahead of the next section change. Main thread only. */
+	private boolean hasSubRegionHint = false;
+
+	/** True when light changed since the last build was scheduled. Main thread only. */
+	private boolean needsRelight = false;
+
+	/**
+	 * Dirty sub-regions handed off with the build input. Accumulates if input is replaced
+	 * before the build runs. A value of zero with real input means full rebuild because the
+	 * bits were taken by an earlier build of older input.
+	 */
+	private final AtomicLong pendingDirtySubRegions = new AtomicLong(SubRegionMeshCache.ALL_SUB_REGIONS);
+
+	/** Light change handed off with the build input, in the same manner as {@link #pendingDirtySubRegions}. */
+	private final AtomicBoolean pendingRelight = new AtomicBoolean();
+
+	/** LOD tier of the most recently scheduled build. Main thread only. See {@link RegionPosition#isLod()}. */
+	private boolean scheduledLod = false;
+
+	/** LOD tier handed off with the build input. */
+	private volatile boolean pendingLod = false;
+
+	/** Occlusion cache entry of the most recent build, reused if the next build has the same opacity. */
+	private volatile OcclusionResultCache.Entry occlusionCacheEntry;
+
+	/** Claimed by the build thread, so concurrent builds can never share it. */
+	private final AtomicReference<SubRegionMeshCache> meshCache = new AtomicReference<>();
+
 	private DrawableRegion translucentDrawable = DrawableRegion.EMPTY_DRAWABLE;
 	private DrawableRegion solidDrawable = DrawableRegion.EMPTY_DRAWABLE;
 	public final BitSet animationBits = new BitSet();
@@ -162,6 +206,11 @@ public class RenderRegion implements TerrainExecutorTask {
 			cancel();
 			buildState.set(RegionBuildState.UNBUILT);
 			needsRebuild = true;
+			dirtySubRegions = SubRegionMeshCache.ALL_SUB_REGIONS;
+			needsRelight = false;
+			scheduledLod = false;
+			occlusionCacheEntry = null;
+			discardMeshCache();
 			origin.close();
 
 			if (renderSector != null) {
@@ -184,6 +233,56 @@ public class RenderRegion implements TerrainExecutorTask {
 		needsImportantRebuild = isImportant | (neededRebuild && needsImportantRebuild);
 	}
 
+	/**
+	 * Called ahead of {@link #markForWorldChange(boolean)} when vanilla reports a changed block,
+	 * with a mask of the sub-regions that block can affect.
+	 */
+	public void markSubRegionsDirty(long subRegionMask) {
+		dirtySubRegions |= subRegionMask;
+		hasSubRegionHint = true;
+	}
+
+	/**
+	 * Called when vanilla marks the section containing this region as dirty.
+	 * Unless preceded by {@link #markSubRegionsDirty(long)} the entire region
+	 * must be rebuilt because we don't know what changed.
+	 */
+	public void markForWorldChange(boolean isImportant) {
+		if (!hasSubRegionHint) {
+			dirtySubRegions = SubRegionMeshCache.ALL_SUB_REGIONS;
+		}
+
+		hasSubRegionHint = false;
+		markForBuild(isImportant);
+	}
+
+	/**
+	 * Called instead of {@link #markForWorldChange(boolean)} when vanilla marks the section
+	 * dirty because of a light update. Blocks are unchanged, so sub-regions with a cached mesh
+	 * only need to be relit.
+	 */
+	public void markForLightChange(boolean isImportant) {
+		needsRelight = true;
+		markForBuild(isImportant);
+	}
+
+	/**
+	 * Restores needsRebuild after input for a build has been claimed and then abandoned.
+	 * Any sub-region changes consumed with that input are lost, so forces a full rebuild.
+	 */
+	private void markForBuildAfterAbort() {
+		pendingDirtySubRegions.set(SubRegionMeshCache.ALL_SUB_REGIONS);
+		markForBuild(false);
+	}
+
+	private void discardMeshCache() {
+		final SubRegionMeshCache cache = meshCache.getAndSet(null);
+
+		if (cache != null) {
+			cache.release();
+		}
+	}
+
 	/**
 	 * To be called after rebuild on main thread or region added to the execution queue.
 	 */
@@ -192,8 +291,9 @@ public class RenderRegion implements TerrainExecutorTask {
 		needsImportantRebuild = false;
 	}
 
+	/** Also true when the region has moved into or out of the distant-terrain tier since it was built. */
 	public boolean needsRebuild() {
-		return needsRebuild;
+		return needsRebuild || scheduledLod != origin.isLod();
 	}
 
 	public boolean needsImportantRebuild() {
@@ -203,47 +303,91 @@ public class RenderRegion implements TerrainExecutorTask {
 	public void prepareAndExecuteRebuildTask() {
 		final PackedInputRegion region = PackedInputRegion.claim(worldRenderState.getWorld(), origin);
 
+		// Must be published before the input so the worker can't see input without its changes
+		final long dirty = dirtySubRegions;
+		pendingDirtySubRegions.getAndUpdate(d -> d | dirty);
+		dirtySubRegions = 0;
+
+		if (needsRelight) {
+			pendingRelight.set(true);
+			needsRelight = false;
+		}
+
+		scheduledLod = origin.isLod();
+		pendingLod = scheduledLod;
+
+		if (!scheduledLod && (dirty == 0 || dirty == SubRegionMeshCache.ALL_SUB_REGIONS)) {
+			// Full builds may replay from the disk cache - start reading before a worker needs it
+			RegionMeshDiskCache.prefetch(origin.asLong());
+		}
+
 		// Idle region is signal to reschedule
 		// If region is something other than idle, we are already in the queue
 		// and we only need to update the input protoRegion (which we do here.)
-		if (inputState.getAndSet(region) == SignalInputRegion.IDLE) {
+		final PackedInputRegion priorRegion = inputState.getAndSet(region);
+
+		if (priorRegion == SignalInputRegion.IDLE) {
 			TerrainExecutor.INSTANCE.execute(this);
+		} else {
+			// Replaced input will never run - release does nothing for signal instances
+			priorRegion.release();
 		}
 
 		markBuilt();
 	}
 
+	/** Result of {@link #scheduleSort(int, Vec3)} when the region did not need to be checked. */
+	public static final int SORT_NOT_NEEDED = 0;
+	/** Result of {@link #scheduleSort(int, Vec3)} when a resort was scheduled. */
+	public static final int SORT_SCHEDULED = 1;
+	/** Result of {@link #scheduleSort(int, Vec3)} when a resort that would otherwise have been scheduled was skipped. */
+	public static final int SORT_AVOIDED = 2;
+
 	/**
 	 * Schedules a resort of this region if all of the following are true.
 	 * 1) region has translucency
 	 * 2) region sort version doesn't match the input version
-	 * 3) resort isn't already scheduled for this region
+	 * 3) translucent quads are not all in one plane without overlap
+	 * 4) camera has moved far enough for the region distance since the last resort
+	 * 5) resort isn't already scheduled for this region
 	 *
 	 * <p>If a resort is already scheduled then the region sort version is
 	 * updated to match the input version.
 	 *
 	 * @param sortPositionVersion The most recent position version counter - for comparision.
-	 * @return true if a resort was scheduled
+	 * @param cameraPos Current camera position
+	 * @return {@link #SORT_SCHEDULED} if a resort was scheduled, {@link #SORT_AVOIDED} if
+	 * only conditions 3 or 4 prevented scheduling a resort, or {@link #SORT_NOT_NEEDED}
 	 */
-	public boolean scheduleSort(int sortPositionVersion) {
+	public int scheduleSort(int sortPositionVersion, Vec3 cameraPos) {
 		final RegionBuildState regionData = buildState.get();
 
-		if (!origin.checkAndUpdateSortNeeded(sortPositionVersion)) {
-			return false;
+		if (!origin.checkAndUpdateSortNeeded(sortPositionVersion) || regionData.translucentState == null) {
+			return SORT_NOT_NEEDED;
 		}
 
-		if (regionData.translucentState != null && inputState.compareAndSet(SignalInputRegion.IDLE, SignalInputRegion.RESORT_ONLY)) {
+		if (regionData.isLod) {
+			return SORT_NOT_NEEDED;
+		}
+
+		if (regionData.translucentIsPlanar || !origin.hasMovedEnoughToResort(cameraPos)) {
+			// Only count resorts that would have been scheduled otherwise
+			return inputState.get() == SignalInputRegion.IDLE ? SORT_AVOIDED : SORT_NOT_NEEDED;
+		}
+
+		if (inputState.compareAndSet(SignalInputRegion.IDLE, SignalInputRegion.RESORT_ONLY)) {
 			// null means need to reschedule, otherwise was already scheduled for either
 			// resort or rebuild, or is invalid, not ready to be built.
 			TerrainExecutor.INSTANCE.execute(this);
-			return true;
+			return SORT_SCHEDULED;
 		} else {
-			return false;
+			return SORT_NOT_NEEDED;
 		}
 	}
 
 	protected void cancel() {
-		inputState.set(SignalInputRegion.INVALID);
+		// Queued input will never run - release does nothing for signal instances
+		inputState.getAndSet(SignalInputRegion.INVALID).release();
 		inputState = new AtomicReference<>(SignalInputRegion.IDLE);
 	}
 
@@ -252,6 +396,35 @@ public class RenderRegion implements TerrainExecutorTask {
 		return origin.squaredCameraChunkDistance();
 	}
 
+	/**
+	 * Drops queued builds and resorts for regions that have left the potentially visible set
+	 * so they never reach a worker. Mirrors the visibility check in {@link #run(CanvasTerrainRenderContext)},
+	 * which still applies if visibility changes after this check.
+	 */
+	@Override
+	public boolean cancelIfStale() {
+		if (origin.isPotentiallyVisibleFromCamera() || origin.isPotentiallyVisibleFromSkylight()) {
+			return false;
+		}
+
+		final AtomicReference<PackedInputRegion> runningState = inputState;
+		final PackedInputRegion protoRegion = runningState.get();
+
+		// Empty regions are still needed for visibility search to progress.
+		// If the input changed underneath us, let run() sort it out.
+		if (protoRegion == SignalInputRegion.EMPTY || !runningState.compareAndSet(protoRegion, SignalInputRegion.IDLE)) {
+			return false;
+		}
+
+		if (protoRegion != null && protoRegion != SignalInputRegion.INVALID) {
+			protoRegion.release();
+			// Causes region to be rescheduled if/when it comes back into view
+			markForBuildAfterAbort();
+		}
+
+		return true;
+	}
+
 	private void notifyOcclusionChange() {
 		cameraVisibility.notifyOfOcclusionChange();
 		shadowVisibility.notifyOfOcclusionChange();
@@ -267,6 +440,7 @@ public class RenderRegion implements TerrainExecutorTask {
 		}
 
 		if (protoRegion == SignalInputRegion.EMPTY) {
+			discardMeshCache();
 			final RegionBuildState chunkData = new RegionBuildState();
 			chunkData.setOcclusionResult(RegionOcclusionCalculator.EMPTY_OCCLUSION_RESULT);
 
@@ -286,7 +460,7 @@ public class RenderRegion implements TerrainExecutorTask {
 		if (!origin.isPotentiallyVisibleFromCamera() && !origin.isPotentiallyVisibleFromSkylight()) {
 			protoRegion.release();
 			// Causes region to be rescheduled if/when it comes back into view
-			markForBuild(false);
+			markForBuildAfterAbort();
 			return;
 		}
 
@@ -295,7 +469,7 @@ public class RenderRegion implements TerrainExecutorTask {
 		// because regions shouldn't be scheduled if neighbors aren't available and this should never happen.
 		if (!isNearOrHasLoadedNeighbors()) {
 			// Causes region to be rescheduled when it is next encountered
-			markForBuild(false);
+			markForBuildAfterAbort();
 			protoRegion.release();
 			assert false : "Region without loaded neighbors encountered in off-thread execution.";
 			return;
@@ -309,27 +483,47 @@ public class RenderRegion implements TerrainExecutorTask {
 				final VertexCollectorList collectors = context.encoder.collectors;
 				final DrawableVertexCollector collector = collectors.get(TerrainRenderStates.TRANSLUCENT_TERRAIN);
 				collector.loadState(state);
+				final Vec3 sortPos = worldRenderState.sectorManager.cameraPos();
+				origin.setResortPosition(sortPos);
 
-				if (collector.sortTerrainQuads(worldRenderState.sectorManager.cameraPos(), renderSector)) {
+				if (collector.sortTerrainQuads(sortPos, renderSector)) {
 					regionData.translucentState = collector.saveState(state);
 
 					if (runningState.get() != SignalInputRegion.INVALID) {
-						final UploadableRegion upload = collectors.toUploadableChunk(true, origin, worldRenderState);
+						final int indexBytes = collector.sortedIndexBytes();
 
-						if (upload != UploadableRegion.EMPTY_UPLOADABLE) {
-							renderRegionBuilder.scheduleUpload(() -> {
-								if (ChunkRebuildCounters.ENABLED) {
-									ChunkRebuildCounters.startUpload();
-								}
-
-								translucentDrawable.releaseFromRegion();
-								translucentDrawable = upload.produceDrawable();
-								worldRenderState.invalidateDrawLists();
+						if (indexBytes > 0) {
+							// Vertex data hasn't moved, so only the sorted indexes need to be replaced
+							final TransferBuffer indexBuffer = TransferBuffers.claim(indexBytes);
+							collector.sortedIndexesToBuffer(indexBuffer);
 
-								if (ChunkRebuildCounters.ENABLED) {
-									ChunkRebuildCounters.completeUpload();
+							renderRegionBuilder.scheduleUpload(() -> {
+								if (translucentDrawable.storage() instanceof ClusteredDrawableStorage storage) {
+									storage.uploadSortedIndexes(indexBuffer);
+								} else {
+									// Saved sort state no longer matches what is drawn, so rebuild to restore both
+									indexBuffer.release();
+									markForBuildAfterAbort();
 								}
 							});
+						} else {
+							final UploadableRegion upload = collectors.toUploadableChunk(true, false, origin, worldRenderState);
+
+							if (upload != UploadableRegion.EMPTY_UPLOADABLE) {
+								renderRegionBuilder.scheduleUpload(() -> {
+									if (ChunkRebuildCounters.ENABLED) {
+										ChunkRebuildCounters.startUpload();
+									}
+
+									translucentDrawable.releaseFromRegion();
+									translucentDrawable = upload.produceDrawable();
+									worldRenderState.invalidateDrawLists();
+
+									if (ChunkRebuildCounters.ENABLED) {
+										ChunkRebuildCounters.completeUpload();
+									}
+								});
+							}
 						}
 					}
 				}
@@ -337,8 +531,11 @@ public class RenderRegion implements TerrainExecutorTask {
 				collectors.clear();
 			}
 		} else {
+			final long dirty = pendingDirtySubRegions.getAndSet(0);
+			final boolean relight = pendingRelight.getAndSet(false);
+			final boolean isLod = pendingLod;
 			context.prepareForRegion(protoRegion);
-			final RegionBuildState newBuildState = captureAndSetBuildState(context, origin.isNear());
+			final RegionBuildState newBuildState = captureAndSetBuildState(context, origin.isNear(), isLod);
 			context.encoder.updateSector(renderSector, origin);
 			final VertexCollectorList collectors = context.encoder.collectors;
 
@@ -348,11 +545,11 @@ public class RenderRegion implements TerrainExecutorTask {
 				return;
 			}
 
-			buildTerrain(context, newBuildState);
+			buildTerrain(context, newBuildState, dirty == 0 && !relight ? SubRegionMeshCache.ALL_SUB_REGIONS : dirty, relight);
 
 			if (runningState.get() != SignalInputRegion.INVALID) {
-				final UploadableRegion solidUpload = collectors.toUploadableChunk(false, origin, worldRenderState);
-				final UploadableRegion translucentUpload = collectors.toUploadableChunk(true, origin, worldRenderState);
+				final UploadableRegion solidUpload = collectors.toUploadableChunk(false, isLod, origin, worldRenderState);
+				final UploadableRegion translucentUpload = collectors.toUploadableChunk(true, isLod, origin, worldRenderState);
 
 				renderRegionBuilder.scheduleUpload(() -> {
 					if (ChunkRebuildCounters.ENABLED) {
@@ -377,9 +574,11 @@ public class RenderRegion implements TerrainExecutorTask {
 		}
 	}
 
-	private RegionBuildState captureAndSetBuildState(CanvasTerrainRenderContext context, boolean isNear) {
+	private RegionBuildState captureAndSetBuildState(CanvasTerrainRenderContext context, boolean isNear, boolean isLod) {
 		final RegionBuildState newBuildState = new RegionBuildState();
-		newBuildState.setOcclusionResult(context.region.occlusion.build(isNear));
+		newBuildState.isLod = isLod;
+		newBuildState.setOcclusionResult(context.region.occlusion.build(isNear, occlusionCacheEntry));
+		occlusionCacheEntry = context.region.occlusion.cacheEntry();
 		handleBlockEntities(newBuildState, context);
 
 		// don't rebuild occlusion if occlusion did not change
@@ -398,7 +597,12 @@ public class RenderRegion implements TerrainExecutorTask {
 		return newBuildState;
 	}
 
-	private void buildTerrain(CanvasTerrainRenderContext context, RegionBuildState buildState) {
+	/**
+	 * @param dirtyMask Sub-regions that must be tessellated if a mesh cache is available.
+	 * {@link SubRegionMeshCache#ALL_SUB_REGIONS} if the whole region must be tessellated.
+	 * @param relight True if light changed, so cached sub-regions must be relit instead of replayed as-is.
+	 */
+	private void buildTerrain(CanvasTerrainRenderContext context, RegionBuildState buildState, long dirtyMask, boolean relight) {
 		if (ChunkRebuildCounters.ENABLED) {
 			ChunkRebuildCounters.startChunk();
 		}
@@ -406,65 +610,204 @@ public class RenderRegion implements TerrainExecutorTask {
 		context.renderBakeListeners();
 
 		final VertexCollectorList collectors = context.encoder.collectors;
-
-		final BlockPos.MutableBlockPos searchPos = context.searchPos;
-		final int xOrigin = origin.getX();
-		final int yOrigin = origin.getY();
-		final int zOrigin = origin.getZ();
-
 		final InputRegion region = context.region;
 		final MatrixStack matrixStack = context.matrixStack;
-		final FastMatrix4f modelMatrix = matrixStack.modelMatrix();
-		final FastMatrix3f normalMatrix = matrixStack.normalMatrix();
-		normalMatrix.f_setIdentity();
+		matrixStack.normalMatrix().f_setIdentity();
 
 		final BlockRenderDispatcher blockRenderManager = Minecraft.getInstance().getBlockRenderer();
-		final RegionOcclusionCalculator occlusionRegion = region.occlusion;
+		final SubRegionMeshCache priorCache = meshCache.getAndSet(null);
 
-		for (int i = 0; i < RenderRegionStateIndexer.INTERIOR_STATE_COUNT; i++) {
-			if (occlusionRegion.shouldRender(i)) {
-				final BlockState blockState = region.getLocalBlockState(i);
-				final FluidState fluidState = blockState.getFluidState();
-				final int x = i & 0xF;
-				final int y = (i >> 4) & 0xF;
-				final int z = (i >> 8) & 0xF;
-				searchPos.set(xOrigin + x, yOrigin + y, zOrigin + z);
+		// Bake listeners emit quads that can't be attributed to a sub-region, and smoothed
+		// light depends on blocks farther away than the dirty region around a changed block.
+		// Distant-terrain meshes are cheap to rebuild and don't match cached full-detail meshes.
+		final boolean canCache = !buildState.isLod && Configurator.incrementalRegionRebuild && region.bakeListeners.isEmpty() && !Configurator.lightSmoothing;
 
-				final boolean hasFluid = !fluidState.isEmpty();
-				final boolean hasBlock = blockState.getRenderShape() != RenderShape.INVISIBLE;
+		// Only retain meshes for regions that have seen block or light changes since they were first built
+		final SubRegionMeshCache newCache = canCache && (priorCache != null || dirtyMask != SubRegionMeshCache.ALL_SUB_REGIONS)
+				? SubRegionMeshCache.create(priorCache, context.encoder) : null;
 
-				if (hasFluid || hasBlock) {
-					// Vanilla does a push/pop for each block but that creates needless allocation spam.
-					modelMatrix.f_setIdentity();
-					modelMatrix.f_translate(x, y, z);
+		if (newCache == null) {
+			if (priorCache != null) {
+				priorCache.release();
+			}
 
-					if (hasFluid) {
-						context.renderFluid(blockState, searchPos, false, FluidModel.get(fluidState.getType()));
-					}
+			if (buildState.isLod) {
+				tessellateLod(context, blockRenderManager);
+			} else {
+				final RegionOcclusionCalculator occlusionRegion = region.occlusion;
+				final int firstRenderable = occlusionRegion.nextRenderable(0);
 
-					if (hasBlock) {
-						if (blockState.getBlock().getOffsetType() != Block.OffsetType.NONE) {
-							final Vec3 vec3d = blockState.getOffset(region, searchPos);
+				// Disk cache is only consulted for full builds - partial builds imply recent changes.
+				// Nothing to hash or store when no position renders.
+				final String diskKey = dirtyMask == SubRegionMeshCache.ALL_SUB_REGIONS && firstRenderable >= 0 ? RegionMeshDiskCache.key(region) : null;
 
-							if (vec3d != Vec3.ZERO) {
-								modelMatrix.f_translate((float) vec3d.x, (float) vec3d.y, (float) vec3d.z);
-							}
-						}
+				if (diskKey == null || !RegionMeshDiskCache.replay(diskKey, origin.asLong(), context.encoder)) {
+					final SubRegionMeshCache.Segment diskRecorder = diskKey == null ? null : RegionMeshDiskCache.newRecorder();
+					context.encoder.recorder = diskRecorder;
 
-						final BakedModel model = blockRenderManager.getBlockModel(blockState);
-						context.renderBlock(blockState, searchPos, model);
+					for (int i = firstRenderable; i >= 0; i = occlusionRegion.nextRenderable(i + 1)) {
+						tessellateBlock(context, blockRenderManager, i);
+					}
+
+					context.encoder.recorder = null;
+
+					if (diskRecorder != null) {
+						RegionMeshDiskCache.store(diskKey, origin.asLong(), diskRecorder, context.encoder.sectorRelativeRegionOrigin());
 					}
 				}
 			}
+		} else {
+			buildSubRegions(context, blockRenderManager, priorCache != null && priorCache.isCompatible(context.encoder) ? priorCache : null, newCache, dirtyMask, relight);
+
+			if (newCache.retain(priorCache)) {
+				meshCache.set(newCache);
+			}
+		}
+
+		// Mesh caches record unmerged quads so that merging always sees whole planes
+		if (Pipeline.terrainQuadMerging()) {
+			collectors.mergeTerrainQuads();
 		}
 
-		buildState.prepareTranslucentIfNeeded(worldRenderState.sectorManager.cameraPos(), renderSector, collectors);
+		final Vec3 sortPos = worldRenderState.sectorManager.cameraPos();
+
+		if (buildState.prepareTranslucentIfNeeded(sortPos, renderSector, collectors)) {
+			origin.setResortPosition(sortPos);
+		}
 
 		if (ChunkRebuildCounters.ENABLED) {
 			ChunkRebuildCounters.completeChunk();
 		}
 	}
 
+	/**
+	 * Tessellates in sub-region order, recording output for each sub-region into the new cache.
+	 * Sub-regions not marked dirty are replayed from the prior cache instead, when there is one,
+	 * and are first relit if light has changed.
+	 */
+	private void buildSubRegions(CanvasTerrainRenderContext context, BlockRenderDispatcher blockRenderManager, @Nullable SubRegionMeshCache priorCache, SubRegionMeshCache newCache, long dirtyMask, boolean relight) {
+		final TerrainQuadEncoder encoder = context.encoder;
+		final RegionOcclusionCalculator occlusionRegion = context.region.occlusion;
+
+		for (int s = 0; s < SubRegionMeshCache.SUB_REGION_COUNT; ++s) {
+			final SubRegionMeshCache.Segment priorSegment = priorCache == null ? null : priorCache.segment(s);
+
+			if (priorSegment != null && (dirtyMask & (1L << s)) == 0) {
+				if (!relight) {
+					priorSegment.replay(encoder);
+					newCache.setSegment(s, priorSegment);
+					continue;
+				} else if (priorSegment.canRelight()) {
+					final SubRegionMeshCache.Segment relitSegment = priorSegment.relight(context);
+					relitSegment.replay(encoder);
+					newCache.setSegment(s, relitSegment);
+					continue;
+				}
+			}
+
+			encoder.recorder = newCache.newSegment(s);
+
+			final int x0 = (s & 3) << 2;
+			final int y0 = ((s >> 2) & 3) << 2;
+			final int z0 = (s >> 4) << 2;
+
+			for (int z = z0; z < z0 + 4; ++z) {
+				for (int y = y0; y < y0 + 4; ++y) {
+					for (int x = x0; x < x0 + 4; ++x) {
+						final int i = x | (y << 4) | (z << 8);
+
+						if (occlusionRegion.shouldRender(i)) {
+							tessellateBlock(context, blockRenderManager, i);
+						}
+					}
+				}
+			}
+
+			encoder.recorder = null;
+		}
+	}
+
+	/**
+	 * Tessellates downsampled cells in place of blocks. Fluid surfaces keep full detail
+	 * because cells can't represent them. Bake listeners still render normally.
+	 */
+	private void tessellateLod(CanvasTerrainRenderContext context, BlockRenderDispatcher blockRenderManager) {
+		final InputRegion region = context.region;
+		final RegionLodSampler sampler = context.lodSampler;
+		final BlockPos.MutableBlockPos searchPos = context.searchPos;
+		final FastMatrix4f modelMatrix = context.matrixStack.modelMatrix();
+		sampler.sample(region);
+
+		for (int cell = 0; cell < RegionLodSampler.CELL_COUNT; ++cell) {
+			final int i = sampler.blockIndex(cell);
+
+			if (i >= 0) {
+				final BlockState blockState = region.getLocalBlockState(i);
+				searchPos.set(origin.getX() + (i & 0xF), origin.getY() + ((i >> 4) & 0xF), origin.getZ() + ((i >> 8) & 0xF));
+				modelMatrix.f_setIdentity();
+				modelMatrix.f_translate(RegionLodSampler.cellX(cell) << RegionLodSampler.CELL_SHIFT, RegionLodSampler.cellY(cell) << RegionLodSampler.CELL_SHIFT, RegionLodSampler.cellZ(cell) << RegionLodSampler.CELL_SHIFT);
+				modelMatrix.f_mul(RegionLodSampler.CELL_SCALE);
+				context.renderLodBlock(blockState, searchPos, blockRenderManager.getBlockModel(blockState), sampler.cullMask(cell));
+			}
+		}
+
+		final RegionOcclusionCalculator occlusionRegion = region.occlusion;
+
+		for (int i = occlusionRegion.nextRenderable(0); i >= 0; i = occlusionRegion.nextRenderable(i + 1)) {
+			final BlockState blockState = region.getLocalBlockState(i);
+			final FluidState fluidState = blockState.getFluidState();
+
+			if (!fluidState.isEmpty() && !region.isFluidEnclosed(i, fluidState.getType())) {
+				final int x = i & 0xF;
+				final int y = (i >> 4) & 0xF;
+				final int z = (i >> 8) & 0xF;
+				searchPos.set(origin.getX() + x, origin.getY() + y, origin.getZ() + z);
+				modelMatrix.f_setIdentity();
+				modelMatrix.f_translate(x, y, z);
+				context.renderFluid(blockState, searchPos, false, FluidModel.get(fluidState.getType()));
+			}
+		}
+	}
+
+	private void tessellateBlock(CanvasTerrainRenderContext context, BlockRenderDispatcher blockRenderManager, int i) {
+		final InputRegion region = context.region;
+		final BlockState blockState = region.getLocalBlockState(i);
+		final FluidState fluidState = blockState.getFluidState();
+		// Submerged fluid, as in most of an ocean, has no visible faces
+		final boolean hasFluid = !fluidState.isEmpty() && !region.isFluidEnclosed(i, fluidState.getType());
+		final boolean hasBlock = blockState.getRenderShape() != RenderShape.INVISIBLE;
+
+		if (hasFluid || hasBlock) {
+			final int x = i & 0xF;
+			final int y = (i >> 4) & 0xF;
+			final int z = (i >> 8) & 0xF;
+			final BlockPos.MutableBlockPos searchPos = context.searchPos;
+			searchPos.set(origin.getX() + x, origin.getY() + y, origin.getZ() + z);
+
+			// Vanilla does a push/pop for each block but that creates needless allocation spam.
+			final FastMatrix4f modelMatrix = context.matrixStack.modelMatrix();
+			modelMatrix.f_setIdentity();
+			modelMatrix.f_translate(x, y, z);
+
+			if (hasFluid) {
+				context.renderFluid(blockState, searchPos, false, FluidModel.get(fluidState.getType()));
+			}
+
+			if (hasBlock) {
+				if (blockState.getBlock().getOffsetType() != Block.OffsetType.NONE) {
+					final Vec3 vec3d = blockState.getOffset(region, searchPos);
+
+					if (vec3d != Vec3.ZERO) {
+						modelMatrix.f_translate((float) vec3d.x, (float) vec3d.y, (float) vec3d.z);
+					}
+				}
+
+				final BakedModel model = blockRenderManager.getBlockModel(blockState);
+				context.renderBlock(blockState, searchPos, model);
+			}
+		}
+	}
+
 	private void handleBlockEntities(RegionBuildState regionData, CanvasTerrainRenderContext context) {
 		final ObjectOpenHashSet<BlockEntity> nonCullBlockEntities = context.nonCullBlockEntities;
 		final ObjectArrayList<BlockEntity> regionDataBlockEntities = regionData.blockEntities;
@@ -508,9 +851,52 @@ public class RenderRegion implements TerrainExecutorTask {
 	}
 
 	public void rebuildOnMainThread() {
+		final MainThreadBuild build = prepareMainThreadBuild();
+
+		if (build != null) {
+			tessellateMainThreadBuild(build, renderRegionBuilder.mainThreadContext);
+			completeMainThreadBuild(build);
+		}
+	}
+
+	/**
+	 * Rebuild that must complete before the frame continues.  Input is captured
+	 * and results are applied on the render thread, but tessellation can run
+	 * on any thread in between.
+	 */
+	static class MainThreadBuild {
+		final RenderRegion region;
+		private final PackedInputRegion inputRegion;
+		private final boolean isNear;
+		private final boolean isLod;
+		private final long dirtyMask;
+		private final boolean relight;
+		private final BitSet animationBits = new BitSet();
+		private UploadableRegion solidUpload;
+		private UploadableRegion translucentUpload;
+
+		private MainThreadBuild(RenderRegion region, PackedInputRegion inputRegion, boolean isNear, boolean isLod, long dirtyMask, boolean relight) {
+			this.region = region;
+			this.inputRegion = inputRegion;
+			this.isNear = isNear;
+			this.isLod = isLod;
+			this.dirtyMask = dirtyMask;
+			this.relight = relight;
+		}
+	}
+
+	/**
+	 * Captures world state for a main-thread rebuild. Must be called on the render thread.
+	 *
+	 * @return build to be tessellated and completed, or null if the region is empty and nothing more is needed
+	 */
+	@Nullable MainThreadBuild prepareMainThreadBuild() {
 		final PackedInputRegion inputRegion = PackedInputRegion.claim(worldRenderState.getWorld(), origin);
+		markBuilt();
+		scheduledLod = origin.isLod();
 
 		if (inputRegion == SignalInputRegion.EMPTY) {
+			discardMeshCache();
 			final RegionBuildState newBuildState = new RegionBuildState();
 			newBuildState.setOcclusionResult(RegionOcclusionCalculator.EMPTY_OCCLUSION_RESULT);
 
@@ -521,38 +907,69 @@ public class RenderRegion implements TerrainExecutorTask {
 				// Even if empty the chunk may still be needed for visibility search to progress
 				notifyOcclusionChange();
 			}
-		} else {
-			final CanvasTerrainRenderContext context = renderRegionBuilder.mainThreadContext.prepareForRegion(inputRegion);
-			final RegionBuildState newBuildState = captureAndSetBuildState(context, origin.isNear());
-			context.encoder.updateSector(renderSector, origin);
 
-			buildTerrain(context, newBuildState);
+			return null;
+		}
 
-			if (ChunkRebuildCounters.ENABLED) {
-				ChunkRebuildCounters.startUpload();
-			}
+		final long dirty = pendingDirtySubRegions.getAndSet(0) | dirtySubRegions;
+		final boolean relight = pendingRelight.getAndSet(false) | needsRelight;
+		dirtySubRegions = 0;
+		needsRelight = false;
 
-			final VertexCollectorList collectors = context.encoder.collectors;
-			final UploadableRegion solidUpload = collectors.toUploadableChunk(false, origin, worldRenderState);
-			final UploadableRegion translucentUpload = collectors.toUploadableChunk(true, origin, worldRenderState);
+		return new MainThreadBuild(this, inputRegion, origin.isNear(), scheduledLod, dirty == 0 && !relight ? SubRegionMeshCache.ALL_SUB_REGIONS : dirty, relight);
+	}
 
-			releaseDrawables();
-			solidDrawable = solidUpload.produceDrawable();
-			translucentDrawable = translucentUpload.produceDrawable();
-			animationBits.clear();
-			animationBits.or(context.encoder.animationBits);
+	/**
+	 * Tessellates a prepared main-thread rebuild. Safe to call from any thread
+	 * with a context not in use by any other thread.
+	 */
+	static void tessellateMainThreadBuild(MainThreadBuild build, CanvasTerrainRenderContext context) {
+		final RenderRegion region = build.region;
+		final VertexCollectorList collectors = context.encoder.collectors;
 
-			worldRenderState.invalidateDrawLists();
+		// Input and collectors must be released even if tessellation fails, leaving no uploads
+		try {
+			context.prepareForRegion(build.inputRegion);
+			final RegionBuildState newBuildState = region.captureAndSetBuildState(context, build.isNear, build.isLod);
+			context.encoder.updateSector(region.renderSector, region.origin);
+			region.buildTerrain(context, newBuildState, build.dirtyMask, build.relight);
+
+			build.solidUpload = collectors.toUploadableChunk(false, build.isLod, region.origin, region.worldRenderState);
+			build.translucentUpload = collectors.toUploadableChunk(true, build.isLod, region.origin, region.worldRenderState);
+			build.animationBits.or(context.encoder.animationBits);
+		} finally {
+			collectors.clear();
+			build.inputRegion.release();
+		}
+	}
 
-			if (ChunkRebuildCounters.ENABLED) {
-				ChunkRebuildCounters.completeUpload();
-			}
+	/** Applies the results of a tessellated main-thread rebuild. Must be called on the render thread. */
+	void completeMainThreadBuild(MainThreadBuild build) {
+		if (build.solidUpload == null || build.translucentUpload == null) {
+			// Tessellation failed - try again later
+			markForBuildAfterAbort();
+			return;
+		}
 
-			collectors.clear();
-			inputRegion.release();
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.startUpload();
 		}
 
-		markBuilt();
+		releaseDrawables();
+		solidDrawable = build.solidUpload.produceDrawable();
+		translucentDrawable = build.translucentUpload.produceDrawable();
+		animationBits.clear();
+		animationBits.or(build.animationBits);
+
+		worldRenderState.invalidateDrawLists();
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completeUpload();
+		}
+	}
+
+	CanvasTerrainRenderContext mainThreadContext() {
+		return renderRegionBuilder.mainThreadContext;
 	}
 
 	public RegionBuildState getBuildState() {
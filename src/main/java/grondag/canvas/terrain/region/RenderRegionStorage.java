@@ -38,6 +38,9 @@ public class RenderRegionStorage {
 	private final RenderChunk[] chunks = new RenderChunk[RenderRegionIndexer.PADDED_CHUNK_INDEX_COUNT];
 	private final ArrayBlockingQueue<RenderChunk> closeQueue = new ArrayBlockingQueue<>(RenderRegionIndexer.PADDED_CHUNK_INDEX_COUNT);
 
+	/** True while a vanilla light update is marking sections dirty. Main thread only. */
+	private boolean isLightUpdate = false;
+
 	public RenderRegionStorage(WorldRenderState worldRenderState) {
 		this.worldRenderState = worldRenderState;
 
@@ -56,7 +59,12 @@ public class RenderRegionStorage {
 		final RenderRegion region = getRegionIfExists(x, y, z);
 
 		if (region != null) {
-			region.markForBuild(urgent);
+			if (isLightUpdate) {
+				region.markForLightChange(urgent);
+			} else {
+				region.markForWorldChange(urgent);
+			}
+
 			// Marking the region for rebuild doesn't cause iteration to be rerun.
 			// We don't know if the change would have affected occlusion so we
 			// have to assume that it did and if it was within the potential visible
@@ -68,6 +76,37 @@ public class RenderRegionStorage {
 		}
 	}
 
+	/**
+	 * Records which sub-regions a changed block can affect, including face culling,
+	 * AO and fluid corners of adjacent blocks. Vanilla marks the affected sections
+	 * dirty immediately after, and those regions can then rebuild only these sub-regions.
+	 */
+	public void markBlockChanged(int x, int y, int z) {
+		final int x0 = (x - 1) & ~0xF;
+		final int y0 = (y - 1) & ~0xF;
+		final int z0 = (z - 1) & ~0xF;
+
+		for (int rz = z0; rz <= z + 1; rz += 16) {
+			for (int ry = y0; ry <= y + 1; ry += 16) {
+				for (int rx = x0; rx <= x + 1; rx += 16) {
+					final RenderRegion region = getRegionIfExists(rx, ry, rz);
+
+					if (region != null) {
+						region.markSubRegionsDirty(SubRegionMeshCache.subRegionMask(x - 1 - rx, y - 1 - ry, z - 1 - rz, x + 1 - rx, y + 1 - ry, z + 1 - rz));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Set while vanilla handles a light update so that the section changes it
+	 * reports can be handled as light-only.
+	 */
+	public void setLightUpdate(boolean isLightUpdate) {
+		this.isLightUpdate = isLightUpdate;
+	}
+
 	public void updateRegionPositionAndVisibility() {
 		for (int i = 0; i < RenderRegionIndexer.PADDED_CHUNK_INDEX_COUNT; ++i) {
 			chunks[i].updatePositionAndVisibility();
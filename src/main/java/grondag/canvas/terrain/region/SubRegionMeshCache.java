@@ -0,0 +1,431 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.region;
+
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.MESH_VERTEX_STRIDE;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_LIGHTMAP;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_NORMAL;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_X;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_Y;
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.VERTEX_Z;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.util.Mth;
+
+import grondag.canvas.apiimpl.rendercontext.CanvasTerrainRenderContext;
+import grondag.canvas.apiimpl.rendercontext.encoder.TerrainQuadEncoder;
+import grondag.canvas.buffer.format.TerrainEncoder;
+import grondag.canvas.buffer.input.DrawableVertexCollector;
+import grondag.canvas.buffer.input.VertexCollectorList;
+import grondag.canvas.material.state.CanvasRenderMaterial;
+
+/**
+ * Retains the encoded quads of a region grouped by 4x4x4 sub-region so that a block
+ * change only needs to re-tessellate the sub-regions it can affect.  Quads of unchanged
+ * sub-regions are replayed into the vertex collectors without re-running models,
+ * lighting or color.
+ *
+ * <p>Only retained for regions that see block updates after they are built, and
+ * the memory retained is capped, so static terrain costs no extra memory.
+ *
+ * <p>Each quad also keeps the parts of the emitter state that lighting reads, captured
+ * just before lighting was applied: the quad header and vertex positions, normals and
+ * lightmaps. When only light changes, sub-regions are relit from that state and only
+ * the AO and lightmap words of the encoded quads are rewritten.
+ *
+ * <p>Segments are immutable once recorded and are shared between successive
+ * cache instances of the same region.
+ */
+public class SubRegionMeshCache {
+	public static final int SUB_REGION_COUNT = 64;
+	public static final long ALL_SUB_REGIONS = -1L;
+
+	private static final long MAX_RETAINED_BYTES = 32L * 1024 * 1024;
+	private static final AtomicLong retainedBytes = new AtomicLong();
+	private static final int[] EMPTY_DATA = new int[0];
+	private static final byte[] EMPTY_FLAGS = new byte[0];
+	private static final short[] EMPTY_INDEXES = new short[0];
+
+	private static final int FACE_MASK = 0x07;
+	private static final int FLAG_FLUID = 0x40;
+	private static final int FLAG_CAST_SHADOW = 0x80;
+
+	private static final int PRE_SHADE_HEADER_INTS = TOTAL_MESH_QUAD_STRIDE - 4 * MESH_VERTEX_STRIDE;
+	private static final int PRE_SHADE_VERTEX_INTS = 5;
+	private static final int PRE_SHADE_STRIDE = PRE_SHADE_HEADER_INTS + 4 * PRE_SHADE_VERTEX_INTS;
+
+	private final int sectorId;
+	private final int sectorRelativeRegionOrigin;
+	private final Segment[] segments = new Segment[SUB_REGION_COUNT];
+	/** Bytes counted against the retention limit, set when the build completes. */
+	private long byteSize = 0;
+
+	private SubRegionMeshCache(int sectorId, int sectorRelativeRegionOrigin) {
+		this.sectorId = sectorId;
+		this.sectorRelativeRegionOrigin = sectorRelativeRegionOrigin;
+	}
+
+	/**
+	 * Creates a new cache to be populated by the current build.  Caches that replace
+	 * a prior cache are always created because they take over its retained memory.
+	 *
+	 * @return null if the retention limit is already reached
+	 */
+	static @Nullable SubRegionMeshCache create(@Nullable SubRegionMeshCache prior, TerrainQuadEncoder encoder) {
+		if (prior == null && retainedBytes.get() >= MAX_RETAINED_BYTES) {
+			return null;
+		}
+
+		return new SubRegionMeshCache(encoder.sectorId(), encoder.sectorRelativeRegionOrigin());
+	}
+
+	/**
+	 * Counts this fully-populated cache against the retention limit in place of the
+	 * prior cache, which must not be used or released afterwards.
+	 *
+	 * @return false if the limit is exceeded, in which case this cache has been released
+	 */
+	boolean retain(@Nullable SubRegionMeshCache prior) {
+		long bytes = 0;
+
+		for (final Segment segment : segments) {
+			if (segment != null) {
+				bytes += segment.byteSize();
+			}
+		}
+
+		byteSize = bytes;
+
+		if (retainedBytes.addAndGet(bytes - (prior == null ? 0 : prior.byteSize)) > MAX_RETAINED_BYTES) {
+			release();
+			return false;
+		}
+
+		return true;
+	}
+
+	/** Call when a cache is discarded without being succeeded by another cache for the same region. */
+	void release() {
+		retainedBytes.addAndGet(-byteSize);
+		byteSize = 0;
+	}
+
+	/** True if segments can be replayed for a region with the given encoder state. */
+	boolean isCompatible(TerrainQuadEncoder encoder) {
+		return encoder.sectorId() == sectorId && encoder.sectorRelativeRegionOrigin() == sectorRelativeRegionOrigin;
+	}
+
+	@Nullable Segment segment(int subRegion) {
+		return segments[subRegion];
+	}
+
+	/** Carries forward an unchanged segment from a prior cache. */
+	void setSegment(int subRegion, Segment segment) {
+		segments[subRegion] = segment;
+	}
+
+	/** Starts a new, empty segment to record the given sub-region. */
+	Segment newSegment(int subRegion) {
+		final Segment result = new Segment(TerrainEncoder.TERRAIN_MATERIAL.quadStrideInts);
+		segments[subRegion] = result;
+		return result;
+	}
+
+	/**
+	 * Sub-region containing the given region-relative block coordinates.
+	 */
+	public static int subRegionIndex(int x, int y, int z) {
+		return (x >> 2) | ((y >> 2) << 2) | ((z >> 2) << 4);
+	}
+
+	/**
+	 * Mask of sub-regions that overlap the given inclusive range of region-relative
+	 * coordinates. Coordinates outside 0-15 are clamped.
+	 */
+	public static long subRegionMask(int x0, int y0, int z0, int x1, int y1, int z1) {
+		final int sx0 = Mth.clamp(x0, 0, 15) >> 2;
+		final int sy0 = Mth.clamp(y0, 0, 15) >> 2;
+		final int sz0 = Mth.clamp(z0, 0, 15) >> 2;
+		final int sx1 = Mth.clamp(x1, 0, 15) >> 2;
+		final int sy1 = Mth.clamp(y1, 0, 15) >> 2;
+		final int sz1 = Mth.clamp(z1, 0, 15) >> 2;
+
+		long result = 0;
+
+		for (int z = sz0; z <= sz1; ++z) {
+			for (int y = sy0; y <= sy1; ++y) {
+				for (int x = sx0; x <= sx1; ++x) {
+					result |= 1L << (x | (y << 2) | (z << 4));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	public static long retainedBytes() {
+		return retainedBytes.get();
+	}
+
+	/**
+	 * Restores emitter state captured by {@link Segment#capturePreShade(int[], int, boolean)}.
+	 * Vertex fields that aren't captured are left unchanged and must not be used.
+	 *
+	 * @param emitterData Emitter data array, receives a single quad at the start
+	 */
+	public static void loadPreShade(int[] preShadeData, int preShadeIndex, int[] emitterData) {
+		System.arraycopy(preShadeData, preShadeIndex, emitterData, 0, PRE_SHADE_HEADER_INTS);
+		int from = preShadeIndex + PRE_SHADE_HEADER_INTS;
+
+		for (int v = 0; v < 4; ++v) {
+			final int to = PRE_SHADE_HEADER_INTS + v * MESH_VERTEX_STRIDE;
+			emitterData[to + VERTEX_X] = preShadeData[from];
+			emitterData[to + VERTEX_Y] = preShadeData[from + 1];
+			emitterData[to + VERTEX_Z] = preShadeData[from + 2];
+			emitterData[to + VERTEX_NORMAL] = preShadeData[from + 3];
+			emitterData[to + VERTEX_LIGHTMAP] = preShadeData[from + 4];
+			from += PRE_SHADE_VERTEX_INTS;
+		}
+	}
+
+	/**
+	 * Encoded quads for one sub-region, in the order they were committed.
+	 * Each quad retains the material and collector bucket needed to re-commit it,
+	 * along with the pre-lighting emitter state and block needed to relight it.
+	 */
+	public static class Segment {
+		private final ObjectArrayList<CanvasRenderMaterial> materials;
+		private final BitSet animationBits;
+		// Most sub-regions are empty or nearly so - don't allocate until needed
+		private int[] quadData = EMPTY_DATA;
+		private byte[] quadFlags = EMPTY_FLAGS;
+		private int[] preShadeData = EMPTY_DATA;
+		private short[] blockIndexes = EMPTY_INDEXES;
+		private int quadCount = 0;
+		private final int quadStrideInts;
+
+		/** Index of the quad for which pre-lighting state was last captured, or -1 if none. */
+		private int preShadeQuadIndex = -1;
+		private boolean canRelight = true;
+
+		Segment(int quadStrideInts) {
+			this(quadStrideInts, true);
+		}
+
+		/**
+		 * @param canRelight False if the segment will never be relit, so pre-lighting
+		 * state need not be captured.
+		 */
+		Segment(int quadStrideInts, boolean canRelight) {
+			this.quadStrideInts = quadStrideInts;
+			this.canRelight = canRelight;
+			materials = new ObjectArrayList<>();
+			animationBits = new BitSet();
+		}
+
+		/** Segment restored from previously recorded output. Cannot be relit. */
+		Segment(int quadStrideInts, ObjectArrayList<CanvasRenderMaterial> materials, BitSet animationBits, int[] quadData, byte[] quadFlags, int quadCount) {
+			this.quadStrideInts = quadStrideInts;
+			this.materials = materials;
+			this.animationBits = animationBits;
+			this.quadData = quadData;
+			this.quadFlags = quadFlags;
+			this.quadCount = quadCount;
+			canRelight = false;
+		}
+
+		/** Copy of a completed segment with its own encoded data and everything else shared. */
+		private Segment(Segment template) {
+			quadStrideInts = template.quadStrideInts;
+			materials = template.materials;
+			animationBits = template.animationBits;
+			quadCount = template.quadCount;
+			quadData = template.quadData.clone();
+			quadFlags = template.quadFlags;
+			preShadeData = template.preShadeData;
+			blockIndexes = template.blockIndexes;
+			canRelight = template.canRelight;
+		}
+
+		private void ensureCapacity(int quadIndex) {
+			if (quadIndex == quadFlags.length) {
+				final int newCapacity = Math.max(16, quadIndex * 2);
+				final int[] newData = new int[newCapacity * quadStrideInts];
+				System.arraycopy(quadData, 0, newData, 0, quadIndex * quadStrideInts);
+				quadData = newData;
+				final byte[] newFlags = new byte[newCapacity];
+				System.arraycopy(quadFlags, 0, newFlags, 0, quadIndex);
+				quadFlags = newFlags;
+
+				// Pre-lighting state is only read by relight
+				if (canRelight) {
+					final int[] newPreShade = new int[newCapacity * PRE_SHADE_STRIDE];
+					System.arraycopy(preShadeData, 0, newPreShade, 0, quadIndex * PRE_SHADE_STRIDE);
+					preShadeData = newPreShade;
+					final short[] newIndexes = new short[newCapacity];
+					System.arraycopy(blockIndexes, 0, newIndexes, 0, quadIndex);
+					blockIndexes = newIndexes;
+				}
+			}
+		}
+
+		/**
+		 * Captures the emitter state lighting depends on before lighting is applied to the
+		 * quad about to be encoded.
+		 *
+		 * @param emitterData Emitter data array, holding a single quad at the start
+		 * @param blockIndex Region-relative interior index of the block being rendered
+		 */
+		public void capturePreShade(int[] emitterData, int blockIndex, boolean isFluid) {
+			if (!canRelight) {
+				return;
+			}
+
+			final int quadIndex = quadCount;
+			ensureCapacity(quadIndex);
+			final int[] preShadeData = this.preShadeData;
+			int to = quadIndex * PRE_SHADE_STRIDE;
+			System.arraycopy(emitterData, 0, preShadeData, to, PRE_SHADE_HEADER_INTS);
+			to += PRE_SHADE_HEADER_INTS;
+
+			for (int v = 0; v < 4; ++v) {
+				final int from = PRE_SHADE_HEADER_INTS + v * MESH_VERTEX_STRIDE;
+				preShadeData[to] = emitterData[from + VERTEX_X];
+				preShadeData[to + 1] = emitterData[from + VERTEX_Y];
+				preShadeData[to + 2] = emitterData[from + VERTEX_Z];
+				preShadeData[to + 3] = emitterData[from + VERTEX_NORMAL];
+				preShadeData[to + 4] = emitterData[from + VERTEX_LIGHTMAP];
+				to += PRE_SHADE_VERTEX_INTS;
+			}
+
+			blockIndexes[quadIndex] = (short) blockIndex;
+			quadFlags[quadIndex] = (byte) (isFluid ? FLAG_FLUID : 0);
+			preShadeQuadIndex = quadIndex;
+		}
+
+		/**
+		 * Captures a quad just committed to a collector.
+		 *
+		 * @param target Collector target array, still holding the quad that was committed
+		 * @param animationIndex Animated sprite index or -1 if not animated
+		 */
+		public void record(CanvasRenderMaterial mat, int effectiveFaceIndex, boolean castShadow, int[] target, int animationIndex) {
+			final int quadIndex = quadCount;
+			ensureCapacity(quadIndex);
+
+			// Quads that bypassed lighting can't be relit, so neither can the segment
+			final int fluidFlag;
+
+			if (preShadeQuadIndex == quadIndex) {
+				fluidFlag = quadFlags[quadIndex] & FLAG_FLUID;
+			} else {
+				fluidFlag = 0;
+				canRelight = false;
+			}
+
+			preShadeQuadIndex = -1;
+
+			System.arraycopy(target, 0, quadData, quadIndex * quadStrideInts, quadStrideInts);
+			quadFlags[quadIndex] = (byte) (effectiveFaceIndex | fluidFlag | (castShadow ? FLAG_CAST_SHADOW : 0));
+			materials.add(mat);
+
+			if (animationIndex >= 0) {
+				animationBits.set(animationIndex);
+			}
+
+			quadCount = quadIndex + 1;
+		}
+
+		int quadCount() {
+			return quadCount;
+		}
+
+		int quadStrideInts() {
+			return quadStrideInts;
+		}
+
+		CanvasRenderMaterial material(int quadIndex) {
+			return materials.get(quadIndex);
+		}
+
+		/** Encoded quads, possibly with unused capacity at the end. Do not modify. */
+		int[] quadData() {
+			return quadData;
+		}
+
+		/** Per-quad flags, possibly with unused capacity at the end. Do not modify. */
+		byte[] quadFlags() {
+			return quadFlags;
+		}
+
+		BitSet animationBits() {
+			return animationBits;
+		}
+
+		/** Approximate heap bytes held by this segment's arrays. */
+		long byteSize() {
+			return 4L * quadData.length + quadFlags.length + 4L * preShadeData.length + 2L * blockIndexes.length + 8L * materials.size();
+		}
+
+		/** True if every quad in this segment has the state needed to relight it. */
+		boolean canRelight() {
+			return canRelight;
+		}
+
+		/**
+		 * Creates a copy of this segment with AO and lightmaps recomputed from current light
+		 * values in the context's input region. Blocks in the sub-region must be unchanged.
+		 */
+		Segment relight(CanvasTerrainRenderContext context) {
+			final Segment result = new Segment(this);
+			final int[] resultData = result.quadData;
+			final int limit = quadCount;
+
+			for (int i = 0; i < limit; ++i) {
+				context.relightQuad(blockIndexes[i], (quadFlags[i] & FLAG_FLUID) != 0, preShadeData, i * PRE_SHADE_STRIDE, resultData, i * quadStrideInts);
+			}
+
+			return result;
+		}
+
+		/** Re-commits all quads in this segment through the same collector paths used to encode them. */
+		void replay(TerrainQuadEncoder encoder) {
+			final VertexCollectorList collectors = encoder.collectors;
+			final int stride = quadStrideInts;
+			final int limit = quadCount;
+
+			for (int i = 0; i < limit; ++i) {
+				final DrawableVertexCollector collector = collectors.get(materials.get(i));
+				System.arraycopy(quadData, i * stride, collector.target(), 0, stride);
+				final int flags = quadFlags[i];
+				collector.commit(flags & FACE_MASK, (flags & FLAG_CAST_SHADOW) != 0);
+			}
+
+			encoder.animationBits.or(animationBits);
+		}
+	}
+}
@@ -65,6 +65,7 @@ import static grondag.canvas.terrain.util.RenderRegionStateIndexer.SIDE_INDEX_Z0
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.SIDE_INDEX_Z2;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.TOTAL_STATE_COUNT;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.interiorIndex;
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.offsetInteriorIndex;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.regionIndexToPackedSectionPos;
 
 import java.util.Arrays;
@@ -76,40 +77,63 @@ import org.jetbrains.annotations.Nullable;
 import net.minecraft.client.renderer.LevelRenderer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
+import net.minecraft.core.Holder;
+import net.minecraft.core.SectionPos;
 import net.minecraft.world.level.BlockAndTintGetter;
 import net.minecraft.world.level.ColorResolver;
 import net.minecraft.world.level.LightLayer;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.DataLayer;
 import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.lighting.LevelLightEngine;
+import net.minecraft.world.level.material.Fluid;
 import net.minecraft.world.level.material.FluidState;
 
 import io.vram.frex.api.world.RenderRegionBakeListener;
 
 import grondag.canvas.apiimpl.rendercontext.CanvasTerrainRenderContext;
+import grondag.canvas.mixinterface.PalettedContainerExt;
+import grondag.canvas.perf.ChunkRebuildCounters;
 import grondag.canvas.terrain.occlusion.geometry.RegionOcclusionCalculator;
 import grondag.canvas.terrain.util.ChunkColorCache;
+import grondag.canvas.terrain.util.FaceCullTable;
+import grondag.canvas.terrain.util.RegionBiomeColors;
+import grondag.canvas.terrain.util.TouchedIndexSet;
 
 // FIX: should not allow direct world access, esp from non-main threads
 public class InputRegion extends AbstractInputRegion implements BlockAndTintGetter {
-	private static final int[] EMPTY_AO_CACHE = new int[TOTAL_STATE_COUNT];
-	private static final int[] EMPTY_LIGHT_CACHE = new int[TOTAL_STATE_COUNT];
+	private static final int UNASSIGNED_STATE_ID = -2;
+	private static final int[] EMPTY_STATE_IDS = new int[TOTAL_STATE_COUNT];
+	private static final Direction[] DIRECTIONS = Direction.values();
+	/** Region index of each interior position's neighbor, six per position by face ordinal. */
+	private static final int[] NEIGHBOR_INDEXES = new int[INTERIOR_STATE_COUNT * 6];
 	private static final Object[] EMPTY_RENDER_DATA = new Object[INTERIOR_STATE_COUNT];
 	private static final BlockEntity[] EMPTY_BLOCK_ENTITIES = new BlockEntity[INTERIOR_STATE_COUNT];
 
 	static {
-		Arrays.fill(EMPTY_AO_CACHE, Integer.MAX_VALUE);
-		Arrays.fill(EMPTY_LIGHT_CACHE, Integer.MAX_VALUE);
+		Arrays.fill(EMPTY_STATE_IDS, UNASSIGNED_STATE_ID);
+
+		for (int i = 0; i < INTERIOR_STATE_COUNT; ++i) {
+			for (final Direction face : DIRECTIONS) {
+				NEIGHBOR_INDEXES[i * 6 + face.ordinal()] = offsetInteriorIndex(i, face);
+			}
+		}
 	}
 
 	public final BlockEntity[] blockEntities = new BlockEntity[INTERIOR_STATE_COUNT];
 	public final CanvasTerrainRenderContext terrainContext;
 	protected final BlockPos.MutableBlockPos searchPos = new BlockPos.MutableBlockPos();
 	protected final Object[] renderData = new Object[INTERIOR_STATE_COUNT];
+	private boolean hasRenderData;
 	private final BlockState[] states = new BlockState[TOTAL_STATE_COUNT];
+	// Section decoding scratch - vanilla order
+	private final BlockState[] sectionStates = new BlockState[INTERIOR_STATE_COUNT];
+	private final int[] sectionIds = new int[INTERIOR_STATE_COUNT];
+	private @Nullable BlockState uniformInterior;
 	public final ObjectArrayList<RenderRegionBakeListener> bakeListeners = new ObjectArrayList<>();
 
 	public final RegionOcclusionCalculator occlusion = new RegionOcclusionCalculator() {
@@ -126,25 +150,51 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 			final int z = ((xyz5 >> 10) & 31) - REGION_PADDING;
 			return blockState.isSolidRender(InputRegion.this, searchPos.set(originX + x, originY + y, originZ + z));
 		}
+
+		@Override
+		protected @Nullable BlockState uniformInteriorState() {
+			return uniformInterior;
+		}
 	};
 
-	// PERF: pack for reduced memory, better LOC
-	private final int[] aoCache = new int[TOTAL_STATE_COUNT];
-	private final int[] lightCache = new int[TOTAL_STATE_COUNT];
+	// Light holds block light in the low byte and sky light in the high byte.
+	// Entries are valid only if present in the matching touched set.
+	private final byte[] aoCache = new byte[TOTAL_STATE_COUNT];
+	private final char[] lightCache = new char[TOTAL_STATE_COUNT];
+	private final TouchedIndexSet aoTouched = new TouchedIndexSet(TOTAL_STATE_COUNT);
+	private final TouchedIndexSet lightTouched = new TouchedIndexSet(TOTAL_STATE_COUNT);
+	// Only used by static quad caching, so allocated and prepared on first use in a region.
+	// States are interned lazily, only for positions that take part in face culling.
+	private int[] stateIds;
+	private FaceCullTable cullTable;
+	private boolean isCullTablePrepared;
+
+	public final RegionBiomeColors biomeColors = new RegionBiomeColors() {
+		@Override
+		protected ChunkColorCache chunkColors(int chunkX, int chunkZ) {
+			return ChunkColorCache.get(getChunk(chunkX, chunkZ));
+		}
+	};
+	private final BlockPos.MutableBlockPos cullPos = new BlockPos.MutableBlockPos();
 
 	public InputRegion(CanvasTerrainRenderContext terrainContext) {
 		this.terrainContext = terrainContext;
 	}
 
 	public void prepare(PackedInputRegion packedRegion) {
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.startPrepare();
+		}
+
 		bakeListeners.clear();
 		bakeListeners.addAll(packedRegion.bakeListenerContext.listeners);
 
 		System.arraycopy(packedRegion.chunks, 0, chunks, 0, 16);
 		System.arraycopy(EMPTY_BLOCK_ENTITIES, 0, blockEntities, 0, INTERIOR_STATE_COUNT);
 		System.arraycopy(EMPTY_RENDER_DATA, 0, renderData, 0, INTERIOR_STATE_COUNT);
-		System.arraycopy(EMPTY_AO_CACHE, 0, aoCache, 0, TOTAL_STATE_COUNT);
-		System.arraycopy(EMPTY_LIGHT_CACHE, 0, lightCache, 0, TOTAL_STATE_COUNT);
+		aoTouched.clear();
+		lightTouched.clear();
+		isCullTablePrepared = false;
 
 		world = packedRegion.world;
 
@@ -156,16 +206,9 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 		baseSectionIndex = packedRegion.baseSectionIndex;
 		chunkBaseZ = packedRegion.chunkBaseZ;
 
-		final var mainSection = getSection(1, 1, 1);
-
-		for (int x = 0; x < 16; x++) {
-			for (int y = 0; y < 16; y++) {
-				for (int z = 0; z < 16; z++) {
-					states[interiorIndex(x, y, z)] = mainSection.getBlockState(x, y, z);
-				}
-			}
-		}
+		biomeColors.prepare(originX, originY, originZ);
 
+		captureInterior(getSection(1, 1, 1));
 		captureCorners();
 		captureEdges();
 		captureFaces();
@@ -173,6 +216,10 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 		copyBeData(packedRegion);
 
 		occlusion.prepare();
+
+		if (ChunkRebuildCounters.ENABLED) {
+			ChunkRebuildCounters.completePrepare();
+		}
 	}
 
 	private interface BlockStateFunction {
@@ -180,10 +227,54 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 	}
 
 	private static final BlockState AIR = Blocks.AIR.defaultBlockState();
-	private static BlockStateFunction AIR_FUNCTION = (i, j, k) -> AIR;
+
+	/**
+	 * State of every block in the section if it is empty or holds a single value, or null otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	private static @Nullable BlockState uniformState(@Nullable LevelChunkSection section) {
+		if (section == null || section.hasOnlyAir()) {
+			return AIR;
+		}
+
+		return ((PalettedContainerExt<BlockState>) section.getStates()).canvas_uniformValue();
+	}
+
+	/**
+	 * Decodes the section palette directly instead of looking up each block.
+	 */
+	@SuppressWarnings("unchecked")
+	private void captureInterior(LevelChunkSection section) {
+		final BlockState uniformState = section.hasOnlyAir() ? AIR : ((PalettedContainerExt<BlockState>) section.getStates()).canvas_unpack(sectionStates, sectionIds);
+		uniformInterior = uniformState;
+
+		if (uniformState != null) {
+			Arrays.fill(states, 0, INTERIOR_STATE_COUNT, uniformState);
+			return;
+		}
+
+		// vanilla section order is YZX, ours is ZYX
+		for (int z = 0; z < 16; z++) {
+			for (int y = 0; y < 16; y++) {
+				final int from = (y << 8) | (z << 4);
+				final int to = interiorIndex(0, y, z);
+
+				for (int x = 0; x < 16; x++) {
+					states[to + x] = sectionStates[from + x];
+				}
+			}
+		}
+	}
 
 	//NB: the addressing math here must match what is in RenderRegionAddressHelper
-	private void captureFace(int baseIndex, BlockStateFunction func) {
+	private void captureFace(int baseIndex, @Nullable LevelChunkSection section, BlockStateFunction func) {
+		final BlockState uniformState = uniformState(section);
+
+		if (uniformState != null) {
+			Arrays.fill(states, baseIndex, baseIndex + FACE_STATE_COUNT, uniformState);
+			return;
+		}
+
 		for (int n = 0; n < FACE_STATE_COUNT; ++n) {
 			states[baseIndex + n] = func.apply(n & FACE_I_MASK, (n >> FACE_J_SHIFT) & FACE_J_MASK, n >> FACE_K_SHIFT);
 		}
@@ -191,26 +282,33 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 
 	private void captureFaces() {
 		final LevelChunkSection lowX = getSection(0, 1, 1);
-		captureFace(SIDE_INDEX_X0, lowX == null ? AIR_FUNCTION : (i, j, k) -> lowX.getBlockState(14 + k, i, j));
+		captureFace(SIDE_INDEX_X0, lowX, (i, j, k) -> lowX.getBlockState(14 + k, i, j));
 
 		final LevelChunkSection highX = getSection(2, 1, 1);
-		captureFace(SIDE_INDEX_X2, highX == null ? AIR_FUNCTION : (i, j, k) -> highX.getBlockState(k, i, j));
+		captureFace(SIDE_INDEX_X2, highX, (i, j, k) -> highX.getBlockState(k, i, j));
 
 		final LevelChunkSection lowZ = getSection(1, 1, 0);
-		captureFace(SIDE_INDEX_Z0, lowZ == null ? AIR_FUNCTION : (i, j, k) -> lowZ.getBlockState(i, j, 14 + k));
+		captureFace(SIDE_INDEX_Z0, lowZ, (i, j, k) -> lowZ.getBlockState(i, j, 14 + k));
 
 		final LevelChunkSection highZ = getSection(1, 1, 2);
-		captureFace(SIDE_INDEX_Z2, highZ == null ? AIR_FUNCTION : (i, j, k) -> highZ.getBlockState(i, j, k));
+		captureFace(SIDE_INDEX_Z2, highZ, (i, j, k) -> highZ.getBlockState(i, j, k));
 
 		final LevelChunkSection lowY = getSection(1, 0, 1);
-		captureFace(SIDE_INDEX_Y0, lowY == null ? AIR_FUNCTION : (i, j, k) -> lowY.getBlockState(i, 14 + k, j));
+		captureFace(SIDE_INDEX_Y0, lowY, (i, j, k) -> lowY.getBlockState(i, 14 + k, j));
 
 		final LevelChunkSection highY = getSection(1, 2, 1);
-		captureFace(SIDE_INDEX_Y2, highY == null ? AIR_FUNCTION : (i, j, k) -> highY.getBlockState(i, k, j));
+		captureFace(SIDE_INDEX_Y2, highY, (i, j, k) -> highY.getBlockState(i, k, j));
 	}
 
 	//NB: the addressing math here must match what is in RenderRegionAddressHelper
-	private void captureEdge(int baseIndex, BlockStateFunction func) {
+	private void captureEdge(int baseIndex, @Nullable LevelChunkSection section, BlockStateFunction func) {
+		final BlockState uniformState = uniformState(section);
+
+		if (uniformState != null) {
+			Arrays.fill(states, baseIndex, baseIndex + EDGE_STATE_COUNT, uniformState);
+			return;
+		}
+
 		for (int n = 0; n < EDGE_STATE_COUNT; ++n) {
 			states[baseIndex + n] = func.apply(n & EDGE_I_MASK, (n >> EDGE_J_SHIFT) & EDGE_J_MASK, n >> EDGE_K_SHIFT);
 		}
@@ -218,44 +316,51 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 
 	private void captureEdges() {
 		final LevelChunkSection aaZ = getSection(0, 0, 1);
-		captureEdge(EDGE_INDEX_Y0X0, aaZ == null ? AIR_FUNCTION : (i, j, k) -> aaZ.getBlockState(14 + i, 14 + j, k));
+		captureEdge(EDGE_INDEX_Y0X0, aaZ, (i, j, k) -> aaZ.getBlockState(14 + i, 14 + j, k));
 
 		final LevelChunkSection abZ = getSection(0, 2, 1);
-		captureEdge(EDGE_INDEX_Y2X0, abZ == null ? AIR_FUNCTION : (i, j, k) -> abZ.getBlockState(14 + i, j, k));
+		captureEdge(EDGE_INDEX_Y2X0, abZ, (i, j, k) -> abZ.getBlockState(14 + i, j, k));
 
 		final LevelChunkSection baZ = getSection(2, 0, 1);
-		captureEdge(EDGE_INDEX_Y0X2, baZ == null ? AIR_FUNCTION : (i, j, k) -> baZ.getBlockState(i, 14 + j, k));
+		captureEdge(EDGE_INDEX_Y0X2, baZ, (i, j, k) -> baZ.getBlockState(i, 14 + j, k));
 
 		final LevelChunkSection bbZ = getSection(2, 2, 1);
-		captureEdge(EDGE_INDEX_Y2X2, bbZ == null ? AIR_FUNCTION : (i, j, k) -> bbZ.getBlockState(i, j, k));
+		captureEdge(EDGE_INDEX_Y2X2, bbZ, (i, j, k) -> bbZ.getBlockState(i, j, k));
 
 		final LevelChunkSection aYa = getSection(0, 1, 0);
-		captureEdge(EDGE_INDEX_Z0X0, aYa == null ? AIR_FUNCTION : (i, j, k) -> aYa.getBlockState(14 + i, k, 14 + j));
+		captureEdge(EDGE_INDEX_Z0X0, aYa, (i, j, k) -> aYa.getBlockState(14 + i, k, 14 + j));
 
 		final LevelChunkSection aYb = getSection(0, 1, 2);
-		captureEdge(EDGE_INDEX_Z2X0, aYb == null ? AIR_FUNCTION : (i, j, k) -> aYb.getBlockState(14 + i, k, j));
+		captureEdge(EDGE_INDEX_Z2X0, aYb, (i, j, k) -> aYb.getBlockState(14 + i, k, j));
 
 		final LevelChunkSection bYa = getSection(2, 1, 0);
-		captureEdge(EDGE_INDEX_Z0X2, bYa == null ? AIR_FUNCTION : (i, j, k) -> bYa.getBlockState(i, k, 14 + j));
+		captureEdge(EDGE_INDEX_Z0X2, bYa, (i, j, k) -> bYa.getBlockState(i, k, 14 + j));
 
 		final LevelChunkSection bYb = getSection(2, 1, 2);
-		captureEdge(EDGE_INDEX_Z2X2, bYb == null ? AIR_FUNCTION : (i, j, k) -> bYb.getBlockState(i, k, j));
+		captureEdge(EDGE_INDEX_Z2X2, bYb, (i, j, k) -> bYb.getBlockState(i, k, j));
 
 		final LevelChunkSection Xaa = getSection(1, 0, 0);
-		captureEdge(EDGE_INDEX_Z0Y0, Xaa == null ? AIR_FUNCTION : (i, j, k) -> Xaa.getBlockState(k, 14 + i, 14 + j));
+		captureEdge(EDGE_INDEX_Z0Y0, Xaa, (i, j, k) -> Xaa.getBlockState(k, 14 + i, 14 + j));
 
 		final LevelChunkSection Xab = getSection(1, 0, 2);
-		captureEdge(EDGE_INDEX_Z2Y0, Xab == null ? AIR_FUNCTION : (i, j, k) -> Xab.getBlockState(k, 14 + i, j));
+		captureEdge(EDGE_INDEX_Z2Y0, Xab, (i, j, k) -> Xab.getBlockState(k, 14 + i, j));
 
 		final LevelChunkSection Xba = getSection(1, 2, 0);
-		captureEdge(EDGE_INDEX_Z0Y2, Xba == null ? AIR_FUNCTION : (i, j, k) -> Xba.getBlockState(k, i, 14 + j));
+		captureEdge(EDGE_INDEX_Z0Y2, Xba, (i, j, k) -> Xba.getBlockState(k, i, 14 + j));
 
 		final LevelChunkSection Xbb = getSection(1, 2, 2);
-		captureEdge(EDGE_INDEX_Z2Y2, Xbb == null ? AIR_FUNCTION : (i, j, k) -> Xbb.getBlockState(k, i, j));
+		captureEdge(EDGE_INDEX_Z2Y2, Xbb, (i, j, k) -> Xbb.getBlockState(k, i, j));
 	}
 
 	//NB: the addressing math here must match what is in RenderRegionAddressHelper
-	private void captureCorner(int baseIndex, BlockStateFunction func) {
+	private void captureCorner(int baseIndex, @Nullable LevelChunkSection section, BlockStateFunction func) {
+		final BlockState uniformState = uniformState(section);
+
+		if (uniformState != null) {
+			Arrays.fill(states, baseIndex, baseIndex + CORNER_STATE_COUNT, uniformState);
+			return;
+		}
+
 		for (int n = 0; n < CORNER_STATE_COUNT; ++n) {
 			states[baseIndex + n] = func.apply(n & CORNER_I_MASK, (n >> CORNER_J_SHIFT) & CORNER_J_MASK, n >> CORNER_K_SHIFT);
 		}
@@ -263,28 +368,28 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 
 	private void captureCorners() {
 		final LevelChunkSection xyz = getSection(0, 0, 0);
-		captureCorner(CORNER_INDEX_000, xyz == null ? AIR_FUNCTION : (i, j, k) -> xyz.getBlockState(14 + i, 14 + j, 14 + k));
+		captureCorner(CORNER_INDEX_000, xyz, (i, j, k) -> xyz.getBlockState(14 + i, 14 + j, 14 + k));
 
 		final LevelChunkSection xyZ = getSection(0, 0, 2);
-		captureCorner(CORNER_INDEX_200, xyZ == null ? AIR_FUNCTION : (i, j, k) -> xyZ.getBlockState(14 + i, 14 + j, k));
+		captureCorner(CORNER_INDEX_200, xyZ, (i, j, k) -> xyZ.getBlockState(14 + i, 14 + j, k));
 
 		final LevelChunkSection xYz = getSection(0, 2, 0);
-		captureCorner(CORNER_INDEX_020, xYz == null ? AIR_FUNCTION : (i, j, k) -> xYz.getBlockState(14 + i, j, 14 + k));
+		captureCorner(CORNER_INDEX_020, xYz, (i, j, k) -> xYz.getBlockState(14 + i, j, 14 + k));
 
 		final LevelChunkSection xYZ = getSection(0, 2, 2);
-		captureCorner(CORNER_INDEX_220, xYZ == null ? AIR_FUNCTION : (i, j, k) -> xYZ.getBlockState(14 + i, j, k));
+		captureCorner(CORNER_INDEX_220, xYZ, (i, j, k) -> xYZ.getBlockState(14 + i, j, k));
 
 		final LevelChunkSection Xyz = getSection(2, 0, 0);
-		captureCorner(CORNER_INDEX_002, Xyz == null ? AIR_FUNCTION : (i, j, k) -> Xyz.getBlockState(i, 14 + j, 14 + k));
+		captureCorner(CORNER_INDEX_002, Xyz, (i, j, k) -> Xyz.getBlockState(i, 14 + j, 14 + k));
 
 		final LevelChunkSection XyZ = getSection(2, 0, 2);
-		captureCorner(CORNER_INDEX_202, XyZ == null ? AIR_FUNCTION : (i, j, k) -> XyZ.getBlockState(i, 14 + j, k));
+		captureCorner(CORNER_INDEX_202, XyZ, (i, j, k) -> XyZ.getBlockState(i, 14 + j, k));
 
 		final LevelChunkSection XYz = getSection(2, 2, 0);
-		captureCorner(CORNER_INDEX_022, XYz == null ? AIR_FUNCTION : (i, j, k) -> XYz.getBlockState(i, j, 14 + k));
+		captureCorner(CORNER_INDEX_022, XYz, (i, j, k) -> XYz.getBlockState(i, j, 14 + k));
 
 		final LevelChunkSection XYZ = getSection(2, 2, 2);
-		captureCorner(CORNER_INDEX_222, XYZ == null ? AIR_FUNCTION : (i, j, k) -> XYZ.getBlockState(i, j, k));
+		captureCorner(CORNER_INDEX_222, XYZ, (i, j, k) -> XYZ.getBlockState(i, j, k));
 	}
 
 	private void copyBeData(PackedInputRegion protoRegion) {
@@ -300,8 +405,9 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 		}
 
 		final ShortArrayList renderDataPos = protoRegion.renderDataPos;
+		hasRenderData = !renderDataPos.isEmpty();
 
-		if (!renderDataPos.isEmpty()) {
+		if (hasRenderData) {
 			final ObjectArrayList<Object> renderData = protoRegion.renderData;
 			final int limit = renderDataPos.size();
 
@@ -365,18 +471,18 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 	}
 
 	public int cachedBrightness(int cacheIndex) {
-		int result = lightCache[cacheIndex];
-
-		if (result == Integer.MAX_VALUE) {
-			final BlockState state = states[cacheIndex];
-			final int packedXyz5 = regionIndexToPackedSectionPos(cacheIndex);
-			final int x = (packedXyz5 & 31) - 2 + originX;
-			final int y = ((packedXyz5 >> 5) & 31) - 2 + originY;
-			final int z = (packedXyz5 >> 10) - 2 + originZ;
-			result = LevelRenderer.getLightColor(world, state, searchPos.set(x, y, z));
-			lightCache[cacheIndex] = result;
+		if (lightTouched.contains(cacheIndex)) {
+			final int packed = lightCache[cacheIndex];
+			return (packed & 0xFF) | ((packed & 0xFF00) << 8);
 		}
 
+		final BlockState state = states[cacheIndex];
+		final int packedXyz5 = regionIndexToPackedSectionPos(cacheIndex);
+		final int x = (packedXyz5 & 31) - 2 + originX;
+		final int y = ((packedXyz5 >> 5) & 31) - 2 + originY;
+		final int z = (packedXyz5 >> 10) - 2 + originZ;
+		final int result = LevelRenderer.getLightColor(world, state, searchPos.set(x, y, z));
+		putLightCache(cacheIndex, result);
 		return result;
 	}
 
@@ -384,13 +490,24 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 	 * For light smoothing.
 	 */
 	public void setLightCache(int x, int y, int z, int val) {
-		lightCache[blockIndex(x, y, z)] = val;
+		putLightCache(blockIndex(x, y, z), val);
+	}
+
+	/** Block and sky light never exceed 240, so each fits in a byte of the packed cache. */
+	private void putLightCache(int cacheIndex, int packedLight) {
+		lightCache[cacheIndex] = (char) ((packedLight & 0xFF) | ((packedLight >>> 8) & 0xFF00));
+		lightTouched.add(cacheIndex);
 	}
 
 	public int directBrightness(BlockPos pos) {
 		return LevelRenderer.getLightColor(world, getBlockState(pos), pos);
 	}
 
+	/** Same as {@link #directBrightness(BlockPos)} for a block state already retrieved. */
+	public int directBrightness(BlockState state, BlockPos pos) {
+		return LevelRenderer.getLightColor(world, state, pos);
+	}
+
 	// TODO: do anything with this?
 	// Vanilla now computes diffuse shading at chunk bake time and consumes this value in AO calc
 	@Override
@@ -398,28 +515,152 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 		return world.getShade(direction, shaded);
 	}
 
-	public int cachedAoLevel(int cacheIndex) {
-		int result = aoCache[cacheIndex];
-
-		if (result == Integer.MAX_VALUE) {
-			final BlockState state = states[cacheIndex];
-
-			if (state.getLightEmission() == 0) {
-				final int packedXyz5 = regionIndexToPackedSectionPos(cacheIndex);
-				final int x = (packedXyz5 & 31) - 2 + originX;
-				final int y = ((packedXyz5 >> 5) & 31) - 2 + originY;
-				final int z = (packedXyz5 >> 10) - 2 + originZ;
-				result = Math.round(255f * state.getShadeBrightness(this, searchPos.set(x, y, z)));
-			} else {
-				result = 255;
+	private void prepareCullTable() {
+		if (cullTable == null) {
+			cullTable = new FaceCullTable();
+			stateIds = new int[TOTAL_STATE_COUNT];
+		}
+
+		System.arraycopy(EMPTY_STATE_IDS, 0, stateIds, 0, TOTAL_STATE_COUNT);
+		cullTable.prepare();
+		isCullTablePrepared = true;
+	}
+
+	private int stateId(int cacheIndex) {
+		int result = stateIds[cacheIndex];
+
+		if (result == UNASSIGNED_STATE_ID) {
+			result = cullTable.intern(states[cacheIndex]);
+			stateIds[cacheIndex] = result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Faces of the block at the given interior position that are not hidden by
+	 * their neighbors, one bit per face by {@link Direction} ordinal.
+	 * Same result as {@link Block#shouldRenderFace} for each face.
+	 *
+	 * @param pos World position of the block, must match the interior index
+	 */
+	public int cullMask(int interiorIndex, BlockPos pos) {
+		if (!isCullTablePrepared) {
+			prepareCullTable();
+		}
+
+		final BlockState blockState = states[interiorIndex];
+		final int stateId = stateId(interiorIndex);
+		final int neighborBase = interiorIndex * 6;
+		int result = 0;
+
+		for (int f = 0; f < 6; ++f) {
+			final Direction face = DIRECTIONS[f];
+			final int neighborId = stateId(NEIGHBOR_INDEXES[neighborBase + f]);
+
+			if (cullTable.shouldRenderFace(stateId, neighborId, blockState, this, pos, face, cullPos.setWithOffset(pos, face))) {
+				result |= 1 << f;
 			}
+		}
 
-			aoCache[cacheIndex] = result;
+		return result;
+	}
+
+	/**
+	 * True if all six neighbors of the given interior position hold the given fluid.
+	 * Faces between cells of the same fluid are never drawn, so a fluid enclosed
+	 * this way emits no quads and does not need to be tessellated.
+	 */
+	public boolean isFluidEnclosed(int interiorIndex, Fluid fluid) {
+		final int neighborBase = interiorIndex * 6;
+
+		for (int f = 0; f < 6; ++f) {
+			if (!states[NEIGHBOR_INDEXES[neighborBase + f]].getFluidState().getType().isSame(fluid)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public int cachedAoLevel(int cacheIndex) {
+		if (aoTouched.contains(cacheIndex)) {
+			return aoCache[cacheIndex] & 0xFF;
 		}
 
+		final BlockState state = states[cacheIndex];
+		final int result;
+
+		if (state.getLightEmission() == 0) {
+			final int packedXyz5 = regionIndexToPackedSectionPos(cacheIndex);
+			final int x = (packedXyz5 & 31) - 2 + originX;
+			final int y = ((packedXyz5 >> 5) & 31) - 2 + originY;
+			final int z = (packedXyz5 >> 10) - 2 + originZ;
+			result = Math.round(255f * state.getShadeBrightness(this, searchPos.set(x, y, z)));
+		} else {
+			result = 255;
+		}
+
+		aoCache[cacheIndex] = (byte) result;
+		aoTouched.add(cacheIndex);
 		return result;
 	}
 
+	/**
+	 * True if tessellation output depends only on what {@link #hashContent(RegionContentHash)} covers.
+	 * Bake listeners and block entity render data are opaque and can change without any block changing.
+	 */
+	public boolean isContentHashable() {
+		return bakeListeners.isEmpty() && !hasRenderData;
+	}
+
+	/**
+	 * Adds everything tessellation reads from the world to the given hash: origin, block states
+	 * including the exterior border, light data and biomes of the surrounding sections.
+	 */
+	public void hashContent(RegionContentHash hash) {
+		hash.add(BlockPos.asLong(originX, originY, originZ));
+
+		for (final BlockState state : states) {
+			hash.add(Block.getId(state));
+		}
+
+		final LevelLightEngine lightEngine = world.getLightEngine();
+		final int baseSectionY = (originY >> 4) - 1;
+
+		for (int x = 0; x < 3; ++x) {
+			for (int z = 0; z < 3; ++z) {
+				for (int y = 0; y < 3; ++y) {
+					final SectionPos sectionPos = SectionPos.of(chunkBaseX + x, baseSectionY + y, chunkBaseZ + z);
+					hashLight(hash, lightEngine.getLayerListener(LightLayer.SKY).getDataLayerData(sectionPos));
+					hashLight(hash, lightEngine.getLayerListener(LightLayer.BLOCK).getDataLayerData(sectionPos));
+					hashBiomes(hash, getSection(x, y, z));
+				}
+			}
+		}
+	}
+
+	private static void hashLight(RegionContentHash hash, @Nullable DataLayer light) {
+		if (light == null || light.isEmpty()) {
+			hash.add(-1);
+		} else {
+			hash.add(light.getData());
+		}
+	}
+
+	private static void hashBiomes(RegionContentHash hash, @Nullable LevelChunkSection section) {
+		if (section == null) {
+			hash.add(-1);
+			return;
+		}
+
+		// Registry ids are assigned by the server, so use names to stay stable across reconnects
+		for (int i = 0; i < 64; ++i) {
+			final Holder<Biome> biome = section.getNoiseBiome(i & 3, (i >> 2) & 3, i >> 4);
+			hash.add(biome.unwrapKey().map(k -> k.location().hashCode()).orElse(0));
+		}
+	}
+
 	@Override
 	public LevelLightEngine getLightEngine() {
 		return world.getLightEngine();
@@ -427,9 +668,7 @@ public class InputRegion extends AbstractInputRegion implements BlockAndTintGett
 
 	@Override
 	public int getBlockTint(BlockPos blockPos, ColorResolver colorResolver) {
-		final int x = blockPos.getX();
-		final int z = blockPos.getZ();
-		return ChunkColorCache.get(getChunk(x >> 4, z >> 4)).getColor(x, blockPos.getY(), z, colorResolver);
+		return biomeColors.blockTint(blockPos, colorResolver);
 	}
 
 	public Biome getBiome(BlockPos blockPos) {
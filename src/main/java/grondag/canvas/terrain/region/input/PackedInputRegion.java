@@ -20,11 +20,12 @@
 
 package grondag.canvas.terrain.region.input;
 
-import static grondag.canvas.terrain.util.RenderRegionStateIndexer.EXTERIOR_STATE_COUNT;
 import static grondag.canvas.terrain.util.RenderRegionStateIndexer.interiorIndex;
 
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.shorts.ShortArrayList;
@@ -32,8 +33,8 @@ import it.unimi.dsi.fastutil.shorts.ShortArrayList;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 
 import io.vram.frex.api.world.BlockEntityRenderData;
 import io.vram.frex.api.world.RenderRegionBakeListener;
@@ -46,30 +47,160 @@ import grondag.canvas.perf.ChunkRebuildCounters;
  * for later consumption on possibly non-render threads for terrain render region rebuild.
  *
  * <p>Also serves as a state indicator for rebuild activity.
+ *
+ * <p>Block states are read from chunk sections when the region is prepared for
+ * tessellation, so instances hold only chunk references and block entity data.
+ * Released instances are pooled up to a memory budget. Lists that grew large
+ * for an unusual region are trimmed before pooling, and instances beyond the
+ * peak demand seen since the last trim pass are dropped by {@link #trimPool()}.
  */
 public class PackedInputRegion extends AbstractInputRegion {
-	private static final ArrayBlockingQueue<PackedInputRegion> POOL = new ArrayBlockingQueue<>(256);
+	/** Upper bound on memory retained by pooled instances that are not in use. */
+	private static final long POOL_BUDGET_BYTES = 2L * 1024 * 1024;
+	/** Approximate size of an instance with empty lists, including the chunk array and bake listener context. */
+	private static final int BASE_BYTES = 512;
+	/** Lists with more capacity than this are trimmed before pooling. */
+	private static final int MAX_POOLED_LIST_CAPACITY = 64;
+	private static final long TRIM_INTERVAL_NANOS = 5_000_000_000L;
+
+	private static final ConcurrentLinkedQueue<PackedInputRegion> POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger pooledCount = new AtomicInteger();
+	private static final AtomicLong pooledBytes = new AtomicLong();
+	/** Instances claimed and not yet released. */
+	private static final AtomicInteger claimedCount = new AtomicInteger();
+	/** Most instances claimed at once since the last trim pass. */
+	private static final AtomicInteger claimedHighWater = new AtomicInteger();
+	/** Most instances claimed at once since last reload. */
+	private static final AtomicInteger claimedPeak = new AtomicInteger();
+	private static long nextTrimNanos = 0;
 
 	public final ObjectArrayList<BlockEntity> blockEntities = new ObjectArrayList<>();
 	public final ChunkRenderConditionContext bakeListenerContext = new ChunkRenderConditionContext();
 
-	final BlockState[] states = new BlockState[EXTERIOR_STATE_COUNT];
 	final ShortArrayList renderDataPos = new ShortArrayList();
 	final ObjectArrayList<Object> renderData = new ObjectArrayList<>();
 	final ShortArrayList blockEntityPos = new ShortArrayList();
 
+	/** Estimated retained size while pooled. */
+	private int pooledSizeBytes;
+
 	public static PackedInputRegion claim(ClientLevel world, BlockPos origin) {
-		final PackedInputRegion result = POOL.poll();
-		return (result == null ? new PackedInputRegion() : result).prepare(world, origin);
+		PackedInputRegion result = POOL.poll();
+
+		if (result == null) {
+			result = new PackedInputRegion();
+		} else {
+			pooledCount.decrementAndGet();
+			pooledBytes.addAndGet(-result.pooledSizeBytes);
+		}
+
+		final int claimed = claimedCount.incrementAndGet();
+		claimedHighWater.accumulateAndGet(claimed, Math::max);
+		claimedPeak.accumulateAndGet(claimed, Math::max);
+
+		return result.prepare(world, origin);
 	}
 
 	private static void release(PackedInputRegion region) {
+		claimedCount.decrementAndGet();
+		region.trimLists();
+		final int bytes = region.retainedBytes();
+
+		// Beyond budget the instance is left for GC
+		if (pooledBytes.addAndGet(bytes) > POOL_BUDGET_BYTES) {
+			pooledBytes.addAndGet(-bytes);
+			return;
+		}
+
+		region.pooledSizeBytes = bytes;
+		pooledCount.incrementAndGet();
 		POOL.offer(region);
 	}
 
+	private void trimLists() {
+		if (blockEntities.elements().length > MAX_POOLED_LIST_CAPACITY) {
+			blockEntities.trim(MAX_POOLED_LIST_CAPACITY);
+		}
+
+		if (renderData.elements().length > MAX_POOLED_LIST_CAPACITY) {
+			renderData.trim(MAX_POOLED_LIST_CAPACITY);
+		}
+
+		if (blockEntityPos.elements().length > MAX_POOLED_LIST_CAPACITY) {
+			blockEntityPos.clear();
+			blockEntityPos.trim(MAX_POOLED_LIST_CAPACITY);
+		}
+
+		if (renderDataPos.elements().length > MAX_POOLED_LIST_CAPACITY) {
+			renderDataPos.clear();
+			renderDataPos.trim(MAX_POOLED_LIST_CAPACITY);
+		}
+	}
+
+	private int retainedBytes() {
+		// Assumes compressed references
+		return BASE_BYTES
+				+ 4 * (blockEntities.elements().length + renderData.elements().length)
+				+ 2 * (blockEntityPos.elements().length + renderDataPos.elements().length);
+	}
+
+	/**
+	 * Drops pooled instances beyond the most claimed at once since the prior pass,
+	 * so memory retained after a burst of chunk loads is returned. Call from the render thread,
+	 * as often as convenient; passes run at most every few seconds.
+	 */
+	public static void trimPool() {
+		final long now = System.nanoTime();
+
+		if (now < nextTrimNanos) {
+			return;
+		}
+
+		nextTrimNanos = now + TRIM_INTERVAL_NANOS;
+
+		final int claimed = claimedCount.get();
+		// Instances now claimed will return to the pool, so only the rest of the peak needs to be pooled
+		final int keep = Math.max(0, claimedHighWater.getAndSet(claimed) - claimed);
+
+		while (pooledCount.get() > keep) {
+			final PackedInputRegion region = POOL.poll();
+
+			if (region == null) {
+				break;
+			}
+
+			pooledCount.decrementAndGet();
+			pooledBytes.addAndGet(-region.pooledSizeBytes);
+		}
+	}
+
+	public static String debugSummary() {
+		return String.format("Input regions claimed:%d peak:%d pooled:%d %dKb",
+				claimedCount.get(),
+				claimedPeak.get(),
+				pooledCount.get(),
+				pooledBytes.get() / 1024);
+	}
+
 	public static void reload() {
 		// ensure current AoFix rule or other config-dependent lambdas are used
 		POOL.clear();
+		pooledCount.set(0);
+		pooledBytes.set(0);
+		claimedPeak.set(claimedCount.get());
+	}
+
+	/**
+	 * True if the section at the given index holds only air, in which case nothing can be
+	 * tessellated and the region can skip input capture and collector setup entirely.
+	 */
+	private static boolean isEmptySection(LevelChunk chunk, int sectionIndex) {
+		if (chunk.isEmpty()) {
+			return true;
+		}
+
+		final LevelChunkSection[] sections = chunk.getSections();
+		return sectionIndex < 0 || sectionIndex >= sections.length || sections[sectionIndex] == null || sections[sectionIndex].hasOnlyAir();
 	}
 
 	private PackedInputRegion prepare(ClientLevel world, BlockPos origin) {
@@ -101,7 +232,7 @@ public class PackedInputRegion extends AbstractInputRegion {
 
 		final PackedInputRegion result;
 
-		if (mainChunk.isEmpty() && bakeListenerContext.listeners.isEmpty()) {
+		if (isEmptySection(mainChunk, baseSectionIndex + 1) && bakeListenerContext.listeners.isEmpty()) {
 			release();
 			result = SignalInputRegion.EMPTY;
 		} else {
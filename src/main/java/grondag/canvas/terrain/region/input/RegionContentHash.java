@@ -0,0 +1,72 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.region.input;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Accumulates a 128-bit hash of region inputs. Not cryptographic - only needs
+ * collisions to be vanishingly rare for content that actually occurs in a world.
+ */
+public class RegionContentHash {
+	private static final long P1 = 0x9E3779B97F4A7C15L;
+	private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+	private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private long h1;
+	private long h2;
+
+	public RegionContentHash reset(long seed) {
+		h1 = seed;
+		h2 = ~seed;
+		return this;
+	}
+
+	public void add(long value) {
+		h1 = Long.rotateLeft(h1 ^ (value * P1), 31) * P2;
+		h2 = Long.rotateLeft(h2 ^ (value * P2), 27) * P1 + h1;
+	}
+
+	/** Length of the array must be a multiple of eight. */
+	public void add(byte[] data) {
+		for (int i = 0; i < data.length; i += 8) {
+			add((long) LONG_VIEW.get(data, i));
+		}
+	}
+
+	public long high() {
+		return mix(h1 + h2);
+	}
+
+	public long low() {
+		return mix(h2 ^ Long.rotateLeft(h1, 17));
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.util;
+
+import static io.vram.frex.base.renderer.mesh.MeshEncodingHelper.TOTAL_MESH_QUAD_STRIDE;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.client.resources.model.SimpleBakedModel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Quads emitted by static block models, captured just before lighting and keyed by
+ * block state and the mask of faces not culled by neighbors. Quads at that point have
+ * already passed through the model and material mapping, so a block with a cached entry
+ * can skip the model and emitter pipeline and only needs lighting, color and encoding.
+ *
+ * <p>Not thread-safe. Each terrain render context owns an instance.
+ */
+public class BlockQuadCache {
+	/** Written only by the render thread and read by terrain workers. */
+	private static volatile int currentVersion = 0;
+	/** Entries are discarded once this many ints are cached, about 4MB per context. */
+	private static final int MAX_CACHED_INTS = 1 << 20;
+	private static final int[] NO_QUADS = new int[0];
+
+	private final Reference2ObjectOpenHashMap<BlockState, int[][]> entries = new Reference2ObjectOpenHashMap<>();
+	private int version = currentVersion;
+	private int cachedInts;
+
+	private int[] captureData = new int[TOTAL_MESH_QUAD_STRIDE * 16];
+	private int captureInts;
+
+	/**
+	 * Cached quads depend on baked models and material mappings, both of which
+	 * can change when resources or options reload. Call from the render thread.
+	 */
+	public static void invalidate() {
+		currentVersion++;
+	}
+
+	/**
+	 * True for models whose quads depend only on block state and culled faces.
+	 * Vanilla simple models qualify. Weighted and multipart models can select different
+	 * quads by position, and subclasses or other model types may emit dynamically.
+	 * Blocks with random offsets are also excluded.
+	 */
+	public static boolean isStatic(BlockState blockState, BakedModel model) {
+		return model.getClass() == SimpleBakedModel.class && blockState.getBlock().getOffsetType() == Block.OffsetType.NONE;
+	}
+
+	/** Discards all entries if the cache was invalidated since they were captured. */
+	public void checkVersion() {
+		final int currentVersion = BlockQuadCache.currentVersion;
+
+		if (version != currentVersion) {
+			clear();
+			version = currentVersion;
+		}
+	}
+
+	private void clear() {
+		entries.clear();
+		cachedInts = 0;
+	}
+
+	/**
+	 * Pre-lighting emitter data for the quads emitted for the given state and face mask,
+	 * packed {@code TOTAL_MESH_QUAD_STRIDE} ints per quad, or null if not cached.
+	 */
+	public int @Nullable [] get(BlockState blockState, int cullMask) {
+		final int[][] quads = entries.get(blockState);
+		return quads == null ? null : quads[cullMask];
+	}
+
+	public void beginCapture() {
+		captureInts = 0;
+	}
+
+	/** Adds one quad of emitter data, starting at index 0, to the capture in progress. */
+	public void capture(int[] emitterData) {
+		if (captureInts + TOTAL_MESH_QUAD_STRIDE > captureData.length) {
+			final int[] newData = new int[captureData.length * 2];
+			System.arraycopy(captureData, 0, newData, 0, captureInts);
+			captureData = newData;
+		}
+
+		System.arraycopy(emitterData, 0, captureData, captureInts, TOTAL_MESH_QUAD_STRIDE);
+		captureInts += TOTAL_MESH_QUAD_STRIDE;
+	}
+
+	public void endCapture(BlockState blockState, int cullMask) {
+		if (cachedInts + captureInts > MAX_CACHED_INTS) {
+			clear();
+		}
+
+		final int[][] quads = entries.computeIfAbsent(blockState, s -> new int[64][]);
+		final int[] data;
+
+		if (captureInts == 0) {
+			data = NO_QUADS;
+		} else {
+			data = new int[captureInts];
+			System.arraycopy(captureData, 0, data, 0, captureInts);
+		}
+
+		quads[cullMask] = data;
+		cachedInts += captureInts;
+	}
+}
@@ -27,6 +27,7 @@ import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.BiomeColors;
 import net.minecraft.core.BlockPos.MutableBlockPos;
 import net.minecraft.core.Holder;
+import net.minecraft.core.QuartPos;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.ColorResolver;
 import net.minecraft.world.level.biome.Biome;
@@ -36,19 +37,32 @@ import net.minecraft.world.level.chunk.LevelChunk;
 
 import grondag.canvas.mixinterface.LevelChunkExt;
 
-//FEAT: per-vertex blending (quality)
+/**
+ * Biome colors of one chunk at biome quart resolution, 4x4x4 blocks, so that
+ * biomes stacked vertically have their own colors. Blending is horizontal within
+ * each quart layer. See {@link RegionBiomeColors} for interpolation between quarts.
+ */
 public class ChunkColorCache implements BiomeManager.NoiseBiomeSource {
 	private static final Minecraft mc = Minecraft.getInstance();
 	private static int VERSION = 0;
+	/** Blending can reach at most one chunk beyond this one. */
+	private static final int MAX_QUART_BLEND_RADIUS = 4;
+	private static final ThreadLocal<MutableBlockPos> SEARCH_POS = ThreadLocal.withInitial(MutableBlockPos::new);
+
+	public static final int GRASS = 0;
+	public static final int FOLIAGE = 1;
+	public static final int WATER = 2;
+
 	private final LevelChunk chunk;
 	private final ClientLevel world;
 	private final int chunkX;
 	private final int chunkZ;
+	private final int minQuartY;
+	private final int quartHeight;
 	private final int version;
 	private final BiomeColorCache grassCache = new BiomeColorCache(BiomeColors.GRASS_COLOR_RESOLVER, c -> c.grassCache);
 	private final BiomeColorCache foliageCache = new BiomeColorCache(BiomeColors.FOLIAGE_COLOR_RESOLVER, c -> c.foliageCache);
 	private final BiomeColorCache waterCache = new BiomeColorCache(BiomeColors.WATER_COLOR_RESOLVER, c -> c.waterCache);
-	private final MutableBlockPos searchPos = new MutableBlockPos();
 
 	public ChunkColorCache(ClientLevel world, LevelChunk chunk) {
 		this.world = world;
@@ -57,6 +71,8 @@ public class ChunkColorCache implements BiomeManager.NoiseBiomeSource {
 		final ChunkPos pos = chunk.getPos();
 		chunkX = pos.x;
 		chunkZ = pos.z;
+		minQuartY = QuartPos.fromBlock(world.getMinBuildHeight());
+		quartHeight = QuartPos.fromBlock(world.getHeight());
 	}
 
 	public static ChunkColorCache get(LevelChunk chunk) {
@@ -71,8 +87,29 @@ public class ChunkColorCache implements BiomeManager.NoiseBiomeSource {
 		return version < VERSION;
 	}
 
+	/** Index of the given resolver as used by {@link #blendedQuartColors(int)}, or -1 if colors are not cached for it. */
+	public static int resolverIndex(ColorResolver colorResolver) {
+		if (colorResolver == BiomeColors.GRASS_COLOR_RESOLVER) {
+			return GRASS;
+		} else if (colorResolver == BiomeColors.FOLIAGE_COLOR_RESOLVER) {
+			return FOLIAGE;
+		} else if (colorResolver == BiomeColors.WATER_COLOR_RESOLVER) {
+			return WATER;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * Biome blend radius converted from blocks to quarts. Interpolation
+	 * between quart centers blends over four more blocks on its own.
+	 */
+	public static int quartBlendRadius() {
+		return Math.min((mc.options.biomeBlendRadius + 2) >> 2, MAX_QUART_BLEND_RADIUS);
+	}
+
 	public Biome getBiome(int x, int y, int z) {
-		return world.getBiomeManager().getBiome(searchPos.set(x, y, z)).value();
+		return world.getBiomeManager().getBiome(SEARCH_POS.get().set(x, y, z)).value();
 	}
 
 	private LevelChunk getChunk(int cx, int cz) {
@@ -94,113 +131,191 @@ public class ChunkColorCache implements BiomeManager.NoiseBiomeSource {
 		return world.getUncachedNoiseBiome(x, y, z);
 	}
 
+	/**
+	 * Index in {@link #blendedQuartColors(int)} of the given quart, which must be in this chunk.
+	 * Quarts above or below the world use the nearest layer in the world.
+	 */
+	public int quartIndex(int qx, int qy, int qz) {
+		final int layer = Math.max(0, Math.min(quartHeight - 1, qy - minQuartY));
+		return (qx & 3) | ((qz & 3) << 2) | (layer << 4);
+	}
+
+	/**
+	 * Blended color of every quart in this chunk for the resolver with the given
+	 * index, see {@link #quartIndex(int, int, int)}. Must not be modified.
+	 */
+	public int[] blendedQuartColors(int resolverIndex) {
+		return cache(resolverIndex).blendedColors();
+	}
+
+	private BiomeColorCache cache(int resolverIndex) {
+		return switch (resolverIndex) {
+			case GRASS -> grassCache;
+			case FOLIAGE -> foliageCache;
+			default -> waterCache;
+		};
+	}
+
+	/** Blended color of the quart containing the given block position. */
 	public int getColor(int x, int y, int z, ColorResolver colorResolver) {
-		if (colorResolver == BiomeColors.GRASS_COLOR_RESOLVER) {
-			return grassCache.getColor(x, y, z);
-		} else if (colorResolver == BiomeColors.FOLIAGE_COLOR_RESOLVER) {
-			return foliageCache.getColor(x, y, z);
-		} else if (colorResolver == BiomeColors.WATER_COLOR_RESOLVER) {
-			return waterCache.getColor(x, y, z);
-		} else {
+		final int resolverIndex = resolverIndex(colorResolver);
+
+		if (resolverIndex == -1) {
 			return -1;
 		}
+
+		final int cx = x >> 4;
+		final int cz = z >> 4;
+		final ChunkColorCache target = cx == chunkX && cz == chunkZ ? this : get(world.getChunk(cx, cz));
+		return target.blendedQuartColors(resolverIndex)[target.quartIndex(x >> 2, y >> 2, z >> 2)];
 	}
 
+	/**
+	 * Caches unblended and blended quart colors for one color resolver in this chunk.
+	 *
+	 * <p>Blended colors for the whole chunk are computed at once from a summed-area
+	 * table of base colors for each quart layer over the chunk and the blend radius
+	 * around it, so each blended color costs the same regardless of radius.
+	 *
+	 * <p>Arrays are fully populated before they are published and never modified after,
+	 * so worker threads can read them without locking. Threads that race to populate
+	 * the same array compute identical results and the last one published wins.
+	 */
 	private class BiomeColorCache {
-		private static final int BASE_INDEX = 0;
-		private static final int BASE_CONTROL = BASE_INDEX + 256;
-		private static final int BLENDED_INDEX = BASE_CONTROL + 8;
-		private static final int BLENDED_CONTROL = BLENDED_INDEX + 256;
 		private final ColorResolver colorResolver;
 		private final Function<ChunkColorCache, BiomeColorCache> cacheFunc;
-		private final int[] data = new int[512 + 16];
+
+		/** Unblended color of each quart, see {@link ChunkColorCache#quartIndex}. Null until populated. */
+		private volatile int[] baseColors;
+
+		/**
+		 * Blended color of each quart, see {@link ChunkColorCache#quartIndex}, followed by
+		 * the quart blend radius used to compute them. Null until populated.
+		 */
+		private volatile int[] blendedColors;
 
 		private BiomeColorCache(ColorResolver colorResolver, Function<ChunkColorCache, BiomeColorCache> cacheFunc) {
 			this.colorResolver = colorResolver;
 			this.cacheFunc = cacheFunc;
 		}
 
-		private int getBaseColor(int x, int y, int z) {
-			final int cx = x >> 4;
-			final int cz = z >> 4;
+		/** Base colors for all quarts in this chunk. Colors are sampled at the center of each quart column. */
+		private int[] baseColors() {
+			int[] result = baseColors;
 
-			if (cx == chunkX && cz == chunkZ) {
-				return getLocalBaseColor(x, y, z);
-			} else {
-				return cacheFunc.apply(get(world.getChunk(cx, cz))).getLocalBaseColor(x, y, z);
+			if (result == null) {
+				final int layerCount = quartHeight;
+				result = new int[layerCount << 4];
+				final int qx0 = chunkX << 2;
+				final int qz0 = chunkZ << 2;
+
+				for (int i = 0; i < result.length; ++i) {
+					final int qx = qx0 + (i & 3);
+					final int qz = qz0 + ((i >> 2) & 3);
+					final Biome biome = chunk.getNoiseBiome(qx, minQuartY + (i >> 4), qz).value();
+					result[i] = colorResolver.getColor(biome, (qx << 2) + 2, (qz << 2) + 2);
+				}
+
+				baseColors = result;
 			}
+
+			return result;
 		}
 
-		private int getLocalBaseColor(int x, int y, int z) {
-			final int index = (x & 0xF) | ((z & 0xF) << 4);
-			final int controlIndex = BASE_CONTROL + (index >> 5);
-			final int controlMask = 1 << (index & 31);
+		private int[] blendedColors() {
+			final int radius = quartBlendRadius();
+			int[] result = blendedColors;
 
-			if ((data[controlIndex] & controlMask) == 0) {
-				final int result = computeLocalBaseColor(x, y, z);
-				data[controlIndex] |= controlMask;
-				data[index] = result;
-				return result;
-			} else {
-				return data[index];
+			if (result == null || result[result.length - 1] != radius) {
+				result = computeBlendedColors(radius);
+				blendedColors = result;
 			}
-		}
 
-		private int computeLocalBaseColor(int x, int y, int z) {
-			return colorResolver.getColor(getBiome(x, y, z), x, z);
+			return result;
 		}
 
-		private int getColor(int x, int y, int z) {
-			final int cx = x >> 4;
-			final int cz = z >> 4;
-
-			if (cx == chunkX && cz == chunkZ) {
-				return getLocalBlendedColor(x, y, z);
+		/** Base colors of the chunk at the given offset from this chunk, which must be at most one away. */
+		private int[] neighborBaseColors(int dx, int dz) {
+			if (dx == 0 && dz == 0) {
+				return baseColors();
 			} else {
-				return cacheFunc.apply(get(world.getChunk(cx, cz))).getLocalBlendedColor(x, y, z);
+				return cacheFunc.apply(get(world.getChunk(chunkX + dx, chunkZ + dz))).baseColors();
 			}
 		}
 
-		private int getLocalBlendedColor(int x, int y, int z) {
-			final int index = (x & 0xF) | ((z & 0xF) << 4);
-			final int controlIndex = BLENDED_CONTROL + (index >> 5);
-			final int controlMask = 1 << (index & 31);
+		private int[] computeBlendedColors(int radius) {
+			final int[] base = baseColors();
+			final int count = base.length;
+			final int[] result = new int[count + 1];
+			result[count] = radius;
 
-			if ((data[controlIndex] & controlMask) == 0) {
-				final int result = computeLocalBlendedColor(x, y, z);
-				data[controlIndex] |= controlMask;
-				data[index + BLENDED_INDEX] = result;
+			if (radius == 0) {
+				System.arraycopy(base, 0, result, 0, count);
 				return result;
-			} else {
-				return data[index + BLENDED_INDEX];
 			}
-		}
 
-		private int computeLocalBlendedColor(int xIn, int yIn, int zIn) {
-			final int radius = mc.options.biomeBlendRadius;
+			// Summed-area tables for each channel over one quart layer padded by radius on each side.
+			// Row and column zero are zero so window sums need no bounds checks.
+			final int size = 4 + radius * 2;
+			final int stride = size + 1;
+			final int[] sumR = new int[stride * stride];
+			final int[] sumG = new int[stride * stride];
+			final int[] sumB = new int[stride * stride];
+			final int[][] neighbors = new int[9][];
+			final int width = radius * 2 + 1;
+			final int sampleCount = width * width;
+			final int farOffset = width * stride + width;
 
-			if (radius == 0) {
-				return getLocalBaseColor(xIn, yIn, zIn);
-			} else {
-				final int sampleCount = (radius * 2 + 1) * (radius * 2 + 1);
-				int r = 0;
-				int g = 0;
-				int b = 0;
-
-				final int xMax = xIn + radius;
-				final int zMax = zIn + radius;
-
-				for (int x = xIn - radius; x <= xMax; x++) {
-					for (int z = zIn - radius; z <= zMax; z++) {
-						final int color = getBaseColor(x, yIn, z);
-						g += (color >> 8) & 255;
-						r += (color >> 16) & 255;
-						b += color & 255;
+			for (int layer = 0; layer < count; layer += 16) {
+				for (int pz = 0; pz < size; ++pz) {
+					final int z = pz - radius;
+					final int dz = z >> 2;
+					final int row = layer | ((z & 3) << 2);
+					int rowR = 0;
+					int rowG = 0;
+					int rowB = 0;
+
+					for (int px = 0; px < size; ++px) {
+						final int x = px - radius;
+						final int dx = x >> 2;
+						final int neighborIndex = (dx + 1) + (dz + 1) * 3;
+						int[] colors = neighbors[neighborIndex];
+
+						if (colors == null) {
+							colors = neighborBaseColors(dx, dz);
+							neighbors[neighborIndex] = colors;
+						}
+
+						final int color = colors[row | (x & 3)];
+						rowR += (color >> 16) & 255;
+						rowG += (color >> 8) & 255;
+						rowB += color & 255;
+
+						final int i = (pz + 1) * stride + px + 1;
+						sumR[i] = sumR[i - stride] + rowR;
+						sumG[i] = sumG[i - stride] + rowG;
+						sumB[i] = sumB[i - stride] + rowB;
 					}
 				}
 
-				return (r / sampleCount & 255) << 16 | (g / sampleCount & 255) << 8 | b / sampleCount & 255;
+				for (int z = 0; z < 4; ++z) {
+					for (int x = 0; x < 4; ++x) {
+						// window covers padded coordinates x to x + 2 * radius inclusive
+						final int near = z * stride + x;
+						final int far = near + farOffset;
+						final int nearFar = near + width;
+						final int farNear = near + width * stride;
+
+						final int r = sumR[far] - sumR[nearFar] - sumR[farNear] + sumR[near];
+						final int g = sumG[far] - sumG[nearFar] - sumG[farNear] + sumG[near];
+						final int b = sumB[far] - sumB[nearFar] - sumB[farNear] + sumB[near];
+
+						result[layer | x | (z << 2)] = (r / sampleCount & 255) << 16 | (g / sampleCount & 255) << 8 | b / sampleCount & 255;
+					}
+				}
 			}
+
+			return result;
 		}
 	}
 }
@@ -105,7 +105,7 @@ public class DedicatedTerrainExecutor extends AbstractExecutorService implements
 				try {
 					final TerrainExecutorTask t = queue.take();
 
-					if (t != null) {
+					if (t != null && !t.cancelIfStale()) {
 						t.run(context);
 					}
 				} catch (final InterruptedException e) {
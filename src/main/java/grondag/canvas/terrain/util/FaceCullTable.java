@@ -0,0 +1,103 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Dense table of {@link Block#shouldRenderFace} results for pairs of block states,
+ * filled as pairs are encountered. States are interned to small IDs so a lookup is
+ * two array reads instead of the allocation and hashing done by the vanilla cache.
+ *
+ * <p>Not thread-safe. Each terrain input region owns an instance.
+ */
+public class FaceCullTable {
+	/** Returned by {@link #intern(BlockState)} when the table is full. */
+	public static final int NO_ID = -1;
+	private static final int MAX_STATES = 512;
+	/** Table is cleared before a region if fewer than this many IDs remain. */
+	private static final int REGION_RESERVE = 128;
+	// two bits per face in each entry
+	private static final int KNOWN = 1;
+	private static final int RENDER = 2;
+
+	private final Reference2IntOpenHashMap<BlockState> ids = new Reference2IntOpenHashMap<>();
+	/** True for states with a dynamic shape, for which results may depend on position. */
+	private final boolean[] dynamic = new boolean[MAX_STATES];
+	private final short[] table = new short[MAX_STATES * MAX_STATES];
+
+	public FaceCullTable() {
+		ids.defaultReturnValue(NO_ID);
+	}
+
+	/**
+	 * Call before each region so that most states in the region can be interned.
+	 * IDs are only stable between calls.
+	 */
+	public void prepare() {
+		if (ids.size() > MAX_STATES - REGION_RESERVE) {
+			ids.clear();
+			Arrays.fill(table, (short) 0);
+		}
+	}
+
+	public int intern(BlockState blockState) {
+		int id = ids.getInt(blockState);
+
+		if (id == NO_ID && ids.size() < MAX_STATES) {
+			id = ids.size();
+			ids.put(blockState, id);
+			dynamic[id] = blockState.hasDynamicShape();
+		}
+
+		return id;
+	}
+
+	/**
+	 * Same result as {@link Block#shouldRenderFace}, retained for the given pair of
+	 * interned states unless either is {@link #NO_ID} or has a dynamic shape.
+	 */
+	public boolean shouldRenderFace(int stateId, int neighborId, BlockState blockState, BlockGetter world, BlockPos pos, Direction face, BlockPos neighborPos) {
+		if (stateId == NO_ID || neighborId == NO_ID || dynamic[stateId] || dynamic[neighborId]) {
+			return Block.shouldRenderFace(blockState, world, pos, face, neighborPos);
+		}
+
+		final int index = stateId * MAX_STATES + neighborId;
+		final int shift = face.ordinal() << 1;
+		final int entry = table[index] >> shift;
+
+		if ((entry & KNOWN) != 0) {
+			return (entry & RENDER) != 0;
+		}
+
+		final boolean result = Block.shouldRenderFace(blockState, world, pos, face, neighborPos);
+		table[index] |= (short) ((result ? KNOWN | RENDER : KNOWN) << shift);
+		return result;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.util;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ColorResolver;
+
+/**
+ * Blended biome colors around one render region at quart resolution, filled
+ * lazily for each color resolver cached by {@link ChunkColorCache}. Colors are
+ * interpolated between quart centers on all three axes, at block centers for
+ * block tint or at vertex positions for per-vertex tint.
+ *
+ * <p>Also remembers the tint most recently requested for a block, so tint
+ * applied to a whole quad can be replaced with tint at each vertex.
+ */
+public abstract class RegionBiomeColors {
+	/** Quarts per axis: the four in the region and one more on each side. */
+	private static final int SIZE = 6;
+	private static final int Y_STRIDE = SIZE;
+	private static final int Z_STRIDE = SIZE * SIZE;
+	private static final float MAX_GRID_COORDINATE = SIZE - 1.001f;
+
+	private final int[][] colors = new int[3][SIZE * SIZE * SIZE];
+	private int filledMask;
+	private boolean interpolate;
+	private int originX;
+	private int originY;
+	private int originZ;
+
+	private boolean hasTint;
+	private int tintX;
+	private int tintY;
+	private int tintZ;
+	/** Resolver index of the last block tint, or -1 if the tint can't be interpolated. */
+	private int tintResolver;
+	private int tintColor;
+
+	/** Color cache of the given chunk, which can be outside the region. */
+	protected abstract ChunkColorCache chunkColors(int chunkX, int chunkZ);
+
+	public void prepare(int originX, int originY, int originZ) {
+		this.originX = originX;
+		this.originY = originY;
+		this.originZ = originZ;
+		filledMask = 0;
+		interpolate = Minecraft.getInstance().options.biomeBlendRadius > 0;
+		hasTint = false;
+	}
+
+	/** Same result as {@link net.minecraft.world.level.BlockAndTintGetter#getBlockTint} with biomes blended in three dimensions. */
+	public int blockTint(BlockPos pos, ColorResolver colorResolver) {
+		final int x = pos.getX();
+		final int y = pos.getY();
+		final int z = pos.getZ();
+		final int resolverIndex = ChunkColorCache.resolverIndex(colorResolver);
+
+		if (resolverIndex == -1 || !isInGrid(x - originX) || !isInGrid(y - originY) || !isInGrid(z - originZ)) {
+			recordTint(x, y, z, -1, 0);
+			return chunkColors(x >> 4, z >> 4).getColor(x, y, z, colorResolver);
+		}
+
+		final int result = sample(resolverIndex, x - originX + 0.5f, y - originY + 0.5f, z - originZ + 0.5f);
+		recordTint(x, y, z, resolverIndex, result);
+		return result;
+	}
+
+	private static boolean isInGrid(int blockCoordinate) {
+		return blockCoordinate >= -4 && blockCoordinate < 20;
+	}
+
+	private void recordTint(int x, int y, int z, int resolverIndex, int color) {
+		if (hasTint && tintX == x && tintY == y && tintZ == z) {
+			if (tintResolver != resolverIndex) {
+				// block uses more than one resolver, can't tell which tint a quad received
+				tintResolver = -1;
+			}
+		} else {
+			hasTint = true;
+			tintX = x;
+			tintY = y;
+			tintZ = z;
+			tintResolver = resolverIndex;
+			tintColor = color;
+		}
+	}
+
+	/**
+	 * True if the last block tint was requested for the given position and can
+	 * be interpolated per vertex. See {@link #lastBlockTint()} and {@link #vertexTint}.
+	 */
+	public boolean hasVertexTint(BlockPos pos) {
+		return hasTint && tintResolver != -1 && tintX == pos.getX() && tintY == pos.getY() && tintZ == pos.getZ();
+	}
+
+	public int lastBlockTint() {
+		return tintColor;
+	}
+
+	/**
+	 * Tint for the resolver of the last block tint at the given position relative to that
+	 * block. Only valid if {@link #hasVertexTint(BlockPos)} is true for the block.
+	 */
+	public int vertexTint(float x, float y, float z) {
+		return sample(tintResolver, tintX - originX + x, tintY - originY + y, tintZ - originZ + z);
+	}
+
+	/** Color at the given position in blocks relative to region origin, clamped to the grid. */
+	private int sample(int resolverIndex, float x, float y, float z) {
+		final int[] grid = grid(resolverIndex);
+		// quart centers are two blocks in and grid starts one quart before origin
+		final float gx = Math.max(0, Math.min(MAX_GRID_COORDINATE, x * 0.25f + 0.5f));
+		final float gy = Math.max(0, Math.min(MAX_GRID_COORDINATE, y * 0.25f + 0.5f));
+		final float gz = Math.max(0, Math.min(MAX_GRID_COORDINATE, z * 0.25f + 0.5f));
+
+		if (!interpolate) {
+			return grid[(int) (gx + 0.5f) + (int) (gy + 0.5f) * Y_STRIDE + (int) (gz + 0.5f) * Z_STRIDE];
+		}
+
+		final int ix = (int) gx;
+		final int iy = (int) gy;
+		final int iz = (int) gz;
+		final int i = ix + iy * Y_STRIDE + iz * Z_STRIDE;
+
+		final int c000 = grid[i];
+		final int c100 = grid[i + 1];
+		final int c010 = grid[i + Y_STRIDE];
+		final int c110 = grid[i + 1 + Y_STRIDE];
+		final int c001 = grid[i + Z_STRIDE];
+		final int c101 = grid[i + 1 + Z_STRIDE];
+		final int c011 = grid[i + Y_STRIDE + Z_STRIDE];
+		final int c111 = grid[i + 1 + Y_STRIDE + Z_STRIDE];
+
+		if (c000 == c100 && c000 == c010 && c000 == c110 && c000 == c001 && c000 == c101 && c000 == c011 && c000 == c111) {
+			return c000;
+		}
+
+		final float tx = gx - ix;
+		final float ty = gy - iy;
+		final float tz = gz - iz;
+		final float sx = 1 - tx;
+		final float sy = 1 - ty;
+		final float sz = 1 - tz;
+
+		final float w000 = sx * sy * sz;
+		final float w100 = tx * sy * sz;
+		final float w010 = sx * ty * sz;
+		final float w110 = tx * ty * sz;
+		final float w001 = sx * sy * tz;
+		final float w101 = tx * sy * tz;
+		final float w011 = sx * ty * tz;
+		final float w111 = tx * ty * tz;
+
+		int result = 0;
+
+		for (int shift = 0; shift <= 16; shift += 8) {
+			final float channel = w000 * ((c000 >> shift) & 0xFF) + w100 * ((c100 >> shift) & 0xFF)
+					+ w010 * ((c010 >> shift) & 0xFF) + w110 * ((c110 >> shift) & 0xFF)
+					+ w001 * ((c001 >> shift) & 0xFF) + w101 * ((c101 >> shift) & 0xFF)
+					+ w011 * ((c011 >> shift) & 0xFF) + w111 * ((c111 >> shift) & 0xFF);
+
+			result |= Math.min(255, Math.round(channel)) << shift;
+		}
+
+		return result;
+	}
+
+	private int[] grid(int resolverIndex) {
+		final int[] result = colors[resolverIndex];
+
+		if ((filledMask & (1 << resolverIndex)) == 0) {
+			final int qx0 = (originX >> 2) - 1;
+			final int qy0 = (originY >> 2) - 1;
+			final int qz0 = (originZ >> 2) - 1;
+
+			for (int z = 0; z < SIZE; ++z) {
+				final int qz = qz0 + z;
+
+				for (int x = 0; x < SIZE; ++x) {
+					final int qx = qx0 + x;
+					final ChunkColorCache chunk = chunkColors(qx >> 2, qz >> 2);
+					final int[] blended = chunk.blendedQuartColors(resolverIndex);
+
+					for (int y = 0; y < SIZE; ++y) {
+						result[x + y * Y_STRIDE + z * Z_STRIDE] = blended[chunk.quartIndex(qx, qy0 + y, qz)];
+					}
+				}
+			}
+
+			filledMask |= 1 << resolverIndex;
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.util;
+
+import com.mojang.math.Matrix4f;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.block.RenderShape;
+import net.minecraft.world.level.block.state.BlockState;
+
+import io.vram.frex.api.math.FastMatrix4f;
+
+import grondag.canvas.terrain.region.input.InputRegion;
+
+/**
+ * Downsamples a terrain input region into cubic cells for distant-terrain meshes.
+ * A cell is solid if at least half of its blocks are bulk blocks: opaque full cubes,
+ * or full-cube models like leaves. Each solid cell is drawn as the model of its
+ * topmost bulk block, scaled to the cell, with faces against solid cells culled.
+ *
+ * <p>Not thread-safe. Each terrain render context owns an instance.
+ */
+public class RegionLodSampler {
+	public static final int CELL_SHIFT = 1;
+	public static final int CELL_SIZE = 1 << CELL_SHIFT;
+	public static final int CELLS_PER_AXIS = 16 >> CELL_SHIFT;
+	public static final int CELL_COUNT = CELLS_PER_AXIS * CELLS_PER_AXIS * CELLS_PER_AXIS;
+	/** Model transform that scales a block model to the size of a cell. Read-only. */
+	public static final FastMatrix4f CELL_SCALE = (FastMatrix4f) (Object) Matrix4f.createScaleMatrix(CELL_SIZE, CELL_SIZE, CELL_SIZE);
+
+	private static final int CELL_BLOCK_COUNT = CELL_SIZE * CELL_SIZE * CELL_SIZE;
+	private static final int CELL_FACE_BLOCK_COUNT = CELL_SIZE * CELL_SIZE;
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/** Interior index of the block drawn for each cell, or -1 if the cell is not solid. */
+	private final int[] blockIndexes = new int[CELL_COUNT];
+	/** Faces to cull for each solid cell, one bit per {@link Direction} ordinal. */
+	private final int[] cullMasks = new int[CELL_COUNT];
+	private final BlockPos.MutableBlockPos searchPos = new BlockPos.MutableBlockPos();
+
+	public static int cellIndex(int cellX, int cellY, int cellZ) {
+		return cellX | (cellY << 3) | (cellZ << 6);
+	}
+
+	public static int cellX(int cellIndex) {
+		return cellIndex & 7;
+	}
+
+	public static int cellY(int cellIndex) {
+		return (cellIndex >> 3) & 7;
+	}
+
+	public static int cellZ(int cellIndex) {
+		return cellIndex >> 6;
+	}
+
+	public void sample(InputRegion region) {
+		for (int cell = 0; cell < CELL_COUNT; ++cell) {
+			blockIndexes[cell] = sampleCell(region, cellX(cell) << CELL_SHIFT, cellY(cell) << CELL_SHIFT, cellZ(cell) << CELL_SHIFT);
+		}
+
+		for (int cell = 0; cell < CELL_COUNT; ++cell) {
+			if (blockIndexes[cell] >= 0) {
+				int mask = 0;
+
+				for (final Direction face : DIRECTIONS) {
+					if (isNeighborSolid(region, cell, face)) {
+						mask |= 1 << face.ordinal();
+					}
+				}
+
+				cullMasks[cell] = mask;
+			}
+		}
+	}
+
+	/** Interior index of the block drawn for the cell, or -1 if nothing is drawn. */
+	public int blockIndex(int cellIndex) {
+		return blockIndexes[cellIndex];
+	}
+
+	public int cullMask(int cellIndex) {
+		return cullMasks[cellIndex];
+	}
+
+	/** Scans from the top so the drawn block is the one most likely to be seen. */
+	private int sampleCell(InputRegion region, int minX, int minY, int minZ) {
+		int count = 0;
+		int result = -1;
+
+		for (int y = minY + CELL_SIZE - 1; y >= minY; --y) {
+			for (int z = minZ; z < minZ + CELL_SIZE; ++z) {
+				for (int x = minX; x < minX + CELL_SIZE; ++x) {
+					if (isBulk(region, x, y, z)) {
+						++count;
+
+						if (result == -1) {
+							result = RenderRegionStateIndexer.interiorIndex(x, y, z);
+						}
+					}
+				}
+			}
+		}
+
+		return count * 2 >= CELL_BLOCK_COUNT ? result : -1;
+	}
+
+	private boolean isNeighborSolid(InputRegion region, int cellIndex, Direction face) {
+		final int nx = cellX(cellIndex) + face.getStepX();
+		final int ny = cellY(cellIndex) + face.getStepY();
+		final int nz = cellZ(cellIndex) + face.getStepZ();
+
+		if (nx >= 0 && nx < CELLS_PER_AXIS && ny >= 0 && ny < CELLS_PER_AXIS && nz >= 0 && nz < CELLS_PER_AXIS) {
+			return blockIndexes[cellIndex(nx, ny, nz)] >= 0;
+		}
+
+		// Neighbor region isn't sampled, so use the layer of blocks just outside this one
+		final int minX = face.getStepX() == 0 ? nx << CELL_SHIFT : face.getStepX() > 0 ? 16 : -1;
+		final int minY = face.getStepY() == 0 ? ny << CELL_SHIFT : face.getStepY() > 0 ? 16 : -1;
+		final int minZ = face.getStepZ() == 0 ? nz << CELL_SHIFT : face.getStepZ() > 0 ? 16 : -1;
+		final int maxX = face.getStepX() == 0 ? minX + CELL_SIZE : minX + 1;
+		final int maxY = face.getStepY() == 0 ? minY + CELL_SIZE : minY + 1;
+		final int maxZ = face.getStepZ() == 0 ? minZ + CELL_SIZE : minZ + 1;
+		int count = 0;
+
+		for (int y = minY; y < maxY; ++y) {
+			for (int z = minZ; z < maxZ; ++z) {
+				for (int x = minX; x < maxX; ++x) {
+					if (isBulk(region, x, y, z)) {
+						++count;
+					}
+				}
+			}
+		}
+
+		return count * 2 >= CELL_FACE_BLOCK_COUNT;
+	}
+
+	/** Accepts region-relative coordinates from -1 to 16. */
+	private boolean isBulk(InputRegion region, int x, int y, int z) {
+		if (region.isClosed(RenderRegionStateIndexer.regionIndex(x, y, z))) {
+			return true;
+		}
+
+		final BlockPos pos = searchPos.set(region.originX() + x, region.originY() + y, region.originZ() + z);
+		final BlockState state = region.getBlockState(pos);
+		return state.getRenderShape() == RenderShape.MODEL && state.getFluidState().isEmpty() && state.isCollisionShapeFullBlock(region, pos);
+	}
+}
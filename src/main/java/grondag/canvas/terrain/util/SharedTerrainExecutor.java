@@ -132,7 +132,7 @@ public class SharedTerrainExecutor extends AbstractExecutorService implements Te
 				try {
 					final TerrainExecutorTask t = renderQueue.take();
 
-					if (t != null) {
+					if (t != null && !t.cancelIfStale()) {
 						runningTaskCount.incrementAndGet();
 						t.run(context);
 						runningTaskCount.decrementAndGet();
@@ -182,7 +182,7 @@ public class SharedTerrainExecutor extends AbstractExecutorService implements Te
 							runnable.run();
 							runningTaskCount.decrementAndGet();
 						}
-					} else {
+					} else if (!t.cancelIfStale()) {
 						runningTaskCount.incrementAndGet();
 						t.run(context);
 						runningTaskCount.decrementAndGet();
@@ -208,7 +208,7 @@ public class SharedTerrainExecutor extends AbstractExecutorService implements Te
 					if (runnable == null) {
 						final TerrainExecutorTask t = renderQueue.poll();
 
-						if (t != null) {
+						if (t != null && !t.cancelIfStale()) {
 							runningTaskCount.incrementAndGet();
 							t.run(context);
 							runningTaskCount.decrementAndGet();
@@ -26,7 +26,8 @@ import java.util.concurrent.ExecutorService;
 import grondag.canvas.config.Configurator;
 
 public interface TerrainExecutor extends ExecutorService {
-	TerrainExecutor INSTANCE = Configurator.useCombinedThreadPool ? new SharedTerrainExecutor() : new DedicatedTerrainExecutor();
+	TerrainExecutor INSTANCE = Configurator.useWorkStealingExecutor ? new WorkStealingTerrainExecutor(Configurator.useCombinedThreadPool)
+			: Configurator.useCombinedThreadPool ? new SharedTerrainExecutor() : new DedicatedTerrainExecutor();
 
 	void execute(TerrainExecutorTask task);
 
@@ -35,4 +36,10 @@ public interface TerrainExecutor extends ExecutorService {
 	boolean isEmpty();
 
 	void debugReport(List<String> target);
+
+	/**
+	 * Signals that the camera region has changed and queued tasks may now have
+	 * different priorities.  Executors that cannot re-prioritize in place ignore this.
+	 */
+	default void advancePriorityEpoch() { }
 }
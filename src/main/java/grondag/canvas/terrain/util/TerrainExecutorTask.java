@@ -29,4 +29,13 @@ public interface TerrainExecutorTask {
 	 * Normally squared chunk distance. Use -1 for privileged execution.
 	 */
 	int priority();
+
+	/**
+	 * Called by the executor before the task is run and when queued tasks are re-prioritized.
+	 * Tasks that are no longer useful should release any state they hold and return true,
+	 * in which case they will be discarded without running.
+	 */
+	default boolean cancelIfStale() {
+		return false;
+	}
 }
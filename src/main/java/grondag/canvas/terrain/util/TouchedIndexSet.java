@@ -0,0 +1,61 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.util;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Bitmap of indexes with a value cached since the last clear. Remembers which
+ * words have any bit set so that clearing touches only those words.
+ */
+public class TouchedIndexSet {
+	private final long[] bits;
+	private final IntArrayList touchedWords = new IntArrayList();
+
+	public TouchedIndexSet(int size) {
+		bits = new long[(size + 63) >> 6];
+	}
+
+	public boolean contains(int index) {
+		return (bits[index >> 6] & (1L << index)) != 0;
+	}
+
+	public void add(int index) {
+		final int word = index >> 6;
+		final long prior = bits[word];
+
+		if (prior == 0) {
+			touchedWords.add(word);
+		}
+
+		bits[word] = prior | (1L << index);
+	}
+
+	public void clear() {
+		final int limit = touchedWords.size();
+
+		for (int i = 0; i < limit; ++i) {
+			bits[touchedWords.getInt(i)] = 0;
+		}
+
+		touchedWords.clear();
+	}
+}
@@ -0,0 +1,647 @@
+/*
+ * This file is part of Canvas Renderer and is licensed to the project under
+ * terms that are compatible with the GNU Lesser General Public License.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership and licensing.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import grondag.canvas.CanvasMod;
+import grondag.canvas.apiimpl.rendercontext.CanvasTerrainRenderContext;
+
+/**
+ * Terrain executor that avoids a single global priority queue.
+ *
+ * <p>Each worker owns an array of lock-free deques, one per approximate distance
+ * bucket. Workers take the nearest work from their own deques and steal from the
+ * far end of other workers' deques when they run dry. Idle workers park and are
+ * unparked by submitters, so there is no polling or semaphore churn. A submitter
+ * claims the worker it wakes, so a burst of submissions wakes a different idle
+ * worker for each task.
+ *
+ * <p>Task priority is sampled when a task is queued.  When the camera region changes
+ * the priority epoch is advanced and each worker re-buckets its own queued tasks the
+ * next time it looks for work, dropping any that have become stale.  Other workers
+ * keep running and stealing while this happens.
+ *
+ * <p>Privileged tasks (priority -1) go to a single shared FIFO queue and always
+ * run before any distance-sorted task, in order of submission.
+ *
+ * <p>When combined mode is enabled, also accepts generic {@link Runnable} server tasks
+ * with the same lane arrangement as {@link SharedTerrainExecutor}: one render-only
+ * thread, one server-only thread, and mixed threads that alternate preference.
+ */
+public class WorkStealingTerrainExecutor extends AbstractExecutorService implements TerrainExecutor {
+	/** Must be <= 64 so that non-empty buckets can be tracked in a single long. */
+	private static final int BUCKET_COUNT = 64;
+
+	private static final int LANE_RENDER = 0;
+	private static final int LANE_SERVER = 1;
+	private static final int LANE_RENDER_FIRST = 2;
+	private static final int LANE_SERVER_FIRST = 3;
+
+	private final boolean isCombined;
+	private final int poolSize;
+	private final Worker[] workers;
+	private final Supplier<CanvasTerrainRenderContext> contextFactory;
+	/** Worker owned by the current thread, if it belongs to this executor. */
+	private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+
+	private final ConcurrentLinkedQueue<TerrainExecutorTask> privilegedQueue = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<Runnable> serverQueue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger nextWorker = new AtomicInteger();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger queuedRenderCount = new AtomicInteger();
+	private final AtomicInteger queuedServerCount = new AtomicInteger();
+	private final AtomicInteger renderTaskCount = new AtomicInteger();
+	private final AtomicInteger serverTaskCount = new AtomicInteger();
+	private final AtomicInteger runningTaskCount = new AtomicInteger();
+
+	private int lastRenderTaskCount;
+	private int lastServerTaskCount;
+	private long nextTime;
+	private String report0 = "", report1 = "";
+	private volatile boolean isShutdown = false;
+	private volatile int priorityEpoch = 0;
+
+	WorkStealingTerrainExecutor(boolean isCombined) {
+		this(isCombined, CanvasTerrainRenderContext::new);
+	}
+
+	WorkStealingTerrainExecutor(boolean isCombined, Supplier<CanvasTerrainRenderContext> contextFactory) {
+		this.isCombined = isCombined;
+		this.contextFactory = contextFactory;
+		poolSize = threadCount(isCombined);
+		workers = new Worker[poolSize];
+
+		for (int i = 0; i < poolSize; i++) {
+			final int lane;
+
+			if (!isCombined || i == 0) {
+				lane = LANE_RENDER;
+			} else if (i == 1) {
+				lane = LANE_SERVER;
+			} else {
+				lane = (i & 1) == 0 ? LANE_RENDER_FIRST : LANE_SERVER_FIRST;
+			}
+
+			final Worker w = new Worker(i, lane);
+			final Thread thread = new Thread(w, w.name());
+			thread.setDaemon(true);
+			w.thread = thread;
+			workers[i] = w;
+		}
+
+		// Don't start until all workers exist because workers may steal from each other
+		for (final Worker w : workers) {
+			w.thread.start();
+		}
+	}
+
+	/**
+	 * Combined mode follows the same reasoning as {@link SharedTerrainExecutor}
+	 * and always uses at least four threads.
+	 */
+	private static int threadCount(boolean isCombined) {
+		final int threadCount = Runtime.getRuntime().availableProcessors() - 1;
+		return isCombined ? Math.max(4, threadCount) : Math.max(1, threadCount);
+	}
+
+	/**
+	 * Approximate distance bucket for a non-privileged task.  Buckets are one
+	 * chunk of (non-squared) distance wide, with everything beyond the last
+	 * bucket sharing it.
+	 */
+	static int bucket(int priority) {
+		if (priority <= 0) {
+			return 0;
+		}
+
+		return Math.min(BUCKET_COUNT - 1, (int) Math.sqrt(priority));
+	}
+
+	@Override
+	public void execute(TerrainExecutorTask task) {
+		final int priority = task.priority();
+		queuedRenderCount.incrementAndGet();
+		renderTaskCount.incrementAndGet();
+
+		if (priority < 0) {
+			privilegedQueue.offer(task);
+		} else {
+			Worker target = currentWorker.get();
+
+			// Tasks submitted from a worker stay local - cheaper and usually warmer
+			if (target == null || !target.acceptsRender()) {
+				target = renderWorker(nextWorker.getAndIncrement());
+			}
+
+			target.push(task, bucket(priority));
+		}
+
+		signal(false);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (!isCombined) {
+			throw new UnsupportedOperationException("Dedicated terrain executor received shared-mode task");
+		}
+
+		serverQueue.offer(command);
+		queuedServerCount.incrementAndGet();
+		serverTaskCount.incrementAndGet();
+		signal(true);
+	}
+
+	private Worker renderWorker(int index) {
+		// Only the dedicated server lane cannot own render tasks
+		Worker w = workers[Math.floorMod(index, poolSize)];
+
+		if (!w.acceptsRender()) {
+			w = workers[Math.floorMod(index + 1, poolSize)];
+		}
+
+		return w;
+	}
+
+	/**
+	 * Unparks one idle worker able to run the newly submitted work.
+	 * Submitters publish the task before reading idle state and workers publish
+	 * idle state before re-checking for work, so a wake-up cannot be lost.
+	 * The woken worker is claimed, so the next submission wakes a different one.
+	 */
+	private void signal(boolean isServer) {
+		if (idleCount.get() == 0) {
+			return;
+		}
+
+		for (final Worker w : workers) {
+			if ((isServer ? w.acceptsServer() : w.acceptsRender()) && w.wake()) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void advancePriorityEpoch() {
+		++priorityEpoch;
+
+		// Wake idle workers so they re-bucket before new work arrives
+		if (idleCount.get() != 0) {
+			for (final Worker w : workers) {
+				if (w.acceptsRender()) {
+					w.wake();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		privilegedQueue.clear();
+
+		for (final Worker w : workers) {
+			w.clear();
+		}
+
+		queuedRenderCount.set(0);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		if (!privilegedQueue.isEmpty()) {
+			return false;
+		}
+
+		for (final Worker w : workers) {
+			if (w.bucketFlags.get() != 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private TerrainExecutorTask pollRender(Worker self) {
+		while (true) {
+			TerrainExecutorTask result = privilegedQueue.poll();
+
+			if (result == null) {
+				result = self.pollLocal();
+			}
+
+			if (result == null) {
+				result = steal(self);
+			}
+
+			if (result == null) {
+				return null;
+			}
+
+			queuedRenderCount.decrementAndGet();
+
+			if (!result.cancelIfStale()) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Takes the nearest task available from any other worker, starting with
+	 * the worker after this one so that thieves don't all converge on the same victim.
+	 */
+	private TerrainExecutorTask steal(Worker self) {
+		int bestBucket = BUCKET_COUNT;
+		Worker victim = null;
+
+		for (int i = 1; i < poolSize; i++) {
+			final Worker w = workers[(self.index + i) % poolSize];
+			final long flags = w.bucketFlags.get();
+
+			if (flags != 0) {
+				final int b = Long.numberOfTrailingZeros(flags);
+
+				if (b < bestBucket) {
+					bestBucket = b;
+					victim = w;
+				}
+			}
+		}
+
+		if (victim == null) {
+			return null;
+		}
+
+		return victim.pollSteal();
+	}
+
+	private Runnable pollServer() {
+		final Runnable result = serverQueue.poll();
+
+		if (result != null) {
+			queuedServerCount.decrementAndGet();
+		}
+
+		return result;
+	}
+
+	private class Worker implements Runnable {
+		private final int index;
+		private final int lane;
+		@SuppressWarnings("unchecked")
+		private final ConcurrentLinkedDeque<TerrainExecutorTask>[] buckets = new ConcurrentLinkedDeque[BUCKET_COUNT];
+		/** Bit n is set when bucket n may be non-empty. Never clear when a bucket has content. */
+		private final AtomicLong bucketFlags = new AtomicLong();
+		private volatile CanvasTerrainRenderContext context = contextFactory.get();
+		/** True while parked or about to park and not yet claimed by a submitter. */
+		private final AtomicBoolean isIdle = new AtomicBoolean();
+		private Thread thread;
+		/** Priority epoch when this worker's buckets were last sorted. Only accessed by owning thread. */
+		private int bucketEpoch = 0;
+		private final ArrayList<TerrainExecutorTask> rebucketList = new ArrayList<>();
+
+		private Worker(int index, int lane) {
+			this.index = index;
+			this.lane = lane;
+
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				buckets[i] = new ConcurrentLinkedDeque<>();
+			}
+		}
+
+		private String name() {
+			if (!isCombined) {
+				return "Canvas Render Thread - " + index;
+			}
+
+			return switch (lane) {
+				case LANE_RENDER -> "Canvas Render Thread";
+				case LANE_SERVER -> "Canvas Server Thread";
+				default -> "Canvas Mixed Thread - " + (index - 2);
+			};
+		}
+
+		private boolean acceptsRender() {
+			return lane != LANE_SERVER;
+		}
+
+		private boolean acceptsServer() {
+			return lane != LANE_RENDER;
+		}
+
+		private void push(TerrainExecutorTask task, int bucket) {
+			buckets[bucket].offerLast(task);
+			setFlag(bucket);
+		}
+
+		private void setFlag(int bucket) {
+			final long bit = 1L << bucket;
+			long flags = bucketFlags.get();
+
+			while ((flags & bit) == 0 && !bucketFlags.compareAndSet(flags, flags | bit)) {
+				flags = bucketFlags.get();
+			}
+		}
+
+		/**
+		 * Clears the flag for an empty bucket and then re-checks, restoring the flag
+		 * if a concurrent push landed in between.
+		 */
+		private void clearFlag(int bucket) {
+			final long bit = 1L << bucket;
+			long flags = bucketFlags.get();
+
+			while ((flags & bit) != 0 && !bucketFlags.compareAndSet(flags, flags & ~bit)) {
+				flags = bucketFlags.get();
+			}
+
+			if (!buckets[bucket].isEmpty()) {
+				setFlag(bucket);
+			}
+		}
+
+		/** Owner takes oldest task from nearest bucket, approximating submission order within a bucket. */
+		private TerrainExecutorTask pollLocal() {
+			long flags;
+
+			while ((flags = bucketFlags.get()) != 0) {
+				final int b = Long.numberOfTrailingZeros(flags);
+				final TerrainExecutorTask result = buckets[b].pollFirst();
+
+				if (result != null) {
+					return result;
+				}
+
+				clearFlag(b);
+			}
+
+			return null;
+		}
+
+		/** Thieves take from the tail of the nearest bucket to reduce contention with the owner. */
+		private TerrainExecutorTask pollSteal() {
+			long flags;
+
+			while ((flags = bucketFlags.get()) != 0) {
+				final int b = Long.numberOfTrailingZeros(flags);
+				final TerrainExecutorTask result = buckets[b].pollLast();
+
+				if (result != null) {
+					return result;
+				}
+
+				clearFlag(b);
+			}
+
+			return null;
+		}
+
+		/**
+		 * Moves all of this worker's tasks to buckets matching their current priority
+		 * and drops stale tasks.  Tasks are polled atomically, so a concurrent thief
+		 * may take a task but no task can be run twice.
+		 */
+		private void rebucket() {
+			final int epoch = priorityEpoch;
+
+			if (bucketEpoch == epoch) {
+				return;
+			}
+
+			bucketEpoch = epoch;
+
+			final ArrayList<TerrainExecutorTask> list = rebucketList;
+			long flags = bucketFlags.get();
+
+			while (flags != 0) {
+				final int b = Long.numberOfTrailingZeros(flags);
+				flags &= ~(1L << b);
+				final ConcurrentLinkedDeque<TerrainExecutorTask> q = buckets[b];
+				TerrainExecutorTask t = q.pollFirst();
+
+				while (t != null) {
+					list.add(t);
+					t = q.pollFirst();
+				}
+
+				clearFlag(b);
+			}
+
+			final int limit = list.size();
+
+			for (int i = 0; i < limit; ++i) {
+				final TerrainExecutorTask t = list.get(i);
+
+				if (t.cancelIfStale()) {
+					queuedRenderCount.decrementAndGet();
+				} else {
+					push(t, bucket(t.priority()));
+				}
+			}
+
+			list.clear();
+		}
+
+		/**
+		 * Flags are cleared before the buckets are drained. A task pushed during the
+		 * drain is either removed or sets its flag again after the reset, so it can't
+		 * be left queued with its flag clear.
+		 */
+		private void clear() {
+			bucketFlags.set(0);
+
+			for (final ConcurrentLinkedDeque<TerrainExecutorTask> q : buckets) {
+				q.clear();
+			}
+
+			context = contextFactory.get();
+		}
+
+		/**
+		 * Claims and unparks this worker if it is idle.
+		 *
+		 * @return false if the worker was not idle or was already claimed
+		 */
+		private boolean wake() {
+			if (isIdle.get() && isIdle.compareAndSet(true, false)) {
+				idleCount.decrementAndGet();
+				LockSupport.unpark(thread);
+				return true;
+			}
+
+			return false;
+		}
+
+		private boolean runRender() {
+			rebucket();
+			final TerrainExecutorTask t = pollRender(this);
+
+			if (t == null) {
+				return false;
+			}
+
+			runningTaskCount.incrementAndGet();
+
+			try {
+				t.run(context);
+			} finally {
+				runningTaskCount.decrementAndGet();
+			}
+
+			return true;
+		}
+
+		private boolean runServer() {
+			final Runnable r = pollServer();
+
+			if (r == null) {
+				return false;
+			}
+
+			runningTaskCount.incrementAndGet();
+
+			try {
+				r.run();
+			} finally {
+				runningTaskCount.decrementAndGet();
+			}
+
+			return true;
+		}
+
+		private boolean runOne() {
+			return switch (lane) {
+				case LANE_RENDER -> runRender();
+				case LANE_SERVER -> runServer();
+				case LANE_RENDER_FIRST -> runRender() || runServer();
+				default -> runServer() || runRender();
+			};
+		}
+
+		private boolean hasWork() {
+			if (acceptsServer() && !serverQueue.isEmpty()) {
+				return true;
+			}
+
+			return acceptsRender() && !isEmpty();
+		}
+
+		@Override
+		public void run() {
+			currentWorker.set(this);
+
+			while (true) {
+				try {
+					if (!runOne()) {
+						idleCount.incrementAndGet();
+						isIdle.set(true);
+
+						if (!hasWork()) {
+							LockSupport.park(this);
+						}
+
+						// Not claimed if work was found before parking or the wake-up was spurious
+						if (isIdle.compareAndSet(true, false)) {
+							idleCount.decrementAndGet();
+						}
+					}
+				} catch (final Exception e) {
+					CanvasMod.LOG.error("Unhandled error during rendering. Impact unknown.", e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void debugReport(List<String> target) {
+		final long newTime = System.currentTimeMillis();
+
+		if (newTime > nextTime) {
+			nextTime = newTime + 1000;
+
+			final int newRenderCount = renderTaskCount.get();
+			final int newServerCount = serverTaskCount.get();
+
+			report0 = String.format("Render tasks: %d rate: %d",
+					Math.max(0, queuedRenderCount.get()), newRenderCount - lastRenderTaskCount);
+
+			report1 = String.format("Server tasks: %d rate: %d",
+					queuedServerCount.get(), newServerCount - lastServerTaskCount);
+
+			lastRenderTaskCount = newRenderCount;
+			lastServerTaskCount = newServerCount;
+		}
+
+		target.add(report0);
+
+		if (isCombined) {
+			target.add(report1);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		clear();
+		serverQueue.clear();
+		queuedServerCount.set(0);
+		isShutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		isShutdown = true;
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return isShutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return isShutdown && runningTaskCount.get() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (runningTaskCount.get() > 0) {
+			if (deadline <= System.nanoTime()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -13,6 +13,7 @@
 #define _CV_FLAG_FLASH_OVERLAY      8 // 1 if should render white flash overlay
 #define _CV_FLAG_ENABLE_FOG         9
 #define _CV_FLAG_GLINT              10
+#define _CV_FLAG_REPEAT_UV          11 // 1 if merged terrain quad repeats its sprite
 
 #define _CV_CUTOUT_SHIFT 3u
 #define _CV_CUTOUT_MASK 3u
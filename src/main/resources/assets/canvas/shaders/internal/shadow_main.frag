@@ -24,7 +24,14 @@ void main() {
 		discard;
 	}
 #endif
-	frx_sampleColor = texture(frxs_baseColor, frx_texcoord, frx_matUnmipped * -4.0);
+	if (_CV_GET_FLAG(_CV_FLAG_REPEAT_UV) == 1) {
+		// Wrap within the sprite, using gradients of the unwrapped coordinates to avoid seams
+		vec2 uv = _cvv_spriteBounds.xy + fract((frx_texcoord - _cvv_spriteBounds.xy) / _cvv_spriteBounds.zw) * _cvv_spriteBounds.zw;
+		float gradScale = exp2(frx_matUnmipped * -4.0);
+		frx_sampleColor = textureGrad(frxs_baseColor, uv, dFdx(frx_texcoord) * gradScale, dFdy(frx_texcoord) * gradScale);
+	} else {
+		frx_sampleColor = texture(frxs_baseColor, frx_texcoord, frx_matUnmipped * -4.0);
+	}
 
 #ifdef _CV_FRAGMENT_COMPAT
 	compatData = frx_FragmentData(frx_sampleColor, frx_vertexColor);
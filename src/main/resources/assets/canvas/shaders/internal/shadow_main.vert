@@ -27,6 +27,14 @@ void main() {
 	_cv_setupProgram();
 	_cvv_flags = uint(_cvu_program.z);
 
+#ifdef _CV_VERTEX_TERRAIN
+	// Merged terrain quads carry sprite repeat counts scaled down to fit the vertex format
+	if ((in_region.x & 0x200) != 0) {
+		frx_texcoord *= 16.0;
+		_cvv_flags |= 1u << _CV_FLAG_REPEAT_UV;
+	}
+#endif
+
 	// material shaders go first
 	_cv_startVertex(_cv_vertexProgramId());
 
@@ -27,8 +27,8 @@ in vec4 in_normal_tangent;
 vec3 in_vertex;
 
 void _cv_prepareForVertex() {
-	// Mask out the bits for vector signs
-	int packedSector = _cvu_sectors_int[(in_region.x & 0x1FFF) >> 1];
+	// Mask out the bits for vector signs and quad merging
+	int packedSector = _cvu_sectors_int[(in_region.x & 0x1FF) >> 1];
 	packedSector = (in_region.x & 1) == 1 ? ((packedSector >> 16) & 0xFFFF) : (packedSector & 0xFFFF);
 
 	// These are relative to the sector origin, which will be near the camera position
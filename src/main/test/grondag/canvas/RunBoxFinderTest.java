@@ -0,0 +1,160 @@
+package grondag.canvas;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+import grondag.bitraster.PackedBox;
+import grondag.canvas.terrain.occlusion.geometry.AreaFinder;
+import grondag.canvas.terrain.occlusion.geometry.BoxFinder;
+import grondag.canvas.terrain.occlusion.geometry.RunBoxFinder;
+
+class RunBoxFinderTest {
+	final long[] words = new long[64];
+
+	final RunBoxFinder finder = new RunBoxFinder();
+	final IntArrayList boxes = finder.boxes;
+
+	@Test
+	void test() {
+		fill(0, 0, 0, 16, 16, 16);
+
+		finder.findBoxes(words, 0);
+
+		assert boxes.size() == 1 && isBox(boxes.getInt(0), 0, 0, 0, 16, 16, 16);
+
+		Arrays.fill(words, 0);
+
+		fill(0, 0, 0, 9, 9, 9);
+
+		fill(8, 8, 8, 16, 16, 16);
+
+		finder.findBoxes(words, 0);
+
+		assert boxes.size() == 2;
+		assert isBox(boxes.getInt(0), 0, 0, 0, 9, 9, 9);
+		assert isBox(boxes.getInt(1), 8, 8, 8, 16, 16, 16);
+
+		Arrays.fill(words, 0);
+
+		fill(0, 0, 0, 3, 3, 3);
+
+		finder.findBoxes(words, 0);
+
+		assert boxes.size() == 1 && isBox(boxes.getInt(0), 0, 0, 0, 3, 3, 3);
+	}
+
+	/**
+	 * Compares with {@link BoxFinder} on fragmented terrain. Boxes must cover every
+	 * solid position and no open position. Occluded volume must be no less than
+	 * what BoxFinder covers.
+	 */
+	@Test
+	void compareWithBoxFinder() {
+		final BoxFinder areaBoxFinder = new BoxFinder(new AreaFinder());
+		final Random random = new Random(42);
+		long runNanos = 0;
+		long areaNanos = 0;
+		int runBoxCount = 0;
+		int areaBoxCount = 0;
+		int runVolume = 0;
+		int areaVolume = 0;
+
+		for (int n = 0; n < 20; ++n) {
+			Arrays.fill(words, 0);
+			fill(0, 0, 0, 16, 16, 16);
+
+			// carve random tunnels and chambers
+			for (int i = 0; i < 12; ++i) {
+				final int x = random.nextInt(16);
+				final int y = random.nextInt(16);
+				final int z = random.nextInt(16);
+				clear(x, y, z, x + 1 + random.nextInt(6), y + 1 + random.nextInt(4), z + 1 + random.nextInt(10));
+			}
+
+			final long[] solid = words.clone();
+
+			long start = System.nanoTime();
+			finder.findBoxes(words, 0);
+			runNanos += System.nanoTime() - start;
+
+			final long[] runCovered = covered(boxes);
+			assert Arrays.equals(runCovered, solid);
+			runBoxCount += boxes.size();
+			runVolume += count(runCovered);
+
+			start = System.nanoTime();
+			areaBoxFinder.findBoxes(words, 0);
+			areaNanos += System.nanoTime() - start;
+
+			final long[] areaCovered = covered(areaBoxFinder.boxes);
+			areaBoxCount += areaBoxFinder.boxes.size();
+			areaVolume += count(areaCovered);
+
+			for (int i = 0; i < 64; ++i) {
+				assert (areaCovered[i] & ~solid[i]) == 0;
+			}
+		}
+
+		System.out.println(String.format("RunBoxFinder boxes:%d volume:%d time:%,dns", runBoxCount, runVolume, runNanos));
+		System.out.println(String.format("BoxFinder boxes:%d volume:%d time:%,dns", areaBoxCount, areaVolume, areaNanos));
+
+		assert runVolume >= areaVolume;
+	}
+
+	boolean isBox(int box, int x0, int y0, int z0, int x1, int y1, int z1) {
+		return PackedBox.x0(box) == x0 && PackedBox.y0(box) == y0 && PackedBox.z0(box) == z0
+				&& PackedBox.x1(box) == x1 && PackedBox.y1(box) == y1 && PackedBox.z1(box) == z1;
+	}
+
+	long[] covered(IntArrayList boxes) {
+		final long[] result = new long[64];
+
+		for (final int box : boxes) {
+			for (int x = PackedBox.x0(box); x < PackedBox.x1(box); x++) {
+				for (int y = PackedBox.y0(box); y < PackedBox.y1(box); y++) {
+					for (int z = PackedBox.z0(box); z < PackedBox.z1(box); z++) {
+						final int index = x | (y << 4) | (z << 8);
+						result[index >> 6] |= (1L << (index & 63));
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	int count(long[] bits) {
+		int result = 0;
+
+		for (final long word : bits) {
+			result += Long.bitCount(word);
+		}
+
+		return result;
+	}
+
+	void fill(int x0, int y0, int z0, int x1, int y1, int z1) {
+		for (int x = x0; x < x1; x++) {
+			for (int y = y0; y < y1; y++) {
+				for (int z = z0; z < z1; z++) {
+					final int index = x | (y << 4) | (z << 8);
+					words[index >> 6] |= (1L << (index & 63));
+				}
+			}
+		}
+	}
+
+	void clear(int x0, int y0, int z0, int x1, int y1, int z1) {
+		for (int x = x0; x < Math.min(16, x1); x++) {
+			for (int y = y0; y < Math.min(16, y1); y++) {
+				for (int z = z0; z < Math.min(16, z1); z++) {
+					final int index = x | (y << 4) | (z << 8);
+					words[index >> 6] &= ~(1L << (index & 63));
+				}
+			}
+		}
+	}
+}
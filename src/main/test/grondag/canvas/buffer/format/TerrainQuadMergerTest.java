@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.buffer.format;
+
+import org.junit.jupiter.api.Test;
+
+class TerrainQuadMergerTest {
+	private static final int[][] FLOOR_CORNERS = {{0, 0}, {0, 1}, {1, 1}, {1, 0}};
+
+	/** Encodes an upward-facing floor quad at the given block position, with the whole sprite mapped once. */
+	private static void floorQuad(int[] data, int quad, int x, int y, int z, int ao) {
+		floorQuad(data, quad, x, y, 0, z, ao);
+	}
+
+	/**
+	 * Encodes an upward-facing floor quad at the given block position, with the whole sprite mapped once.
+	 *
+	 * @param yFraction height of the quad above the block floor, in 1/65535ths of a block
+	 */
+	private static void floorQuad(int[] data, int quad, int x, int y, int yFraction, int z, int ao) {
+		for (int v = 0; v < 4; ++v) {
+			final int i = quad * TerrainQuadMerger.QUAD_STRIDE + v * TerrainQuadMerger.VERTEX_STRIDE;
+			final int dx = FLOOR_CORNERS[v][0];
+			final int dz = FLOOR_CORNERS[v][1];
+			data[i] = 5 | TerrainQuadMerger.CANDIDATE_FLAG;
+			data[i + 1] = yFraction;
+			data[i + 2] = (x + dx) | (y << 8) | ((z + dz) << 16) | ((v == 0 ? ao : 0xFF) << 24);
+			data[i + 3] = 0xFFFFFFFF;
+			data[i + 4] = (dx * 0xFFFF) | ((dz * 0xFFFF) << 16);
+			data[i + 5] = 0xF0 | (0xF0 << 8) | (3 << 16);
+			data[i + 6] = 0x7F00;
+		}
+	}
+
+	@Test
+	void mergesUniformFloor() {
+		final int[] data = new int[TerrainQuadMerger.QUAD_STRIDE * 16];
+
+		for (int i = 0; i < 16; ++i) {
+			floorQuad(data, i, 4 + (i & 3), 10, 8 + (i >> 2), 0xFF);
+		}
+
+		final int size = new TerrainQuadMerger().merge(data, data.length);
+		assert size == TerrainQuadMerger.QUAD_STRIDE;
+
+		for (int v = 0; v < 4; ++v) {
+			final int i = v * TerrainQuadMerger.VERTEX_STRIDE;
+			assert (data[i] & 0xFFFF) == (5 | TerrainQuadMerger.REPEAT_UV_FLAG);
+			assert data[i + 1] == 0;
+			assert (data[i + 2] & 0xFF) == 4 + FLOOR_CORNERS[v][0] * 4;
+			assert ((data[i + 2] >> 8) & 0xFF) == 10;
+			assert ((data[i + 2] >> 16) & 0xFF) == 8 + FLOOR_CORNERS[v][1] * 4;
+			// Four repeats of the sprite are a quarter of the encoded range
+			assert (data[i + 4] & 0xFFFF) == FLOOR_CORNERS[v][0] * 0x4000;
+			assert (data[i + 4] >>> 16) == FLOOR_CORNERS[v][1] * 0x4000;
+		}
+	}
+
+	@Test
+	void keepsQuadsThatDiffer() {
+		final int[] data = new int[TerrainQuadMerger.QUAD_STRIDE * 3];
+		floorQuad(data, 0, 0, 10, 0, 0xFF);
+		floorQuad(data, 1, 1, 10, 0, 0xFF);
+		// Non-uniform AO can't merge
+		floorQuad(data, 2, 2, 10, 0, 0x80);
+
+		final int size = new TerrainQuadMerger().merge(data, data.length);
+		assert size == TerrainQuadMerger.QUAD_STRIDE * 2;
+
+		// First two merge into a 2x1 quad, the third is unchanged except for the candidate flag
+		assert (data[2] & 0xFF) == 0;
+		assert (data[2 * TerrainQuadMerger.VERTEX_STRIDE + 2] & 0xFF) == 2;
+		final int third = TerrainQuadMerger.QUAD_STRIDE;
+		assert (data[third] & TerrainQuadMerger.CANDIDATE_FLAG) == 0;
+		assert (data[third] & TerrainQuadMerger.REPEAT_UV_FLAG) == 0;
+		assert (data[third + 2] & 0xFF) == 2;
+		assert (data[third + 2] >>> 24) == 0x80;
+	}
+
+	@Test
+	void mergesStillFluidSurface() {
+		// Still fluid surface is 8/9 of the way up the block
+		final int yFraction = Math.round(8f / 9f * 0xFFFF);
+		final int[] data = new int[TerrainQuadMerger.QUAD_STRIDE * 256];
+
+		for (int i = 0; i < 256; ++i) {
+			floorQuad(data, i, i & 15, 10, yFraction, i >> 4, 0xFF);
+		}
+
+		final int size = new TerrainQuadMerger().mergeCoplanar(data, data.length);
+		assert size == TerrainQuadMerger.QUAD_STRIDE;
+
+		for (int v = 0; v < 4; ++v) {
+			final int i = v * TerrainQuadMerger.VERTEX_STRIDE;
+			assert data[i] >>> 16 == 0;
+			assert data[i + 1] == yFraction;
+			assert (data[i + 2] & 0xFF) == FLOOR_CORNERS[v][0] * 16;
+			assert ((data[i + 2] >> 8) & 0xFF) == 10;
+			assert ((data[i + 2] >> 16) & 0xFF) == FLOOR_CORNERS[v][1] * 16;
+		}
+	}
+
+	@Test
+	void mergeCoplanarRequiresOnePlane() {
+		final int[] data = new int[TerrainQuadMerger.QUAD_STRIDE * 3];
+		floorQuad(data, 0, 0, 10, 0, 0xFF);
+		floorQuad(data, 1, 1, 10, 0, 0xFF);
+		floorQuad(data, 2, 0, 11, 1, 0xFF);
+
+		final int size = new TerrainQuadMerger().mergeCoplanar(data, data.length);
+		assert size == data.length;
+
+		for (int q = 0; q < 3; ++q) {
+			final int i = q * TerrainQuadMerger.QUAD_STRIDE;
+			assert (data[i] & (TerrainQuadMerger.CANDIDATE_FLAG | TerrainQuadMerger.REPEAT_UV_FLAG)) == 0;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.light;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LightSmootherTest {
+	private static final int OPAQUE = -1;
+	private static final int Y_INC = LightSmoother.POS_DIAMETER;
+	private static final int Z_INC = LightSmoother.POS_DIAMETER * LightSmoother.POS_DIAMETER;
+	private static final int INNER_DIST = 28966;
+	private static final int OUTER_DIST = (0xFFFF - INNER_DIST) / 2;
+	private static final int INNER_PLUS = INNER_DIST + OUTER_DIST;
+
+	@Test
+	void matchesScalarBlur() {
+		final Random random = new Random(42);
+
+		for (int n = 0; n < 4; ++n) {
+			final int[] block = new int[LightSmoother.POS_COUNT];
+			final int[] sky = new int[LightSmoother.POS_COUNT];
+
+			for (int i = 0; i < LightSmoother.POS_COUNT; ++i) {
+				if (random.nextInt(4) == 0) {
+					block[i] = OPAQUE;
+					sky[i] = OPAQUE;
+				} else {
+					block[i] = random.nextInt(16) << 4;
+					sky[i] = random.nextInt(16) << 4;
+				}
+			}
+
+			assertMatches(block, sky);
+		}
+	}
+
+	@Test
+	void uniformVolumeIsUnchanged() {
+		final int[] block = new int[LightSmoother.POS_COUNT];
+		final int[] sky = new int[LightSmoother.POS_COUNT];
+
+		for (int i = 0; i < LightSmoother.POS_COUNT; ++i) {
+			final boolean opaque = (i % 7) == 0;
+			block[i] = opaque ? OPAQUE : 0;
+			sky[i] = opaque ? OPAQUE : 240;
+		}
+
+		final long[] light = new long[LightSmoother.POS_COUNT];
+		final int[] open = new int[LightSmoother.POS_COUNT];
+		capture(block, sky, light, open);
+		assert LightSmoother.isUniform(light, open);
+
+		assertMatches(block, sky);
+	}
+
+	private static void capture(int[] block, int[] sky, long[] light, int[] open) {
+		for (int i = 0; i < LightSmoother.POS_COUNT; ++i) {
+			if (block[i] == OPAQUE) {
+				open[i] = 0;
+				light[i] = 0;
+			} else {
+				open[i] = 1;
+				light[i] = LightSmoother.pack(block[i] | (sky[i] << 16));
+			}
+		}
+	}
+
+	/** Compares output of the packed blur with the original scalar blur in the range written to the light cache. */
+	private static void assertMatches(int[] block, int[] sky) {
+		final long[] light = new long[LightSmoother.POS_COUNT];
+		final int[] open = new int[LightSmoother.POS_COUNT];
+		capture(block, sky, light, open);
+
+		if (!LightSmoother.isUniform(light, open)) {
+			LightSmoother.blur(light, open, new long[LightSmoother.POS_COUNT]);
+		}
+
+		final int[] work = new int[LightSmoother.POS_COUNT];
+		scalarSmooth(LightSmoother.MARGIN - 1, block, work);
+		scalarSmooth(LightSmoother.MARGIN - 2, work, block);
+		scalarSmooth(LightSmoother.MARGIN - 1, sky, work);
+		scalarSmooth(LightSmoother.MARGIN - 2, work, sky);
+
+		for (int z = LightSmoother.OUTPUT_MIN; z < LightSmoother.OUTPUT_LIMIT; z++) {
+			for (int y = LightSmoother.OUTPUT_MIN; y < LightSmoother.OUTPUT_LIMIT; y++) {
+				for (int x = LightSmoother.OUTPUT_MIN; x < LightSmoother.OUTPUT_LIMIT; x++) {
+					final int i = LightSmoother.index(x, y, z);
+					assert LightSmoother.output(light[i]) == scalarOutput(block[i], sky[i]) : "Mismatch at " + x + ", " + y + ", " + z;
+				}
+			}
+		}
+	}
+
+	private static int scalarOutput(int block, int sky) {
+		final int b = Math.max(0, Math.min(240, (block * 104 + 51) / 100));
+		final int k = Math.max(0, Math.min(240, (sky * 104 + 51) / 100));
+		return ((b + 2) & 0b11111100) | (((k + 2) & 0b11111100) << 16);
+	}
+
+	/** Blur as implemented before light channels were packed, with opaque positions marked in the values. */
+	private static void scalarSmooth(int margin, int[] src, int[] dest) {
+		scalarPass(margin, 1, src, dest);
+		scalarPass(margin, Y_INC, dest, src);
+		scalarPass(margin, Z_INC, src, dest);
+	}
+
+	private static void scalarPass(int margin, int step, int[] src, int[] dest) {
+		final int base = LightSmoother.MARGIN - margin;
+		final int limit = LightSmoother.POS_DIAMETER - LightSmoother.MARGIN + margin;
+
+		for (int x = base; x < limit; x++) {
+			for (int y = base; y < limit; y++) {
+				for (int z = base; z < limit; z++) {
+					final int i = LightSmoother.index(x, y, z);
+					final int c = src[i];
+
+					if (c == OPAQUE) {
+						dest[i] = OPAQUE;
+						continue;
+					}
+
+					final int a = src[i + step];
+					final int b = src[i - step];
+
+					if (a == OPAQUE) {
+						dest[i] = b == OPAQUE ? c : (b * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
+					} else if (b == OPAQUE) {
+						dest[i] = (a * OUTER_DIST + c * INNER_PLUS + 0x7FFF) >> 16;
+					} else {
+						dest[i] = (a * OUTER_DIST + b * OUTER_DIST + c * INNER_DIST + 0x7FFF) >> 16;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import org.junit.jupiter.api.Test;
+
+import io.vram.frex.api.model.util.FaceUtil;
+
+class BitFloodFillTest {
+	private final long[] open = new long[64];
+	private final long[] filled = new long[64];
+	private final long[] expected = new long[64];
+	private final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+
+	@Test
+	void test() {
+		final Random random = new Random(42);
+
+		for (int n = 0; n < 200; ++n) {
+			// vary density so some regions are mostly open and some are cave-like
+			final float openChance = 0.3f + 0.6f * random.nextFloat();
+
+			for (int i = 0; i < 4096; ++i) {
+				if (random.nextFloat() < openChance) {
+					open[i >> 6] |= 1L << (i & 63);
+				} else {
+					open[i >> 6] &= ~(1L << (i & 63));
+				}
+			}
+
+			for (int i = 0; i < 64; ++i) {
+				filled[i] = 0;
+				expected[i] = 0;
+			}
+
+			for (int s = random.nextInt(4); s >= 0; --s) {
+				final int seed = random.nextInt(4096);
+
+				if (isSet(open, seed)) {
+					filled[seed >> 6] |= 1L << (seed & 63);
+					referenceFill(seed);
+				}
+			}
+
+			BitFloodFill.fill(filled, open);
+
+			for (int i = 0; i < 64; ++i) {
+				assert filled[i] == expected[i];
+			}
+
+			assert BitFloodFill.faceFlags(filled) == referenceFaceFlags();
+		}
+	}
+
+	private static boolean isSet(long[] words, int index) {
+		return (words[index >> 6] & (1L << (index & 63))) != 0;
+	}
+
+	private void referenceFill(int seed) {
+		if (isSet(expected, seed)) {
+			return;
+		}
+
+		expected[seed >> 6] |= 1L << (seed & 63);
+		queue.enqueue(seed);
+
+		while (!queue.isEmpty()) {
+			final int index = queue.dequeueInt();
+			final int x = index & 0xF;
+			final int y = (index >> 4) & 0xF;
+			final int z = (index >> 8) & 0xF;
+
+			if (x > 0) visit(index - 1);
+			if (x < 15) visit(index + 1);
+			if (y > 0) visit(index - 0x10);
+			if (y < 15) visit(index + 0x10);
+			if (z > 0) visit(index - 0x100);
+			if (z < 15) visit(index + 0x100);
+		}
+	}
+
+	private void visit(int index) {
+		if (isSet(open, index) && !isSet(expected, index)) {
+			expected[index >> 6] |= 1L << (index & 63);
+			queue.enqueue(index);
+		}
+	}
+
+	private int referenceFaceFlags() {
+		int result = 0;
+
+		for (int i = 0; i < 4096; ++i) {
+			if (!isSet(expected, i)) {
+				continue;
+			}
+
+			final int x = i & 0xF;
+			final int y = (i >> 4) & 0xF;
+			final int z = (i >> 8) & 0xF;
+
+			if (x == 0) {
+				result |= FaceUtil.WEST_FLAG;
+			} else if (x == 15) {
+				result |= FaceUtil.EAST_FLAG;
+			} else if (y == 0) {
+				result |= FaceUtil.DOWN_FLAG;
+			} else if (y == 15) {
+				result |= FaceUtil.UP_FLAG;
+			} else if (z == 0) {
+				result |= FaceUtil.NORTH_FLAG;
+			} else if (z == 15) {
+				result |= FaceUtil.SOUTH_FLAG;
+			}
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.occlusion.geometry;
+
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.INTERIOR_CACHE_WORDS;
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.INTERIOR_STATE_COUNT;
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.TOTAL_CACHE_WORDS;
+import static grondag.canvas.terrain.util.RenderRegionStateIndexer.interiorIndex;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import net.minecraft.world.level.block.state.BlockState;
+
+class OcclusionResultCacheTest {
+	private static long[] key(long seed) {
+		final long[] result = new long[190];
+
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = seed * 31 + i;
+		}
+
+		return result;
+	}
+
+	private static OcclusionResult result(int box) {
+		return new OcclusionResult(new int[] {box}, 0L);
+	}
+
+	@Test
+	void reusesMatchingEntry() {
+		final OcclusionResultCache cache = new OcclusionResultCache(4);
+		final long[] key = key(1);
+		final long hash = OcclusionResultCache.hash(key);
+
+		assert cache.find(hash, key, null) == null;
+
+		final OcclusionResultCache.Entry entry = cache.put(hash, key, null, result(7));
+
+		// key is copied, so the caller can reuse its array
+		key[0] = -1;
+		assert cache.find(hash, key, null) == null;
+
+		final long[] sameKey = key(1);
+		assert cache.find(hash, sameKey, null) == entry;
+		assert cache.find(hash, sameKey, entry) == entry;
+	}
+
+	@Test
+	void hashCollisionDoesNotMatchShared() {
+		final OcclusionResultCache cache = new OcclusionResultCache(4);
+		final long[] key = key(1);
+		final long hash = OcclusionResultCache.hash(key);
+		cache.put(hash, key, null, result(7));
+
+		final long[] otherKey = key(2);
+		assert cache.find(hash, otherKey, null) == null;
+	}
+
+	@Test
+	void previousEntryOutlivesEviction() {
+		final OcclusionResultCache cache = new OcclusionResultCache(1);
+		final long[] key1 = key(1);
+		final long[] key2 = key(2);
+		final long hash1 = OcclusionResultCache.hash(key1);
+		final long hash2 = OcclusionResultCache.hash(key2);
+		final OcclusionResultCache.Entry entry = cache.put(hash1, key1, null, result(1));
+		cache.put(hash2, key2, null, result(2));
+
+		assert cache.find(hash1, key1, null) == null;
+		assert cache.find(hash1, key1, entry) == entry;
+		assert cache.find(hash2, key2, entry).result.occlusionData()[0] == 2;
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		final OcclusionResultCache cache = new OcclusionResultCache(2);
+		final long[] key1 = key(1);
+		final long[] key2 = key(2);
+		final long[] key3 = key(3);
+		final long hash1 = OcclusionResultCache.hash(key1);
+		final long hash2 = OcclusionResultCache.hash(key2);
+		final long hash3 = OcclusionResultCache.hash(key3);
+
+		cache.put(hash1, key1, null, result(1));
+		cache.put(hash2, key2, null, result(2));
+
+		// use of key 1 makes key 2 the eldest
+		assert cache.find(hash1, key1, null) != null;
+		cache.put(hash3, key3, null, result(3));
+
+		assert cache.size() == 2;
+		assert cache.find(hash1, key1, null) != null;
+		assert cache.find(hash2, key2, null) == null;
+		assert cache.find(hash3, key3, null) != null;
+	}
+
+	@Test
+	void buildHitMatchesCompute() {
+		// solid cube with a hidden interior, with and without a torch next to it
+		final long[] closed = new long[INTERIOR_CACHE_WORDS];
+		fill(closed, 2, 13);
+		final long[] torch = closed.clone();
+		set(torch, interiorIndex(1, 1, 1));
+
+		// flags: isNear, advanced culling, run-length boxes
+		for (int flags = 0; flags < 8; ++flags) {
+			final boolean isNear = (flags & 1) != 0;
+			final boolean advanced = (flags & 2) != 0;
+			final boolean runLength = (flags & 4) != 0;
+
+			assertHitMatchesCompute(closed, closed, closed, isNear, advanced, runLength);
+			assertHitMatchesCompute(closed, closed, torch, isNear, advanced, runLength);
+			assertHitMatchesCompute(closed, torch, closed, isNear, advanced, runLength);
+		}
+
+		// fully closed region is trimmed to its surface
+		final long[] solid = new long[INTERIOR_CACHE_WORDS];
+		Arrays.fill(solid, -1L);
+		assertHitMatchesCompute(solid, solid, solid, false, true, false);
+	}
+
+	/**
+	 * Builds with the first renderable bits, then builds again with the second renderable
+	 * bits and the same opacity. Checks the second build hits the cache and leaves the same
+	 * bits and result as building the second input without a cache entry.
+	 */
+	private static void assertHitMatchesCompute(long[] closed, long[] firstRenderable, long[] renderable, boolean isNear, boolean advanced, boolean runLength) {
+		final OcclusionResultCache cache = new OcclusionResultCache(4);
+		final TestCalculator cached = new TestCalculator();
+
+		cached.capture(closed, firstRenderable);
+		cached.build(cache, isNear, advanced, runLength, null);
+		final OcclusionResultCache.Entry entry = cached.cacheEntry();
+
+		cached.capture(closed, renderable);
+		final OcclusionResult hitResult = cached.build(cache, isNear, advanced, runLength, null);
+		assert cached.cacheEntry() == entry;
+
+		final TestCalculator computed = new TestCalculator();
+		computed.capture(closed, renderable);
+		final OcclusionResult computedResult = computed.build(new OcclusionResultCache(4), isNear, advanced, runLength, null);
+
+		assert Arrays.equals(hitResult.occlusionData(), computedResult.occlusionData());
+		assert hitResult.mutalFaceMask() == computedResult.mutalFaceMask();
+
+		for (int i = 0; i < TOTAL_CACHE_WORDS * 64; ++i) {
+			assert cached.isClosed(i) == computed.isClosed(i);
+		}
+
+		for (int i = 0; i < INTERIOR_STATE_COUNT; ++i) {
+			assert cached.nextRenderable(i) == computed.nextRenderable(i);
+		}
+	}
+
+	private static void fill(long[] words, int min, int max) {
+		for (int x = min; x <= max; ++x) {
+			for (int y = min; y <= max; ++y) {
+				for (int z = min; z <= max; ++z) {
+					set(words, interiorIndex(x, y, z));
+				}
+			}
+		}
+	}
+
+	private static void set(long[] words, int index) {
+		words[index >> 6] |= 1L << (index & 63);
+	}
+
+	private static boolean isSet(long[] words, int index) {
+		return (words[index >> 6] & (1L << (index & 63))) != 0;
+	}
+
+	/** Calculator with interior bits set directly instead of captured from block states. */
+	private static class TestCalculator extends RegionOcclusionCalculator {
+		void capture(long[] closed, long[] renderable) {
+			reset();
+
+			for (int i = 0; i < INTERIOR_STATE_COUNT; ++i) {
+				setVisibility(i, isSet(renderable, i), isSet(closed, i));
+			}
+		}
+
+		@Override
+		protected BlockState blockStateAtIndex(int regionIndex) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected boolean closedAtRelativePos(BlockState blockState, int regionIndex) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected @Nullable BlockState uniformInteriorState() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
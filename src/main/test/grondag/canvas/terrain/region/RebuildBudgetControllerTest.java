@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.region;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RebuildBudgetControllerTest {
+	private static final long MS = 1_000_000L;
+	private static final long TARGET = 16_666_667L;
+	private static final long TOLERATED = TARGET + TARGET / 20;
+
+	/**
+	 * Deterministic stand-in for the render loop. Each frame costs a base amount plus
+	 * rebuild work, and a frame rate limiter pads frames shorter than the target.
+	 * Rebuilds run like RegionRebuildManager.processScheduledRegions: one region at a time
+	 * until the deadline passes, always at least one if any are queued.
+	 */
+	private static class Simulation {
+		final RebuildBudgetController controller = new RebuildBudgetController();
+		final Random random = new Random(1234);
+		long baseFrameNanos;
+		long baseJitterNanos = 0;
+		long regionCostNanos = MS;
+		int queueDepth;
+		long lastFrameNanos = 0;
+		int missCount = 0;
+
+		Simulation(long baseFrameNanos, int queueDepth) {
+			this.baseFrameNanos = baseFrameNanos;
+			this.queueDepth = queueDepth;
+		}
+
+		void run(int frameCount) {
+			for (int i = 0; i < frameCount; ++i) {
+				step();
+			}
+		}
+
+		void step() {
+			controller.update(lastFrameNanos, TARGET, queueDepth);
+			final long budget = controller.budgetNanos();
+			long elapsed = 0;
+			int count = 0;
+
+			while (queueDepth > 0) {
+				--queueDepth;
+				++count;
+				elapsed += regionCostNanos;
+
+				if (elapsed >= budget) {
+					break;
+				}
+			}
+
+			controller.recordWork(elapsed, count);
+
+			final long jitter = baseJitterNanos == 0 ? 0 : (long) ((random.nextDouble() * 2 - 1) * baseJitterNanos);
+			lastFrameNanos = Math.max(TARGET, baseFrameNanos + jitter + elapsed);
+
+			if (lastFrameNanos > TOLERATED) {
+				++missCount;
+			}
+		}
+	}
+
+	@Test
+	void holdsTargetWhileDraining() {
+		final Simulation sim = new Simulation(10 * MS, 100_000);
+		sim.run(120);
+		sim.missCount = 0;
+		sim.run(600);
+
+		assert sim.missCount == 0;
+
+		// Should be using nearly all of the 6.7ms of headroom
+		assert sim.controller.budgetNanos() >= 5 * MS;
+	}
+
+	@Test
+	void rarelyMissesTargetWithJitter() {
+		final Simulation sim = new Simulation(10 * MS, 100_000);
+		sim.baseJitterNanos = 2 * MS;
+		sim.run(120);
+		sim.missCount = 0;
+		sim.run(1000);
+
+		assert sim.missCount < 100;
+		assert sim.controller.budgetNanos() >= 2 * MS;
+	}
+
+	@Test
+	void drainsBacklogWhenFramesAreSlow() {
+		// Frames miss target no matter what, so budget should drop to the floor but work continue
+		final Simulation sim = new Simulation(25 * MS, 200);
+		sim.run(200);
+
+		assert sim.queueDepth == 0;
+
+		sim.queueDepth = 1000;
+		sim.run(10);
+		assert sim.controller.budgetNanos() == RebuildBudgetController.MIN_BUDGET_NANOS;
+	}
+
+	@Test
+	void doesNotWindUpWhileIdle() {
+		final Simulation sim = new Simulation(5 * MS, 0);
+		sim.run(300);
+
+		assert sim.controller.budgetNanos() == RebuildBudgetController.MIN_BUDGET_NANOS;
+
+		// A burst after a long idle period must not blow through the target
+		sim.queueDepth = 5000;
+		sim.missCount = 0;
+		sim.run(300);
+
+		assert sim.missCount == 0;
+	}
+
+	@Test
+	void tracksRegionCost() {
+		final Simulation sim = new Simulation(10 * MS, 100_000);
+		sim.regionCostNanos = 3 * MS;
+		sim.run(200);
+
+		final long estimate = sim.controller.regionCostNanos();
+		assert estimate > 3 * MS * 95 / 100 && estimate < 3 * MS * 105 / 100;
+
+		// Budget never exceeds what the queue needs
+		sim.queueDepth = 1;
+		sim.step();
+		assert sim.controller.budgetNanos() <= estimate;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.canvas.terrain.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.canvas.apiimpl.rendercontext.CanvasTerrainRenderContext;
+
+class WorkStealingTerrainExecutorTest {
+	/**
+	 * Submits a burst of privileged tasks, as a main-thread build batch does for its helpers.
+	 * Each task waits until all have started, so the burst only completes if every task
+	 * runs on a different worker at the same time.
+	 */
+	@Test
+	void burstSpreadsAcrossWorkers() throws InterruptedException {
+		final WorkStealingTerrainExecutor executor = new WorkStealingTerrainExecutor(false, () -> null);
+		final int helperCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		final CountDownLatch started = new CountDownLatch(helperCount);
+		final CountDownLatch finished = new CountDownLatch(helperCount);
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+		final TerrainExecutorTask helper = new TerrainExecutorTask() {
+			@Override
+			public void run(CanvasTerrainRenderContext context) {
+				threads.add(Thread.currentThread());
+				started.countDown();
+
+				try {
+					started.await(10, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+
+				finished.countDown();
+			}
+
+			@Override
+			public int priority() {
+				return -1;
+			}
+		};
+
+		for (int i = 0; i < helperCount; ++i) {
+			executor.execute(helper);
+		}
+
+		assert finished.await(20, TimeUnit.SECONDS);
+		assert started.getCount() == 0;
+		assert threads.size() == helperCount;
+
+		executor.shutdown();
+	}
+}